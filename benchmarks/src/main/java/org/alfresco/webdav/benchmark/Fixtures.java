@@ -0,0 +1,44 @@
+package org.alfresco.webdav.benchmark;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Responses shaped like the ones of the Alfresco WebDAV server
+ */
+final class Fixtures
+{
+    static final String COLLECTION = "/alfresco/webdav/Sites/benchmark/documentLibrary/";
+
+    private Fixtures()
+    {
+    }
+
+    /**
+     * @param children number of children of the listed collection, one folder every ten resources
+     * @return a depth 1 PROPFIND multistatus response
+     */
+    static byte[] listing(int children)
+    {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\" ?><D:multistatus xmlns:D=\"DAV:\">");
+        appendResponse(xml, COLLECTION, true, 0);
+        for (int i = 0; i < children; i++)
+        {
+            boolean folder = i % 10 == 0;
+            appendResponse(xml, folder ? String.format("%sfolder%%20%d/", COLLECTION, i) : String.format("%sfile%%20%d.txt", COLLECTION, i), folder,
+                    1024L * i);
+        }
+        xml.append("</D:multistatus>");
+        return xml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendResponse(StringBuilder xml, String href, boolean collection, long length)
+    {
+        xml.append("<D:response><D:href>").append(href).append("</D:href><D:propstat><D:prop>");
+        xml.append(collection ? "<D:resourcetype><D:collection/></D:resourcetype>" : "<D:resourcetype/>");
+        if (!collection)
+            xml.append("<D:getcontentlength>").append(length).append("</D:getcontentlength>");
+        xml.append("<D:getetag>\"").append(href.hashCode()).append("\"</D:getetag>");
+        xml.append("<D:getlastmodified>Tue, 05 Mar 2024 10:15:30 GMT</D:getlastmodified>");
+        xml.append("</D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>");
+    }
+}
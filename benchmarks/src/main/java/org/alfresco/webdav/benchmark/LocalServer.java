@@ -0,0 +1,80 @@
+package org.alfresco.webdav.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process HTTP server serving one resource of a fixed size and discarding uploaded content, so that transfers measure
+ * the client only
+ */
+class LocalServer implements AutoCloseable
+{
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[] content;
+
+    LocalServer(int size) throws IOException
+    {
+        content = new byte[size];
+        for (int i = 0; i < size; i++)
+            content[i] = (byte) i;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * @return URI of the served resource
+     */
+    String getUri()
+    {
+        return String.format("http://127.0.0.1:%d/alfresco/webdav/content.bin", server.getAddress().getPort());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        try (exchange)
+        {
+            switch (exchange.getRequestMethod())
+            {
+                case "GET":
+                    exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+                    exchange.sendResponseHeaders(200, content.length);
+                    try (OutputStream out = exchange.getResponseBody())
+                    {
+                        out.write(content);
+                    }
+                    break;
+                case "PUT":
+                    byte[] buffer = new byte[64 * 1024];
+                    try (InputStream in = exchange.getRequestBody())
+                    {
+                        while (in.read(buffer) != -1)
+                        {
+                            // discard the uploaded content
+                        }
+                    }
+                    exchange.sendResponseHeaders(201, -1);
+                    break;
+                default:
+                    exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,80 @@
+package org.alfresco.webdav.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.alfresco.webdav.listing.DavResource;
+import org.alfresco.webdav.listing.MultiStatusReader;
+import org.apache.jackrabbit.webdav.MultiStatus;
+import org.apache.jackrabbit.webdav.MultiStatusResponse;
+import org.apache.jackrabbit.webdav.property.DavProperty;
+import org.apache.jackrabbit.webdav.xml.DomUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * Parsing of a listing and classification of its children, with the streaming reader and with the jackrabbit DOM
+ * parser used before it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiStatusBenchmark
+{
+    @Param({ "100", "10000" })
+    private int children;
+
+    private byte[] listing;
+
+    @Setup
+    public void setUp()
+    {
+        listing = Fixtures.listing(children);
+    }
+
+    @Benchmark
+    public long streamingReader() throws Exception
+    {
+        try (Stream<DavResource> resources = new MultiStatusReader(new ByteArrayInputStream(listing)).stream())
+        {
+            return resources.filter(DavResource::isCollection).count();
+        }
+    }
+
+    @Benchmark
+    public long domParser() throws Exception
+    {
+        Document document = DomUtil.parseDocument(new ByteArrayInputStream(listing));
+        MultiStatus multiStatus = MultiStatus.createFromXml(document.getDocumentElement());
+        long folders = 0;
+        for (MultiStatusResponse response : multiStatus.getResponses())
+        {
+            if (isFolder(response))
+                folders++;
+        }
+        return folders;
+    }
+
+    /**
+     * Classification of the DOM responses as done before the streaming reader
+     */
+    private static boolean isFolder(MultiStatusResponse response)
+    {
+        DavProperty<?> resourceType = response.getProperties(200).get("resourcetype");
+        return resourceType != null && resourceType.getValue() != null && resourceType.getValue().toString().contains("collection");
+    }
+}
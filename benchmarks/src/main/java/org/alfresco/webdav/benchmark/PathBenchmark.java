@@ -0,0 +1,57 @@
+package org.alfresco.webdav.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.utility.Utility;
+import org.alfresco.webdav.dsl.WebDavUtil;
+import org.apache.jackrabbit.webdav.util.EncodeUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Path building and encoding done before every request
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathBenchmark
+{
+    private final WebDavUtil webDavUtil = new WebDavUtil(null);
+    private final String parent = "http://localhost:8080/alfresco/webdav/Sites/benchmark site/documentLibrary";
+    private final String name = "quarterly report 2024.docx";
+    private final String path = "/alfresco/webdav/Sites/benchmark site/documentLibrary/quarterly report 2024.docx";
+
+    @Benchmark
+    public String buildPath()
+    {
+        return Utility.buildPath(parent, "folder", name);
+    }
+
+    @Benchmark
+    public String checkForWhiteSpace()
+    {
+        return webDavUtil.checkForWhiteSpace(path);
+    }
+
+    @Benchmark
+    public String escapePath()
+    {
+        return EncodeUtil.escapePath(path);
+    }
+
+    @Benchmark
+    public String unescape()
+    {
+        return EncodeUtil.unescape("/alfresco/webdav/Sites/benchmark%20site/documentLibrary/quarterly%20report%202024.docx");
+    }
+}
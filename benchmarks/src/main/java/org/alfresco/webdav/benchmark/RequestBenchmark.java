@@ -0,0 +1,59 @@
+package org.alfresco.webdav.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.webdav.dsl.PropertySelection;
+import org.alfresco.webdav.http.WebDavRequest;
+import org.alfresco.webdav.listing.MultiStatusReader;
+import org.apache.jackrabbit.webdav.DavConstants;
+import org.apache.jackrabbit.webdav.DavMethods;
+import org.apache.jackrabbit.webdav.client.methods.PropFindMethod;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Construction of the requests, without sending them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBenchmark
+{
+    private final String uri = "http://localhost:8080/alfresco/webdav/Sites/benchmark/documentLibrary/";
+    private final byte[] content = new byte[1024];
+
+    @Benchmark
+    public WebDavRequest propFindRequest()
+    {
+        return MultiStatusReader.createPropFindRequest(uri, PropertySelection.listing(), DavConstants.DEPTH_1);
+    }
+
+    @Benchmark
+    public PropFindMethod jackrabbitPropFindMethod() throws Exception
+    {
+        return new PropFindMethod(uri, PropertySelection.listing(), DavConstants.DEPTH_1);
+    }
+
+    @Benchmark
+    public WebDavRequest putRequest()
+    {
+        return new WebDavRequest(DavMethods.METHOD_PUT, uri + "file.txt").header("Expect", "100-continue").body(content, "text/plain");
+    }
+
+    @Benchmark
+    public WebDavRequest copyRequest()
+    {
+        return new WebDavRequest(DavMethods.METHOD_COPY, uri + "file.txt").header(DavConstants.HEADER_DESTINATION, uri + "copy.txt")
+                .header(DavConstants.HEADER_OVERWRITE, "T");
+    }
+}
@@ -0,0 +1,98 @@
+package org.alfresco.webdav.benchmark;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.webdav.http.HttpClientTransport;
+import org.alfresco.webdav.http.JdkHttpTransport;
+import org.alfresco.webdav.http.WebDavRequest;
+import org.alfresco.webdav.http.WebDavResponse;
+import org.alfresco.webdav.http.WebDavTransport;
+import org.alfresco.webdav.transfer.WebDavDownloader;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.jackrabbit.webdav.DavMethods;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Upload and download through each transport against a {@link LocalServer}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferBenchmark
+{
+    @Param({ "httpclient", "jdk" })
+    private String transportName;
+
+    @Param({ "65536", "16777216" })
+    private int size;
+
+    private LocalServer server;
+    private ExecutorService executor;
+    private WebDavTransport transport;
+    private WebDavDownloader downloader;
+    private File upload;
+    private WritableByteChannel discard;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        server = new LocalServer(size);
+        executor = Executors.newCachedThreadPool();
+        if ("jdk".equals(transportName))
+            transport = new JdkHttpTransport(JdkHttpTransport.createHttpClient(), "benchmark", "benchmark");
+        else
+            transport = new HttpClientTransport(new HttpClient(new MultiThreadedHttpConnectionManager()), executor);
+        downloader = new WebDavDownloader(transport, 256 * 1024, Long.MAX_VALUE, 1);
+        upload = File.createTempFile("webdav-benchmark", ".bin");
+        upload.deleteOnExit();
+        Files.write(upload.toPath(), new byte[size]);
+        discard = Channels.newChannel(OutputStream.nullOutputStream());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        transport.close();
+        server.close();
+        executor.shutdownNow();
+        Files.deleteIfExists(upload.toPath());
+    }
+
+    @Benchmark
+    public long download() throws Exception
+    {
+        return downloader.download(server.getUri(), discard).getBytesTransferred();
+    }
+
+    @Benchmark
+    public int upload() throws Exception
+    {
+        try (WebDavResponse response = transport.execute(new WebDavRequest(DavMethods.METHOD_PUT, server.getUri()).body(upload, null)))
+        {
+            return response.getStatus();
+        }
+    }
+}
@@ -21,6 +21,120 @@ public class WebDavProperties
     @Value("${webdav.port}")
     private int webdavPort;
 
+    @Value("${webdav.transport:httpclient}")
+    private String transport;
+
+    @Value("${webdav.upload.mode:SINGLE_PUT}")
+    private String uploadMode;
+
+    @Value("${webdav.upload.expectContinue:false}")
+    private boolean uploadExpectContinue;
+
+    @Value("${webdav.upload.concurrency:8}")
+    private int uploadConcurrency;
+
+    @Value("${webdav.download.bufferSize:262144}")
+    private int downloadBufferSize;
+
+    @Value("${webdav.download.segments:1}")
+    private int downloadSegments;
+
+    @Value("${webdav.download.segmentThreshold:67108864}")
+    private long downloadSegmentThreshold;
+
+    @Value("${webdav.listing.cache.enabled:false}")
+    private boolean listingCacheEnabled;
+
+    @Value("${webdav.listing.cache.maxEntries:128}")
+    private int listingCacheMaxEntries;
+
+    @Value("${webdav.listing.cache.revalidate:false}")
+    private boolean listingCacheRevalidate;
+
+    @Value("${webdav.content.cache.enabled:false}")
+    private boolean contentCacheEnabled;
+
+    @Value("${webdav.content.cache.maxEntries:256}")
+    private int contentCacheMaxEntries;
+
+    @Value("${webdav.content.cache.maxMemoryBytes:67108864}")
+    private long contentCacheMaxMemoryBytes;
+
+    @Value("${webdav.content.cache.spillThreshold:1048576}")
+    private long contentCacheSpillThreshold;
+
+    @Value("${webdav.content.cache.maxDiskBytes:1073741824}")
+    private long contentCacheMaxDiskBytes;
+
+    @Value("${webdav.crawl.concurrency:8}")
+    private int crawlConcurrency;
+
+    @Value("${webdav.probe.concurrency:8}")
+    private int probeConcurrency;
+
+    @Value("${webdav.teardown.concurrency:8}")
+    private int teardownConcurrency;
+
+    @Value("${webdav.teardown.depthInfinity:true}")
+    private boolean teardownDepthInfinity;
+
+    @Value("${webdav.nodeRef.mode:EAGER}")
+    private String nodeRefMode;
+
+    @Value("${webdav.nodeRef.cache.maxEntries:1024}")
+    private int nodeRefCacheMaxEntries;
+
+    @Value("${webdav.metrics.enabled:true}")
+    private boolean metricsEnabled;
+
+    @Value("${webdav.step.level:SYNC}")
+    private String stepLevel;
+
+    @Value("${webdav.step.bufferSize:65536}")
+    private int stepBufferSize;
+
+    @Value("${webdav.step.sampleRate:1000}")
+    private int stepSampleRate;
+
+    @Value("${webdav.jmx.sampler.interval:1000}")
+    private long jmxSamplerInterval;
+
+    @Value("${webdav.jmx.sampler.attributes:}")
+    private String jmxSamplerAttributes;
+
+    @Value("${webdav.lock.timeout:600}")
+    private long lockTimeout;
+
+    @Value("${webdav.lock.refresh.enabled:true}")
+    private boolean lockRefreshEnabled;
+
+    @Value("${webdav.delete.confirm.initialDelay:50}")
+    private long deleteConfirmInitialDelay;
+
+    @Value("${webdav.delete.confirm.maxDelay:2000}")
+    private long deleteConfirmMaxDelay;
+
+    @Value("${webdav.delete.confirm.timeout:60000}")
+    private long deleteConfirmTimeout;
+
+    @Value("${webdav.delete.confirm.batchThreshold:4}")
+    private int deleteConfirmBatchThreshold;
+
+    @Value("${webdav.http.maxConnectionsPerHost:20}")
+    private int maxConnectionsPerHost;
+
+    @Value("${webdav.http.maxTotalConnections:200}")
+    private int maxTotalConnections;
+
+    @Value("${webdav.http.idleConnectionTimeout:30000}")
+    private long idleConnectionTimeout;
+
+    @Value("${webdav.http.idleConnectionCheckInterval:5000}")
+    private long idleConnectionCheckInterval;
+
+    @Value("${webdav.http.staleCheckingEnabled:true}")
+    private boolean staleCheckingEnabled;
+
     public int getWebDavPort()
     {
         return webdavPort;
@@ -30,4 +144,501 @@ public class WebDavProperties
     {
         this.webdavPort = webDavPort;
     }
+
+    /**
+     * @return HTTP engine used by the WebDAV sessions: "httpclient" (default) or "jdk"
+     */
+    public String getTransport()
+    {
+        return transport;
+    }
+
+    public void setTransport(String transport)
+    {
+        this.transport = transport;
+    }
+
+    /**
+     * @return default mode of uploading local files: SINGLE_PUT or OFFICE
+     */
+    public String getUploadMode()
+    {
+        return uploadMode;
+    }
+
+    public void setUploadMode(String uploadMode)
+    {
+        this.uploadMode = uploadMode;
+    }
+
+    /**
+     * @return true if uploads wait for the server to accept the request headers before sending the content
+     */
+    public boolean isUploadExpectContinue()
+    {
+        return uploadExpectContinue;
+    }
+
+    public void setUploadExpectContinue(boolean uploadExpectContinue)
+    {
+        this.uploadExpectContinue = uploadExpectContinue;
+    }
+
+    /**
+     * @return maximal number of parallel requests sent while uploading a local folder
+     */
+    public int getUploadConcurrency()
+    {
+        return uploadConcurrency;
+    }
+
+    public void setUploadConcurrency(int uploadConcurrency)
+    {
+        this.uploadConcurrency = uploadConcurrency;
+    }
+
+    /**
+     * @return size in bytes of the buffer used to stream a download
+     */
+    public int getDownloadBufferSize()
+    {
+        return downloadBufferSize;
+    }
+
+    public void setDownloadBufferSize(int downloadBufferSize)
+    {
+        this.downloadBufferSize = downloadBufferSize;
+    }
+
+    /**
+     * @return number of parallel Range requests used to download a big resource, 1 to disable segmented downloads
+     */
+    public int getDownloadSegments()
+    {
+        return downloadSegments;
+    }
+
+    public void setDownloadSegments(int downloadSegments)
+    {
+        this.downloadSegments = downloadSegments;
+    }
+
+    /**
+     * @return minimal size in bytes of a resource downloaded in segments
+     */
+    public long getDownloadSegmentThreshold()
+    {
+        return downloadSegmentThreshold;
+    }
+
+    public void setDownloadSegmentThreshold(long downloadSegmentThreshold)
+    {
+        this.downloadSegmentThreshold = downloadSegmentThreshold;
+    }
+
+    /**
+     * @return true if each session caches the listings of the collections it reads
+     */
+    public boolean isListingCacheEnabled()
+    {
+        return listingCacheEnabled;
+    }
+
+    public void setListingCacheEnabled(boolean listingCacheEnabled)
+    {
+        this.listingCacheEnabled = listingCacheEnabled;
+    }
+
+    /**
+     * @return maximal number of collection listings cached by a session
+     */
+    public int getListingCacheMaxEntries()
+    {
+        return listingCacheMaxEntries;
+    }
+
+    public void setListingCacheMaxEntries(int listingCacheMaxEntries)
+    {
+        this.listingCacheMaxEntries = listingCacheMaxEntries;
+    }
+
+    /**
+     * @return true if a cached listing is checked against the collection ETag and last modification date before being used
+     */
+    public boolean isListingCacheRevalidate()
+    {
+        return listingCacheRevalidate;
+    }
+
+    public void setListingCacheRevalidate(boolean listingCacheRevalidate)
+    {
+        this.listingCacheRevalidate = listingCacheRevalidate;
+    }
+
+    /**
+     * @return true if downloaded contents are cached and revalidated with If-None-Match
+     */
+    public boolean isContentCacheEnabled()
+    {
+        return contentCacheEnabled;
+    }
+
+    public void setContentCacheEnabled(boolean contentCacheEnabled)
+    {
+        this.contentCacheEnabled = contentCacheEnabled;
+    }
+
+    /**
+     * @return maximal number of contents cached by a session
+     */
+    public int getContentCacheMaxEntries()
+    {
+        return contentCacheMaxEntries;
+    }
+
+    public void setContentCacheMaxEntries(int contentCacheMaxEntries)
+    {
+        this.contentCacheMaxEntries = contentCacheMaxEntries;
+    }
+
+    /**
+     * @return maximal size in bytes of the contents a session caches in memory
+     */
+    public long getContentCacheMaxMemoryBytes()
+    {
+        return contentCacheMaxMemoryBytes;
+    }
+
+    public void setContentCacheMaxMemoryBytes(long contentCacheMaxMemoryBytes)
+    {
+        this.contentCacheMaxMemoryBytes = contentCacheMaxMemoryBytes;
+    }
+
+    /**
+     * @return size in bytes above which a cached content is written to a temporary file
+     */
+    public long getContentCacheSpillThreshold()
+    {
+        return contentCacheSpillThreshold;
+    }
+
+    public void setContentCacheSpillThreshold(long contentCacheSpillThreshold)
+    {
+        this.contentCacheSpillThreshold = contentCacheSpillThreshold;
+    }
+
+    /**
+     * @return maximal size in bytes of the contents a session caches on disk
+     */
+    public long getContentCacheMaxDiskBytes()
+    {
+        return contentCacheMaxDiskBytes;
+    }
+
+    public void setContentCacheMaxDiskBytes(long contentCacheMaxDiskBytes)
+    {
+        this.contentCacheMaxDiskBytes = contentCacheMaxDiskBytes;
+    }
+
+    /**
+     * @return maximal number of PROPFIND requests in flight while crawling a tree
+     */
+    public int getCrawlConcurrency()
+    {
+        return crawlConcurrency;
+    }
+
+    public void setCrawlConcurrency(int crawlConcurrency)
+    {
+        this.crawlConcurrency = crawlConcurrency;
+    }
+
+    /**
+     * @return maximal number of PROPFIND requests in flight while probing many resources
+     */
+    public int getProbeConcurrency()
+    {
+        return probeConcurrency;
+    }
+
+    public void setProbeConcurrency(int probeConcurrency)
+    {
+        this.probeConcurrency = probeConcurrency;
+    }
+
+    /**
+     * @return maximal number of requests in flight while tearing down a tree
+     */
+    public int getTeardownConcurrency()
+    {
+        return teardownConcurrency;
+    }
+
+    public void setTeardownConcurrency(int teardownConcurrency)
+    {
+        this.teardownConcurrency = teardownConcurrency;
+    }
+
+    /**
+     * @return true if a tree is first deleted with one depth infinity DELETE per collection, false to always delete it
+     *         leaves first
+     */
+    public boolean isTeardownDepthInfinity()
+    {
+        return teardownDepthInfinity;
+    }
+
+    public void setTeardownDepthInfinity(boolean teardownDepthInfinity)
+    {
+        this.teardownDepthInfinity = teardownDepthInfinity;
+    }
+
+    /**
+     * @return when the node reference of created content is read: EAGER, DEFERRED or DISABLED (see
+     *         {@link org.alfresco.webdav.noderef.NodeRefMode})
+     */
+    public String getNodeRefMode()
+    {
+        return nodeRefMode;
+    }
+
+    public void setNodeRefMode(String nodeRefMode)
+    {
+        this.nodeRefMode = nodeRefMode;
+    }
+
+    /**
+     * @return maximal number of node references cached by each session
+     */
+    public int getNodeRefCacheMaxEntries()
+    {
+        return nodeRefCacheMaxEntries;
+    }
+
+    public void setNodeRefCacheMaxEntries(int nodeRefCacheMaxEntries)
+    {
+        this.nodeRefCacheMaxEntries = nodeRefCacheMaxEntries;
+    }
+
+    /**
+     * @return true to record the latency and size of every request and publish them as an MBean
+     */
+    public boolean isMetricsEnabled()
+    {
+        return metricsEnabled;
+    }
+
+    public void setMetricsEnabled(boolean metricsEnabled)
+    {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    /**
+     * @return how steps are reported: SYNC, ALL, SAMPLED, FAILURES or OFF (see {@link org.alfresco.webdav.report.StepLevel})
+     */
+    public String getStepLevel()
+    {
+        return stepLevel;
+    }
+
+    public void setStepLevel(String stepLevel)
+    {
+        this.stepLevel = stepLevel;
+    }
+
+    /**
+     * @return number of steps waiting to be logged before new steps are dropped
+     */
+    public int getStepBufferSize()
+    {
+        return stepBufferSize;
+    }
+
+    public void setStepBufferSize(int stepBufferSize)
+    {
+        this.stepBufferSize = stepBufferSize;
+    }
+
+    /**
+     * @return one step in this number is logged at the SAMPLED level
+     */
+    public int getStepSampleRate()
+    {
+        return stepSampleRate;
+    }
+
+    public void setStepSampleRate(int stepSampleRate)
+    {
+        this.stepSampleRate = stepSampleRate;
+    }
+
+    /**
+     * @return time in milliseconds between two samples of the server MBeans
+     */
+    public long getJmxSamplerInterval()
+    {
+        return jmxSamplerInterval;
+    }
+
+    public void setJmxSamplerInterval(long jmxSamplerInterval)
+    {
+        this.jmxSamplerInterval = jmxSamplerInterval;
+    }
+
+    /**
+     * @return server MBean attributes to sample, as "label=objectName|attribute[|key]" separated by ';', empty for the
+     *         default JVM and Alfresco attributes
+     */
+    public String getJmxSamplerAttributes()
+    {
+        return jmxSamplerAttributes;
+    }
+
+    public void setJmxSamplerAttributes(String jmxSamplerAttributes)
+    {
+        this.jmxSamplerAttributes = jmxSamplerAttributes;
+    }
+
+    /**
+     * @return timeout in seconds requested for the locks taken by the sessions
+     */
+    public long getLockTimeout()
+    {
+        return lockTimeout;
+    }
+
+    public void setLockTimeout(long lockTimeout)
+    {
+        this.lockTimeout = lockTimeout;
+    }
+
+    /**
+     * @return true if the held locks are refreshed in the background before they expire
+     */
+    public boolean isLockRefreshEnabled()
+    {
+        return lockRefreshEnabled;
+    }
+
+    public void setLockRefreshEnabled(boolean lockRefreshEnabled)
+    {
+        this.lockRefreshEnabled = lockRefreshEnabled;
+    }
+
+    /**
+     * @return time in milliseconds before probing again a deleted resource that is still present, doubled at each probe
+     */
+    public long getDeleteConfirmInitialDelay()
+    {
+        return deleteConfirmInitialDelay;
+    }
+
+    public void setDeleteConfirmInitialDelay(long deleteConfirmInitialDelay)
+    {
+        this.deleteConfirmInitialDelay = deleteConfirmInitialDelay;
+    }
+
+    /**
+     * @return maximal time in milliseconds between two probes of a deleted resource
+     */
+    public long getDeleteConfirmMaxDelay()
+    {
+        return deleteConfirmMaxDelay;
+    }
+
+    public void setDeleteConfirmMaxDelay(long deleteConfirmMaxDelay)
+    {
+        this.deleteConfirmMaxDelay = deleteConfirmMaxDelay;
+    }
+
+    /**
+     * @return time in milliseconds after which a deleted resource still present is reported as not deleted
+     */
+    public long getDeleteConfirmTimeout()
+    {
+        return deleteConfirmTimeout;
+    }
+
+    public void setDeleteConfirmTimeout(long deleteConfirmTimeout)
+    {
+        this.deleteConfirmTimeout = deleteConfirmTimeout;
+    }
+
+    /**
+     * @return minimal number of deleted resources of one collection confirmed by listing the collection
+     */
+    public int getDeleteConfirmBatchThreshold()
+    {
+        return deleteConfirmBatchThreshold;
+    }
+
+    public void setDeleteConfirmBatchThreshold(int deleteConfirmBatchThreshold)
+    {
+        this.deleteConfirmBatchThreshold = deleteConfirmBatchThreshold;
+    }
+
+    /**
+     * @return maximum number of pooled connections opened to a single host
+     */
+    public int getMaxConnectionsPerHost()
+    {
+        return maxConnectionsPerHost;
+    }
+
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost)
+    {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    /**
+     * @return maximum number of pooled connections opened by all WebDAV sessions of this process
+     */
+    public int getMaxTotalConnections()
+    {
+        return maxTotalConnections;
+    }
+
+    public void setMaxTotalConnections(int maxTotalConnections)
+    {
+        this.maxTotalConnections = maxTotalConnections;
+    }
+
+    /**
+     * @return time in milliseconds after which an unused pooled connection is closed
+     */
+    public long getIdleConnectionTimeout()
+    {
+        return idleConnectionTimeout;
+    }
+
+    public void setIdleConnectionTimeout(long idleConnectionTimeout)
+    {
+        this.idleConnectionTimeout = idleConnectionTimeout;
+    }
+
+    /**
+     * @return time in milliseconds between two idle connection evictions
+     */
+    public long getIdleConnectionCheckInterval()
+    {
+        return idleConnectionCheckInterval;
+    }
+
+    public void setIdleConnectionCheckInterval(long idleConnectionCheckInterval)
+    {
+        this.idleConnectionCheckInterval = idleConnectionCheckInterval;
+    }
+
+    /**
+     * @return true if a pooled connection is validated before being reused
+     */
+    public boolean isStaleCheckingEnabled()
+    {
+        return staleCheckingEnabled;
+    }
+
+    public void setStaleCheckingEnabled(boolean staleCheckingEnabled)
+    {
+        this.staleCheckingEnabled = staleCheckingEnabled;
+    }
 }
@@ -1,17 +1,20 @@
 package org.alfresco.webdav;
 
 import static org.alfresco.utility.Utility.checkObjectIsInitialized;
-import static org.alfresco.utility.report.log.Step.STEP;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.alfresco.utility.TasProperties;
 import org.alfresco.utility.Utility;
@@ -26,35 +29,49 @@ import org.alfresco.utility.model.FileModel;
 import org.alfresco.utility.model.FolderModel;
 import org.alfresco.utility.model.SiteModel;
 import org.alfresco.utility.model.UserModel;
+import org.alfresco.webdav.cache.ContentCache;
+import org.alfresco.webdav.cache.ListingCache;
+import org.alfresco.webdav.cleanup.TeardownReport;
+import org.alfresco.webdav.cleanup.TreeTeardown;
 import org.alfresco.webdav.dsl.JmxUtil;
+import org.alfresco.webdav.dsl.PropertySelection;
 import org.alfresco.webdav.dsl.WebDavAssertion;
 import org.alfresco.webdav.dsl.WebDavNetworkDrive;
 import org.alfresco.webdav.dsl.WebDavUtil;
 import org.alfresco.webdav.exception.MappedDriveException;
+import org.alfresco.webdav.http.WebDavConnectionPool;
+import org.alfresco.webdav.http.WebDavRequest;
+import org.alfresco.webdav.http.WebDavTransport;
+import org.alfresco.webdav.listing.CrawlReport;
+import org.alfresco.webdav.listing.DavResource;
+import org.alfresco.webdav.listing.ManifestWriter;
+import org.alfresco.webdav.listing.TreeCrawler;
+import org.alfresco.webdav.metrics.ClientMetrics;
+import org.alfresco.webdav.metrics.JmxSampler;
+import org.alfresco.webdav.metrics.OperationMetrics;
+import org.alfresco.webdav.noderef.NodeRefMode;
+import org.alfresco.webdav.noderef.NodeRefResolver;
+import org.alfresco.webdav.probe.DeletionConfirmer;
+import org.alfresco.webdav.probe.MetadataProbe;
+import org.alfresco.webdav.report.StepReporter;
+import org.alfresco.webdav.session.LockRegistry;
+import org.alfresco.webdav.session.UpdateOutcome;
+import org.alfresco.webdav.session.UpdateResult;
+import org.alfresco.webdav.session.WebDavResult;
+import org.alfresco.webdav.session.WebDavSession;
+import org.alfresco.webdav.transfer.DirectoryUploader;
+import org.alfresco.webdav.transfer.DownloadResult;
+import org.alfresco.webdav.transfer.UploadMode;
+import org.alfresco.webdav.transfer.UploadReport;
+import org.alfresco.webdav.transfer.WebDavDownloader;
 import org.apache.commons.httpclient.Credentials;
-import org.apache.commons.httpclient.HostConfiguration;
 import org.apache.commons.httpclient.HttpClient;
-import org.apache.commons.httpclient.HttpConnectionManager;
-import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
 import org.apache.commons.httpclient.UsernamePasswordCredentials;
-import org.apache.commons.httpclient.auth.AuthScope;
-import org.apache.commons.httpclient.methods.GetMethod;
-import org.apache.commons.httpclient.methods.InputStreamRequestEntity;
-import org.apache.commons.httpclient.methods.RequestEntity;
-import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.apache.commons.lang3.SystemUtils;
 import org.apache.http.client.HttpResponseException;
 import org.apache.jackrabbit.webdav.DavConstants;
 import org.apache.jackrabbit.webdav.DavException;
-import org.apache.jackrabbit.webdav.client.methods.DavMethod;
-import org.apache.jackrabbit.webdav.client.methods.DeleteMethod;
-import org.apache.jackrabbit.webdav.client.methods.LockMethod;
-import org.apache.jackrabbit.webdav.client.methods.MkColMethod;
-import org.apache.jackrabbit.webdav.client.methods.MoveMethod;
-import org.apache.jackrabbit.webdav.client.methods.PropFindMethod;
-import org.apache.jackrabbit.webdav.client.methods.PutMethod;
-import org.apache.jackrabbit.webdav.client.methods.UnLockMethod;
-import org.apache.jackrabbit.webdav.lock.Type;
+import org.apache.jackrabbit.webdav.DavMethods;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.http.HttpStatus;
@@ -71,34 +88,47 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
     @Autowired
     protected WebDavNetworkDrive webDavNetworkDrive;
 
-    private HttpClient client;
+    @Autowired
+    protected WebDavConnectionPool connectionPool;
+
+    @Autowired
+    protected WebDavProperties webDavProperties;
+
+    @Autowired
+    protected StepReporter stepReporter;
+
+    private volatile HttpClient client;
+    private volatile WebDavTransport transport;
+    private volatile WebDavSession session;
+    private LockRegistry lockRegistry;
     public static String STEP_PREFIX = "WebDav:";
     public static String RESPONSE_HEADER_CONTENT_TYPE = "Content-Type";
     public static String RESPONSE_HEADER_CONTENT_DISPOSITION = "Content-Disposition";
     public int status;
-    private String lockToken;
     private boolean overwrite;
+    private UploadMode uploadMode;
+    private Boolean listingCacheEnabled;
+    private ListingCache<List<DavResource>> listingCache;
+    private Boolean contentCacheEnabled;
+    private ContentCache contentCache;
+    private NodeRefMode nodeRefMode;
+    private NodeRefResolver nodeRefResolver;
 
     @Override
     public WebDavWrapper authenticateUser(UserModel userModel) throws Exception
     {
-        STEP(String.format("%s Connect with %s/%s", STEP_PREFIX, userModel.getUsername(), userModel.getPassword()));
-        client = null;
-        HostConfiguration config = new HostConfiguration();
-        config.setHost(tasProperties.getFullServerUrl());
-        HttpConnectionManager manager = new MultiThreadedHttpConnectionManager();
-        HttpConnectionManagerParams params = new HttpConnectionManagerParams();
-        int maxConnections = 20;
-        params.setMaxConnectionsPerHost(config, maxConnections);
-        manager.setParams(params);
-        client = new HttpClient(manager);
+        step("%s Connect with %s", STEP_PREFIX, userModel.getUsername());
         Credentials credentials = new UsernamePasswordCredentials(userModel.getUsername(), userModel.getPassword());
-        client.getState().setCredentials(AuthScope.ANY, credentials);
+        client = connectionPool.createHttpClient(credentials);
+        transport = connectionPool.createTransport(userModel.getUsername(), userModel.getPassword());
+        releaseLocks();
+        session = createSession(transport, userModel.getUsername());
+        invalidateListings();
         setTestUser(userModel);
         return this;
     }
 
-    public synchronized HttpClient getHttpClient()
+    public HttpClient getHttpClient()
     {
         return client;
     }
@@ -106,14 +136,285 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
     @Override
     public WebDavWrapper disconnect() throws Exception
     {
-        client = new HttpClient();
+        client = connectionPool.createHttpClient();
+        transport = connectionPool.createTransport();
+        releaseLocks();
+        session = createSession(transport, null);
+        invalidateListings();
+        closeContentCache();
+        return this;
+    }
+
+    /**
+     * @return the reporter of the steps of all the sessions, configured with webdav.step.level
+     */
+    public StepReporter getStepReporter()
+    {
+        return stepReporter;
+    }
+
+    /**
+     * Report a step with the {@link StepReporter}, which may format it later on its own thread
+     */
+    private void step(String format, Object... args)
+    {
+        stepReporter.step(format, args);
+    }
+
+    /**
+     * @return counters and latencies of the requests sent by all the sessions, by method and status class, or an empty
+     *         map if webdav.metrics.enabled is false
+     */
+    public Map<String, OperationMetrics> getClientMetrics()
+    {
+        ClientMetrics metrics = connectionPool.getMetrics();
+        return metrics == null ? Collections.emptyMap() : metrics.snapshot();
+    }
+
+    /**
+     * @return the HTTP engine executing the requests of the current user
+     */
+    public WebDavTransport getTransport()
+    {
+        return transport;
+    }
+
+    /**
+     * @return the stateless operations of the current user, that many threads can use at once; the fluent methods of
+     *         this wrapper are built on them
+     */
+    public WebDavSession getSession()
+    {
+        return session;
+    }
+
+    /**
+     * Replace the HTTP engine configured with webdav.transport for the current user
+     * 
+     * @param webDavTransport transport already authenticated with the current user
+     * @return
+     */
+    public synchronized WebDavWrapper usingTransport(WebDavTransport webDavTransport)
+    {
+        transport = webDavTransport;
+        releaseLocks();
+        session = createSession(webDavTransport, session != null ? session.getOwner() : null);
+        return this;
+    }
+
+    /**
+     * @return the locks held by the current session, refreshed in the background unless webdav.lock.refresh.enabled
+     *         is false
+     */
+    public synchronized LockRegistry getLockRegistry()
+    {
+        if (lockRegistry == null || lockRegistry.getSession() != session)
+        {
+            releaseLocks();
+            lockRegistry = new LockRegistry(session, Duration.ofSeconds(webDavProperties.getLockTimeout()),
+                    webDavProperties.isLockRefreshEnabled() ? connectionPool.getScheduler() : null);
+        }
+        return lockRegistry;
+    }
+
+    /**
+     * Release the locks of the session being replaced, with its own credentials
+     */
+    private synchronized void releaseLocks()
+    {
+        if (lockRegistry == null)
+            return;
+        lockRegistry.stopRefresh();
+        for (WebDavResult failure : lockRegistry.unlockAll())
+            stepReporter.failure("%s Lock on '%s' could not be released: %d", STEP_PREFIX, failure.getUri(), failure.getStatus());
+        lockRegistry = null;
+    }
+
+    private WebDavSession createSession(WebDavTransport webDavTransport, String owner)
+    {
+        return new WebDavSession(webDavTransport, String.format("%s/alfresco/webdav", tasProperties.getFullServerUrl()), owner);
+    }
+
+    /**
+     * Enable or disable the cache of collection listings for this session (webdav.listing.cache.enabled by default)
+     * 
+     * @param enabled
+     * @return
+     */
+    public synchronized WebDavWrapper usingListingCache(boolean enabled)
+    {
+        listingCacheEnabled = enabled;
+        listingCache = null;
+        return this;
+    }
+
+    /**
+     * @return the listing cache of this session or null if listings are not cached
+     */
+    public synchronized ListingCache<List<DavResource>> getListingCache()
+    {
+        boolean enabled = listingCacheEnabled != null ? listingCacheEnabled : webDavProperties.isListingCacheEnabled();
+        if (!enabled)
+            return null;
+        if (listingCache == null)
+            listingCache = new ListingCache<>(webDavProperties.getListingCacheMaxEntries(), webDavProperties.isListingCacheRevalidate());
+        return listingCache;
+    }
+
+    /**
+     * Enable or disable the cache of downloaded contents for this session (webdav.content.cache.enabled by default)
+     * 
+     * @param enabled
+     * @return
+     */
+    public synchronized WebDavWrapper usingContentCache(boolean enabled)
+    {
+        contentCacheEnabled = enabled;
+        closeContentCache();
+        return this;
+    }
+
+    /**
+     * @return the content cache of this session or null if contents are not cached
+     */
+    public synchronized ContentCache getContentCache()
+    {
+        boolean enabled = contentCacheEnabled != null ? contentCacheEnabled : webDavProperties.isContentCacheEnabled();
+        if (!enabled)
+            return null;
+        if (contentCache == null)
+            contentCache = new ContentCache(webDavProperties.getContentCacheMaxEntries(), webDavProperties.getContentCacheMaxMemoryBytes(),
+                    webDavProperties.getContentCacheSpillThreshold(), webDavProperties.getContentCacheMaxDiskBytes());
+        return contentCache;
+    }
+
+    /**
+     * Delete the cached contents and their spill directory; the cache is created again on next use
+     */
+    private synchronized void closeContentCache()
+    {
+        if (contentCache == null)
+            return;
+        try
+        {
+            contentCache.close();
+        }
+        catch (IOException e)
+        {
+            // the spill files left open by a reader are deleted when the JVM exits
+        }
+        contentCache = null;
+    }
+
+    /**
+     * Forget the cached listings affected by a change of the given resource
+     * 
+     * @param resourcePath path of a created, changed or removed resource
+     */
+    public synchronized void invalidateListings(String resourcePath)
+    {
+        if (listingCache != null)
+            listingCache.invalidate(resourcePath);
+        if (contentCache != null)
+            contentCache.invalidate(resourcePath);
+        if (nodeRefResolver != null)
+            nodeRefResolver.invalidate(resourcePath.replace(getPrefixSpace(), ""));
+    }
+
+    private synchronized void invalidateListings()
+    {
+        if (listingCache != null)
+            listingCache.invalidateAll();
+        if (contentCache != null)
+            contentCache.invalidateAll();
+    }
+
+    /**
+     * Choose when the node reference of created content is read for this session (webdav.nodeRef.mode by default)
+     * 
+     * @param mode
+     * @return
+     */
+    public synchronized WebDavWrapper usingNodeRefMode(NodeRefMode mode)
+    {
+        nodeRefMode = mode;
         return this;
     }
 
+    public synchronized NodeRefMode getNodeRefMode()
+    {
+        if (nodeRefMode != null)
+            return nodeRefMode;
+        return NodeRefMode.valueOf(webDavProperties.getNodeRefMode());
+    }
+
+    /**
+     * @return the node reference of the content, read on first access when it was created in
+     *         {@link NodeRefMode#DEFERRED} mode
+     */
+    public String getNodeRef(ContentModel model)
+    {
+        if (model.getNodeRef() != null)
+            return model.getNodeRef();
+        return getNodeRefResolver().resolve(getTestUser(), model);
+    }
+
+    /**
+     * Read in parallel the node references of all the content created in {@link NodeRefMode#DEFERRED} mode
+     * 
+     * @return
+     */
+    public WebDavWrapper resolveNodeRefs()
+    {
+        int resolved = getNodeRefResolver().resolvePending();
+        step("%s Resolved the node references of %d created items", STEP_PREFIX, resolved);
+        return this;
+    }
+
+    /**
+     * Read in parallel the node references of the given models
+     * 
+     * @param models content with a CMIS location
+     * @return
+     */
+    public WebDavWrapper resolveNodeRefs(ContentModel... models)
+    {
+        step("%s Resolve the node references of %d items", STEP_PREFIX, models.length);
+        getNodeRefResolver().resolveAll(getTestUser(), Arrays.asList(models));
+        return this;
+    }
+
+    public synchronized NodeRefResolver getNodeRefResolver()
+    {
+        if (nodeRefResolver == null)
+            nodeRefResolver = new NodeRefResolver(contentService, connectionPool.getAsyncExecutor(), webDavProperties.getNodeRefCacheMaxEntries());
+        return nodeRefResolver;
+    }
+
+    /**
+     * Read the node reference of created content now or later, depending on the node reference mode
+     * 
+     * @param model content with its CMIS location set
+     */
+    private void resolveCreated(ContentModel model)
+    {
+        switch (getNodeRefMode())
+        {
+            case EAGER:
+                getNodeRefResolver().resolve(getTestUser(), model);
+                break;
+            case DEFERRED:
+                getNodeRefResolver().defer(getTestUser(), model);
+                break;
+            default:
+                break;
+        }
+    }
+
     @Override
     public List<FileModel> getFiles() throws Exception
     {
-        STEP(String.format("%s Get files from '%s'", WebDavWrapper.STEP_PREFIX, getCurrentSpace()));
+        step("%s Get files from '%s'", WebDavWrapper.STEP_PREFIX, getCurrentSpace());
         return withWebDavUtil().getFiles();
     }
 
@@ -126,7 +427,7 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
     @Override
     public WebDavWrapper createFolder(FolderModel folderModel) throws Exception
     {
-        STEP(String.format("%s Create folder '%s'", STEP_PREFIX, folderModel.getName()));
+        step("%s Create folder '%s'", STEP_PREFIX, folderModel.getName());
         String webDavFolder = buildPath(getCurrentSpace(), folderModel.getName());
         if (isActionExecutedOnMappedDrive())
         {
@@ -136,11 +437,11 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
             {
                 setLastResource(currentLocation);
                 webDavNetworkDrive.inOSEnvironment().createFolder(buildPath(getLastResourceWithoutPrefix(), folderModel.getName()));
+                invalidateListings(webDavFolder);
                 setLastResource(webDavFolder);
-                folderModel.setNodeRef(contentService
-                        .getNodeRefByPath(getTestUser().getUsername(), getTestUser().getPassword(), getLastResourceWithoutPrefix()));
                 folderModel.setCmisLocation(getLastResourceWithoutPrefix());
                 folderModel.setProtocolLocation(webDavFolder);
+                resolveCreated(folderModel);
             }
             else
                 throw new FileAlreadyExistsException(webDavFolder);
@@ -149,16 +450,14 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
         {
             String webdavFolderPath = withWebDavUtil().checkForWhiteSpace(webDavFolder);
             checkObjectIsInitialized(webdavFolderPath, "new folder");
-            MkColMethod mkdir = new MkColMethod(webdavFolderPath);
-            status = getHttpClient().executeMethod(mkdir);
-            mkdir.releaseConnection();
+            status = withWebDavUtil().execute(new WebDavRequest(DavMethods.METHOD_MKCOL, webdavFolderPath));
+            invalidateListings(webDavFolder);
             setLastResource(webDavFolder);
             if (HttpStatus.CREATED.value() == status)
             {
-                folderModel.setNodeRef(contentService
-                        .getNodeRefByPath(getTestUser().getUsername(), getTestUser().getPassword(), getLastResourceWithoutPrefix()));
                 folderModel.setCmisLocation(getLastResourceWithoutPrefix());
                 folderModel.setProtocolLocation(webDavFolder);
+                resolveCreated(folderModel);
             }
         }
         return this;
@@ -167,7 +466,7 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
     @Override
     public List<FolderModel> getFolders() throws Exception
     {
-        STEP(String.format("%s Get folders from '%s'", STEP_PREFIX, getCurrentSpace()));
+        step("%s Get folders from '%s'", STEP_PREFIX, getCurrentSpace());
         return withWebDavUtil().getFolders();
     }
 
@@ -198,22 +497,21 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
     {
         try
         {
-            STEP(String.format("%s Navigate to site '%s/documentLibrary/'", STEP_PREFIX, siteId));
+            step("%s Navigate to site '%s/documentLibrary/'", STEP_PREFIX, siteId);
             checkObjectIsInitialized(siteId, "SiteID");
             if (isActionExecutedOnMappedDrive())
                 setCurrentSpace(buildSiteDocumentLibraryPath(siteId));
             else
             {
                 String path = buildSiteDocumentLibraryPath(siteId);
-                DavMethod pFind = new PropFindMethod(path, DavConstants.PROPFIND_ALL_PROP, DavConstants.DEPTH_1);
-                status = getHttpClient().executeMethod(pFind);
-                pFind.getResponseBodyAsMultiStatus();
-                pFind.releaseConnection();
+                withWebDavUtil().propFind(path, PropertySelection.resourceType(), DavConstants.DEPTH_0);
+                status = HttpStatus.MULTI_STATUS.value();
                 setCurrentSpace(path);
             }
         }
         catch (DavException e)
         {
+            status = e.getErrorCode();
             throw new TestStepException("Navigating to site should completed successfully", "Site was not found");
         }
         catch (Exception e)
@@ -232,7 +530,7 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
     @Override
     public WebDavWrapper usingUserHome(String username) throws Exception
     {
-        STEP(String.format("%s Navigate to 'UserHomes/%s/'", STEP_PREFIX, username));
+        step("%s Navigate to 'UserHomes/%s/'", STEP_PREFIX, username);
         checkObjectIsInitialized(username, "username");
         setCurrentSpace(buildUserHomePath(username, ""));
         return this;
@@ -241,7 +539,7 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
     @Override
     public WebDavWrapper usingUserHome() throws Exception
     {
-        STEP(String.format("%s Navigate to 'UserHomes/'", STEP_PREFIX));
+        step("%s Navigate to 'UserHomes/'", STEP_PREFIX);
         checkObjectIsInitialized(getTestUser().getUsername(), "username");
         setCurrentSpace(buildUserHomePath(getTestUser().getUsername(), ""));
         return this;
@@ -250,7 +548,7 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
     @Override
     public WebDavWrapper usingRoot() throws Exception
     {
-        STEP(String.format("%s Navigate to root ./", STEP_PREFIX));
+        step("%s Navigate to root ./", STEP_PREFIX);
         setCurrentSpace(getRootPath());
         return this;
     }
@@ -283,7 +581,7 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
     public WebDavWrapper usingResource(ContentModel model) throws Exception
     {
         setLastContentModel(model);
-        STEP(String.format("%s Navigate to '%s'", STEP_PREFIX, model.getName()));
+        step("%s Navigate to '%s'", STEP_PREFIX, model.getName());
         checkObjectIsInitialized(model, "contentName");
         if (model.getCmisLocation().equals(model.getName()))
         {
@@ -303,18 +601,21 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
         String parent = Utility.convertBackslashToSlash(sourceFile.getParent());
         if (parent.equals("/"))
             parent = "";
-        STEP(String.format("%s rename '%s' to '%s'", STEP_PREFIX, sourceFile.getName(), newName));
+        step("%s rename '%s' to '%s'", STEP_PREFIX, sourceFile.getName(), newName);
         if (isActionExecutedOnMappedDrive())
             webDavNetworkDrive.inOSEnvironment().renameContent(webDavSource, buildPath(parent, newName));
         else
         {
             String destinationNoSpaces = withWebDavUtil().checkForWhiteSpace(buildPath(getPrefixSpace(), parent, newName));
             webDavSource = withWebDavUtil().checkForWhiteSpace(buildPath(getPrefixSpace(), webDavSource));
-            MoveMethod rename = new MoveMethod(webDavSource, destinationNoSpaces, false);
-            status = getHttpClient().executeMethod(rename);
-            rename.releaseConnection();
+            WebDavRequest rename = new WebDavRequest(DavMethods.METHOD_MOVE, webDavSource)
+                    .header(DavConstants.HEADER_DESTINATION, destinationNoSpaces)
+                    .header(DavConstants.HEADER_OVERWRITE, "F");
+            status = withWebDavUtil().execute(rename);
         }
+        invalidateListings(getLastResource());
         setLastResource(buildPath(getPrefixSpace(), parent, newName));
+        invalidateListings(getLastResource());
         getLastContentModel().setCmisLocation(buildPath(parent, newName));
         return this;
     }
@@ -323,7 +624,7 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
     public WebDavWrapper update(String content) throws Exception
     {
         String webDavResource = withWebDavUtil().checkForWhiteSpace(getLastResource());
-        STEP(String.format("%s Update file '%s' with '%s'", STEP_PREFIX, webDavResource, content));
+        step("%s Update file '%s' with '%s'", STEP_PREFIX, webDavResource, content);
         checkObjectIsInitialized(webDavResource, "updating resource");
         if (isActionExecutedOnMappedDrive())
         {
@@ -332,56 +633,68 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
             else
                 throw new FileNotFoundException();
         }
-        else
-        {
-            if (!withWebDavUtil().contentExists())
-                return this;
+        else if (!isUpdated(getSession().update(webDavResource, content.getBytes(), null, getLockRegistry().getToken(webDavResource))))
+            return this;
+        invalidateListings(getLastResource());
+        return this;
+    }
 
-            PutMethod edit = new PutMethod(webDavResource);
-            ByteArrayInputStream byteArray = new ByteArrayInputStream(content.getBytes());
-            RequestEntity entity = new InputStreamRequestEntity(byteArray);
-            edit.setRequestEntity(entity);
-            status = getHttpClient().executeMethod(edit);
-            byteArray.close();
-            edit.releaseConnection();
-        }
+    /**
+     * Update the last file only if it was not changed since its ETag was read, with the token of the lock the session
+     * holds on it, if any. Without an expected ETag the file only has to exist; it is never created.
+     * 
+     * @param content
+     * @param expectedEtag
+     * @return
+     * @throws Exception
+     */
+    public WebDavWrapper update(String content, String expectedEtag) throws Exception
+    {
+        String webDavResource = withWebDavUtil().checkForWhiteSpace(getLastResource());
+        step("%s Update file '%s' with '%s' if its ETag is %s", STEP_PREFIX, webDavResource, content, expectedEtag);
+        if (isUpdated(getSession().update(webDavResource, content.getBytes(), expectedEtag, getLockRegistry().getToken(webDavResource))))
+            invalidateListings(getLastResource());
         return this;
     }
 
+    /**
+     * Keep the status of a conditional update, reported as 404 when the file does not exist, and report a failed one
+     */
+    private boolean isUpdated(UpdateResult result)
+    {
+        status = result.getOutcome() == UpdateOutcome.NOT_FOUND ? HttpStatus.NOT_FOUND.value() : result.getStatus();
+        if (!result.isUpdated())
+            stepReporter.failure("%s Update of '%s' failed: %s", STEP_PREFIX, result.getResult().getUri(), result.getOutcome());
+        return result.isUpdated();
+    }
+
     @Override
     public WebDavWrapper delete() throws Exception
     {
         String webDavContent = withWebDavUtil().checkForWhiteSpace(getLastResource());
-        STEP(String.format("%s Delete '%s'", STEP_PREFIX, webDavContent));
+        step("%s Delete '%s'", STEP_PREFIX, webDavContent);
         checkObjectIsInitialized(webDavContent, "delete folder");
+        invalidateListings(getLastResource());
         if (isActionExecutedOnMappedDrive())
         {
             webDavNetworkDrive.inOSEnvironment().deleteContent(getLastResourceWithoutPrefix());
-            dataContent.waitUntilContentIsDeleted(getLastResourceWithoutPrefix());
+            waitUntilDeleted(getSession().getUri(getLastResourceWithoutPrefix().replace('\\', '/')));
         }
         else
         {
-            DeleteMethod delete = new DeleteMethod(webDavContent);
-            status = getHttpClient().executeMethod(delete);
-            delete.releaseConnection();
-            try
-            {
-                DavMethod pFind = new PropFindMethod(webDavContent, DavConstants.PROPFIND_ALL_PROP, DavConstants.DEPTH_1);
-                getHttpClient().executeMethod(pFind);
-                pFind.getResponseBodyAsMultiStatus();
-                pFind.releaseConnection();
-            }
-            catch (DavException ex)
-            {
-                if (status == HttpStatus.OK.value())
-                {
-                    dataContent.waitUntilContentIsDeleted(getLastResourceWithoutPrefix());
-                }
-            }
+            status = withWebDavUtil().execute(new WebDavRequest(DavMethods.METHOD_DELETE, webDavContent));
+            if (status / 100 == 2)
+                waitUntilDeleted(webDavContent);
         }
         return this;
     }
 
+    private void waitUntilDeleted(String uri)
+    {
+        if (!withDeletionConfirmer().confirm(uri).join())
+            stepReporter.failure("%s '%s' is still present %d ms after its deletion", STEP_PREFIX, uri, webDavProperties.getDeleteConfirmTimeout());
+    }
+
     @Override
     public WebDavWrapper copyTo(ContentModel destinationModel) throws Exception
     {
@@ -392,6 +705,7 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
                 webDavNetworkDrive.inOSEnvironment().copyFolder(getLastResourceWithoutPrefix(), destinationModel.getCmisLocation());
             else
                 webDavNetworkDrive.inOSEnvironment().copyFile(getLastResourceWithoutPrefix(), destinationModel.getCmisLocation());
+            invalidateListings(buildPath(getPrefixSpace(), destinationModel.getCmisLocation(), file.getName()));
             return this;
         }
         else
@@ -399,7 +713,8 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
     }
 
     /**
-     * Upload a local file to webdav location
+     * Upload a local file to webdav location, using the mode set with {@link #usingUploadMode(UploadMode)}
+     * (webdav.upload.mode by default)
      * 
      * @param fileToUpload a local file stored on the disk
      * @return
@@ -409,7 +724,7 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
     {
         String webDavResource = withWebDavUtil().checkForWhiteSpace(getLastResource());
         checkObjectIsInitialized(webDavResource, "uploading resource");
-        STEP(String.format("%s Upload file '%s' to '%s'", STEP_PREFIX, fileToUpload.getAbsolutePath(), webDavResource));
+        step("%s Upload file '%s' to '%s'", STEP_PREFIX, fileToUpload.getAbsolutePath(), webDavResource);
         
         if (isActionExecutedOnMappedDrive())
         {
@@ -417,9 +732,26 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
         }
         String destinationRelativePath = buildPath(getLastResource(), fileToUpload.getName());
         setLastResource(destinationRelativePath);
+        invalidateListings(destinationRelativePath);
+        String destination = withWebDavUtil().checkForWhiteSpace(destinationRelativePath);
+        if (getUploadMode() == UploadMode.OFFICE)
+            return uploadFileWithLock(fileToUpload, destination);
+
+        status = withWebDavUtil().execute(createUploadRequest(fileToUpload, destination));
+        if (status != HttpStatus.CREATED.value() && status != HttpStatus.NO_CONTENT.value())
+        {
+            throw new DavException(status, String.format("Error uploading file %s. WebDAV PUT method failed with code %d.", fileToUpload.getAbsolutePath(), status));
+        }
+        return this;
+    }
+
+    /**
+     * Upload a local file the way office applications do: empty PUT, LOCK, PUT with the content, UNLOCK
+     */
+    private WebDavWrapper uploadFileWithLock(File fileToUpload, String destination) throws Exception
+    {
         // PUT
-        PutMethod uploadAction = new PutMethod(destinationRelativePath);
-        status = getHttpClient().executeMethod(uploadAction);
+        status = withWebDavUtil().execute(new WebDavRequest(DavMethods.METHOD_PUT, destination));
         if (status != HttpStatus.CREATED.value())
         {
             throw new RuntimeException(String.format("Error uploading file %s. WebDAV PUT 1 method failed with code %d.", fileToUpload.getAbsolutePath(), status));
@@ -433,11 +765,14 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
         }
 
         // PUT
-        uploadAction = new PutMethod(destinationRelativePath);
-        RequestEntity requestEntity = new InputStreamRequestEntity(new FileInputStream(fileToUpload));
-        uploadAction.setRequestEntity(requestEntity);
-        uploadAction.setRequestHeader("If", String.format("(<%s>)", lockToken));
-        status = getHttpClient().executeMethod(uploadAction);
+        WebDavRequest uploadAction = createUploadRequest(fileToUpload, destination);
+        String lockToken = getLockRegistry().getToken(destination);
+        if (lockToken == null)
+        {
+            throw new DavException(status, String.format("Error uploading file %s. WebDAV LOCK method returned no lock token.", fileToUpload.getAbsolutePath()));
+        }
+        uploadAction.header("If", String.format("(<%s>)", lockToken));
+        status = withWebDavUtil().execute(uploadAction);
         if (status != HttpStatus.NO_CONTENT.value())
         {
             throw new DavException(status, String.format("Error uploading file %s. WebDAV PUT 2 method failed with code %d.", fileToUpload.getAbsolutePath(), status));
@@ -452,6 +787,130 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
         return this;
     }
 
+    private WebDavRequest createUploadRequest(File fileToUpload, String destination)
+    {
+        WebDavRequest put = new WebDavRequest(DavMethods.METHOD_PUT, destination).body(fileToUpload, null);
+        if (webDavProperties.isUploadExpectContinue())
+            put.header("Expect", "100-continue");
+        return put;
+    }
+
+    /**
+     * Upload a local folder, with all its content, in the current space using webdav.upload.concurrency parallel requests
+     * 
+     * @param localRoot local folder
+     * @return the result of each MKCOL and PUT
+     * @throws Exception
+     */
+    public UploadReport uploadDirectory(Path localRoot) throws Exception
+    {
+        return uploadDirectory(localRoot, webDavProperties.getUploadConcurrency());
+    }
+
+    /**
+     * Upload a local folder, with all its content, in the current space
+     * 
+     * @param localRoot local folder
+     * @param concurrency maximal number of requests in flight
+     * @return the result of each MKCOL and PUT
+     * @throws Exception
+     */
+    public UploadReport uploadDirectory(Path localRoot, int concurrency) throws Exception
+    {
+        String webDavParent = withWebDavUtil().checkForWhiteSpace(getCurrentSpace());
+        checkObjectIsInitialized(webDavParent, "uploading destination");
+        step("%s Upload folder '%s' to '%s' with %d parallel requests", STEP_PREFIX, localRoot.toAbsolutePath(), getCurrentSpace(), concurrency);
+        if (isActionExecutedOnMappedDrive())
+        {
+            throw new MappedDriveException("Real WebDav upload action CANNOT be executed on a mapped drive.");
+        }
+        UploadReport report = new DirectoryUploader(getTransport(), concurrency, webDavProperties.isUploadExpectContinue()).upload(localRoot, webDavParent);
+        setLastResource(buildPath(getCurrentSpace(), localRoot.getFileName().toString()));
+        invalidateListings(getLastResource());
+        return report;
+    }
+
+    /**
+     * Crawl the current space and all its descendants in parallel, writing a manifest of every resource
+     * 
+     * @param manifestFile manifest written with {@link ManifestWriter}, compressed if its name ends with ".gz"
+     * @return
+     * @throws Exception
+     */
+    public CrawlReport crawl(Path manifestFile) throws Exception
+    {
+        String webDavRoot = withWebDavUtil().checkForWhiteSpace(getCurrentSpace());
+        checkObjectIsInitialized(webDavRoot, "crawled space");
+        step("%s Crawl '%s' into manifest '%s'", STEP_PREFIX, getCurrentSpace(), manifestFile.toAbsolutePath());
+        if (isActionExecutedOnMappedDrive())
+        {
+            throw new MappedDriveException("Real WebDav crawl action CANNOT be executed on a mapped drive.");
+        }
+        try (ManifestWriter manifest = new ManifestWriter(manifestFile))
+        {
+            return withCrawler().crawl(webDavRoot, manifest);
+        }
+    }
+
+    /**
+     * @return tree crawler using the transport of the current user
+     */
+    public TreeCrawler withCrawler()
+    {
+        return new TreeCrawler(getTransport(), webDavProperties.getCrawlConcurrency());
+    }
+
+    /**
+     * Delete the current space and all its content with webdav.teardown.concurrency parallel requests
+     * 
+     * @param keepRoot true to only delete the content of the space
+     * @return what was deleted and what could not be
+     * @throws Exception
+     */
+    public TeardownReport teardown(boolean keepRoot) throws Exception
+    {
+        String webDavRoot = withWebDavUtil().checkForWhiteSpace(getCurrentSpace());
+        checkObjectIsInitialized(webDavRoot, "teardown space");
+        step("%s Tear down '%s'%s", STEP_PREFIX, getCurrentSpace(), keepRoot ? " content" : "");
+        if (isActionExecutedOnMappedDrive())
+        {
+            throw new MappedDriveException("Real WebDav teardown action CANNOT be executed on a mapped drive.");
+        }
+        TeardownReport report = withTeardown().teardown(webDavRoot, keepRoot);
+        invalidateListings(getCurrentSpace());
+        if (!report.isSuccessful())
+            stepReporter.failure("%s Tear down of '%s' left %d resources: %s", STEP_PREFIX, getCurrentSpace(), report.getFailures().size(),
+                    report.getFailures());
+        return report;
+    }
+
+    /**
+     * @return tree teardown using the transport of the current user
+     */
+    public TreeTeardown withTeardown()
+    {
+        return new TreeTeardown(getTransport(), webDavProperties.getTeardownConcurrency(), webDavProperties.isTeardownDepthInfinity());
+    }
+
+    /**
+     * Set how {@link #uploadFile(File)} sends the local files of this session
+     * 
+     * @param mode
+     * @return
+     */
+    public WebDavWrapper usingUploadMode(UploadMode mode)
+    {
+        uploadMode = mode;
+        return this;
+    }
+
+    public UploadMode getUploadMode()
+    {
+        if (uploadMode == null)
+            return UploadMode.valueOf(webDavProperties.getUploadMode());
+        return uploadMode;
+    }
+
     @Override
     public WebDavWrapper moveTo(ContentModel destinationModel) throws Exception
     {
@@ -470,7 +929,9 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
                 destination = destinationModel.getCmisLocation() + "." + fileExtension;
                 webDavNetworkDrive.inOSEnvironment().moveFile(getLastResourceWithoutPrefix(), destination);
             }
+            invalidateListings(getLastResource());
             setLastResource(buildPath(getPrefixSpace(), destination));
+            invalidateListings(getLastResource());
             return this;
         }
         else
@@ -492,11 +953,12 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
     @Override
     public WebDavWrapper createFile(FileModel fileModel) throws Exception
     {
-        STEP(String.format("%s Create file '%s'", STEP_PREFIX, fileModel.getName()));
+        step("%s Create file '%s'", STEP_PREFIX, fileModel.getName());
         String webDavFile = buildPath(getCurrentSpace(), fileModel.getName());
-        FileInputStream fis = new FileInputStream(withWebDavUtil().setNewFile(fileModel));
+        File newFile = withWebDavUtil().setNewFile(fileModel);
         if (isActionExecutedOnMappedDrive())
         {
+            FileInputStream fis = new FileInputStream(newFile);
             String currentLocation = getLastResource();
             setLastResource(webDavFile);
             if (!withWebDavUtil().contentExists())
@@ -507,30 +969,28 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
                 else
                     webDavNetworkDrive.inOSEnvironment().createFile(buildPath(getLastResourceWithoutPrefix(), fileModel.getName()));              
                 setLastResource(webDavFile);
-                fileModel.setNodeRef(contentService.getNodeRefByPath(getTestUser().getUsername(), getTestUser().getPassword(), getLastResourceWithoutPrefix()));
+                invalidateListings(webDavFile);
                 fileModel.setCmisLocation(getLastResourceWithoutPrefix());
                 fileModel.setProtocolLocation(webDavFile);
+                resolveCreated(fileModel);
             }
            
             else
                 throw new FileAlreadyExistsException(webDavFile);
+            fis.close();
         }
         else
         {
             String webDavFilePath = withWebDavUtil().checkForWhiteSpace(webDavFile);
             checkObjectIsInitialized(webDavFilePath, "create file");
-            PutMethod put = new PutMethod(webDavFilePath);
-            RequestEntity entity = new InputStreamRequestEntity(fis);
-            put.setRequestEntity(entity);
-            status = getHttpClient().executeMethod(put);
-            put.releaseConnection();
-            fis.close();
+            status = withWebDavUtil().execute(new WebDavRequest(DavMethods.METHOD_PUT, webDavFilePath).body(newFile, null));
+            invalidateListings(webDavFile);
             setLastResource(webDavFile);
             if (HttpStatus.CREATED.value() == status)
             {
                 fileModel.setCmisLocation(getLastResourceWithoutPrefix());
-                fileModel.setNodeRef(contentService.getNodeRefByPath(getTestUser().getUsername(), getTestUser().getPassword(), getLastResourceWithoutPrefix()));
                 fileModel.setProtocolLocation(webDavFile);
+                resolveCreated(fileModel);
             }
         }
         return this;
@@ -553,11 +1013,51 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
         return new JmxUtil(this, jmxBuilder.getJmxClient());
     }
 
+    /**
+     * @return a sampler of the server MBeans configured with webdav.jmx.sampler.*, aligned with the client metrics;
+     *         start it before the measured run and close it after
+     */
+    public JmxSampler withJmxSampler()
+    {
+        JmxSampler sampler = new JmxSampler(jmxBuilder.getJmxClient(), connectionPool.getMetrics(),
+                Duration.ofMillis(webDavProperties.getJmxSamplerInterval()));
+        if (webDavProperties.getJmxSamplerAttributes().trim().isEmpty())
+            return sampler.withDefaultAttributes();
+        return sampler.withAttributes(webDavProperties.getJmxSamplerAttributes());
+    }
+
     public WebDavUtil withWebDavUtil()
     {
         return new WebDavUtil(this);
     }
 
+    /**
+     * @return download engine using the transport of the current user
+     */
+    public WebDavDownloader withDownloader()
+    {
+        return new WebDavDownloader(getTransport(), webDavProperties.getDownloadBufferSize(), webDavProperties.getDownloadSegmentThreshold(),
+                webDavProperties.getDownloadSegments()).withContentCache(getContentCache());
+    }
+
+    /**
+     * @return confirmation of the deletions of the current user, configured with the webdav.delete.confirm properties
+     */
+    public DeletionConfirmer withDeletionConfirmer()
+    {
+        return new DeletionConfirmer(getTransport(), connectionPool.getScheduler(), Duration.ofMillis(webDavProperties.getDeleteConfirmInitialDelay()),
+                Duration.ofMillis(webDavProperties.getDeleteConfirmMaxDelay()), Duration.ofMillis(webDavProperties.getDeleteConfirmTimeout()),
+                webDavProperties.getDeleteConfirmBatchThreshold());
+    }
+
+    /**
+     * @return metadata probe using the transport of the current user
+     */
+    public MetadataProbe withProbe()
+    {
+        return new MetadataProbe(getTransport(), webDavProperties.getProbeConcurrency());
+    }
+
     /**
      * Download the last file resource in target folder. File is deleted after execution.
      * 
@@ -566,71 +1066,65 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
      */
     public WebDavWrapper download() throws Exception
     {
-    	GetMethod getFile = getLastFileResource();
-        status = getFileStatus(getFile);
         File responseFile = new File(System.getProperty("user.dir") + File.separator + "target" + File.separator + withWebDavUtil().getLastResourceName());
         responseFile.deleteOnExit();
-        OutputStream outputStream = new FileOutputStream(responseFile);
-        if (getFile.getResponseContentLength() > 0)
-        {
-            InputStream inputStream = getFile.getResponseBodyAsStream();
-            byte buf[] = new byte[1024];
-            int len;
-            while ((len = inputStream.read(buf)) > 0)
-            {
-                outputStream.write(buf, 0, len);
-            }
-            inputStream.close();
-        }
-        outputStream.close();
-        getFile.releaseConnection();
+        DownloadResult result = withDownloader().download(withWebDavUtil().checkForWhiteSpace(getLastResource()), responseFile.toPath());
+        status = result.getStatus();
         return this;
     }
-    
+
     /**
-     * Get the response header value for a certain header.
-     * @param headerName
+     * Download the last file resource in target folder, resuming the transfer when it breaks.
+     * An interrupted download is kept as a ".part" file that the next call continues.
+     * 
+     * @param maxAttempts maximal number of GET requests
      * @return
      * @throws Exception
      */
-    public String getResponseHeaderValue(String headerName) throws Exception
+    public WebDavWrapper downloadResumable(int maxAttempts) throws Exception
     {
-    	GetMethod getFile = getLastFileResource();
-        status = getFileStatus(getFile);
-        if (getFile.getResponseHeader(headerName) != null)
-        {
-        	String value = getFile.getResponseHeader(headerName).getValue();
-        	getFile.releaseConnection();
-        	return value;
-        }
-        else
-        {
-        	throw new HttpResponseException(status, "Response status is " + status + " but the header is missing");
-        }
-        
+        step("%s Download '%s' in at most %d attempts", STEP_PREFIX, getLastResource(), maxAttempts);
+        File responseFile = new File(System.getProperty("user.dir") + File.separator + "target" + File.separator + withWebDavUtil().getLastResourceName());
+        responseFile.deleteOnExit();
+        DownloadResult result = withDownloader().downloadResumable(withWebDavUtil().checkForWhiteSpace(getLastResource()), responseFile.toPath(), maxAttempts);
+        status = result.getStatus();
+        return this;
     }
-    
+
     /**
-     * Get the last file resource request status from target folder.
-     * @param getFile
+     * Download the last file resource into the given channel
+     * 
+     * @param target channel receiving the content, left open
      * @return
      * @throws Exception
      */
-    private int getFileStatus(GetMethod getFile) throws Exception
+    public WebDavWrapper downloadTo(WritableByteChannel target) throws Exception
     {
-        return getHttpClient().executeMethod(getFile);
+        step("%s Download '%s'", STEP_PREFIX, getLastResource());
+        DownloadResult result = withDownloader().download(withWebDavUtil().checkForWhiteSpace(getLastResource()), target);
+        status = result.getStatus();
+        return this;
     }
-    
+
     /**
-     * Get the last file resource in target folder.
-     * 
+     * Get the response header value for a certain header.
+     * @param headerName
      * @return
      * @throws Exception
      */
-    private GetMethod getLastFileResource() throws Exception
+    public String getResponseHeaderValue(String headerName) throws Exception
     {
-        GetMethod getFile = new GetMethod(withWebDavUtil().checkForWhiteSpace(getLastResource()));
-        return getFile;
+        WebDavResult result = getSession().execute(new WebDavRequest(DavMethods.METHOD_GET, getSession().getUri(getLastResource())));
+        status = result.getStatus();
+        if (result.getHeader(headerName) != null)
+        {
+        	return result.getHeader(headerName);
+        }
+        else
+        {
+        	throw new HttpResponseException(status, "Response status is " + status + " but the header is missing");
+        }
+        
     }
     
     /**
@@ -641,13 +1135,9 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
      */
     public WebDavWrapper lock() throws Exception
     {
-        lockToken = "";
         String lastResource = withWebDavUtil().checkForWhiteSpace(getLastResource());
-        STEP(String.format("%s Lock file: %s", STEP_PREFIX, lastResource));
-        LockMethod lockMethod = new LockMethod(lastResource, org.apache.jackrabbit.webdav.lock.Scope.EXCLUSIVE, Type.WRITE, getCurrentUser().getUsername(),
-                600000l, true);
-        status = getHttpClient().executeMethod(lockMethod);
-        lockToken = lockMethod.getLockToken();
+        step("%s Lock file: %s", STEP_PREFIX, lastResource);
+        status = getLockRegistry().lock(lastResource).getStatus();
         return this;
     }
 
@@ -660,24 +1150,15 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
     public WebDavWrapper unlock() throws Exception
     {
         String lastResource = withWebDavUtil().checkForWhiteSpace(getLastResource());
-        if (!withWebDavUtil().isLocked())
-        {
-            lockToken = "";
-        }
-        STEP(String.format("%s Unlock file: %s", STEP_PREFIX, lastResource));
-        UnLockMethod unlock = new UnLockMethod(lastResource, lockToken);
-        status = getHttpClient().executeMethod(unlock);
-        if (status == HttpStatus.NO_CONTENT.value())
-        {
-            lockToken = "";
-        }
+        step("%s Unlock file: %s", STEP_PREFIX, lastResource);
+        status = getLockRegistry().unlock(lastResource).getStatus();
         return this;
     }
 
     @Override
     public WebDavWrapper usingNetworkDrive() throws Exception
     {
-        STEP(String.format("%s map a drive", STEP_PREFIX));
+        step("%s map a drive", STEP_PREFIX);
         if (!webDavNetworkDrive.inOSEnvironment().isNetworkDriveMounted())
             webDavNetworkDrive.inOSEnvironment().mount();
 
@@ -688,7 +1169,7 @@ public class WebDavWrapper extends DSLProtocolWithNetworkDrive<WebDavWrapper> im
 
     public WebDavWrapper unmountNetworkDrive() throws Exception
     {
-        STEP(String.format("WebDAV: unmount drive"));
+        step("WebDAV: unmount drive");
 
         if (webDavNetworkDrive.inOSEnvironment().isNetworkDriveMounted())
         {
@@ -0,0 +1,315 @@
+package org.alfresco.webdav.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Per session cache of file contents, keyed by resource path and validated by ETag, bounded with LRU eviction.
+ * <p>
+ * Small contents are kept in memory; contents bigger than the spill threshold, or of unknown length, are written to a
+ * temporary directory, deleted by {@link #close()} or at the latest when the JVM exits. A content that alone exceeds
+ * the memory or disk bound is returned to the caller without being cached. A cached content is only served after the
+ * server confirmed its ETag with a 304 answer to a GET with If-None-Match, see {@link org.alfresco.webdav.transfer.WebDavDownloader#withContentCache(ContentCache)}.
+ */
+public class ContentCache implements Closeable
+{
+    private final int maxEntries;
+    private final long maxMemoryBytes;
+    private final long spillThreshold;
+    private final long maxDiskBytes;
+    private final Map<String, Content> contents = new LinkedHashMap<>(16, 0.75f, true);
+    private Path spillDirectory;
+    private Thread spillCleanup;
+    private long memoryBytes;
+    private long diskBytes;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxEntries maximal number of contents kept in the cache
+     * @param maxMemoryBytes maximal size of the contents kept in memory
+     * @param spillThreshold size in bytes above which a content is written to disk
+     * @param maxDiskBytes maximal size of the contents written to disk
+     */
+    public ContentCache(int maxEntries, long maxMemoryBytes, long spillThreshold, long maxDiskBytes)
+    {
+        this.maxEntries = maxEntries;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.spillThreshold = spillThreshold;
+        this.maxDiskBytes = maxDiskBytes;
+    }
+
+    /**
+     * @param resourcePath
+     * @return ETag of the cached content, to send in If-None-Match, or null if the resource is not cached
+     */
+    public synchronized String getETag(String resourcePath)
+    {
+        Content content = contents.get(normalize(resourcePath));
+        return content == null ? null : content.etag;
+    }
+
+    /**
+     * Read a cached content that the server reported as not modified
+     *
+     * @param resourcePath
+     * @param etag ETag confirmed by the server
+     * @return the content, or null if it was evicted or replaced since the ETag was read
+     * @throws IOException
+     */
+    public synchronized InputStream open(String resourcePath, String etag) throws IOException
+    {
+        Content content = contents.get(normalize(resourcePath));
+        if (content == null || !content.etag.equals(etag))
+            return null;
+        hits++;
+        return content.open();
+    }
+
+    /**
+     * Store a downloaded content, replacing the previous one. The body is read without holding the cache, so parallel
+     * downloads are not serialized.
+     *
+     * @param resourcePath
+     * @param etag ETag of the downloaded content
+     * @param body response body, read until its end
+     * @param contentLength length of the body, -1 if unknown
+     * @return the stored content, or the downloaded one if it is too big to be cached, to be read by the caller
+     * @throws IOException
+     */
+    public InputStream put(String resourcePath, String etag, InputStream body, long contentLength) throws IOException
+    {
+        Content content;
+        if (contentLength >= 0 && contentLength <= spillThreshold)
+            content = new Content(etag, body.readAllBytes(), null);
+        else
+        {
+            Path file = Files.createTempFile(getSpillDirectory(), "content", ".bin");
+            try (OutputStream out = Files.newOutputStream(file))
+            {
+                body.transferTo(out);
+            }
+            catch (IOException e)
+            {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            content = new Content(etag, null, file);
+        }
+        if (content.getMemoryBytes() > maxMemoryBytes || content.length - content.getMemoryBytes() > maxDiskBytes)
+        {
+            synchronized (this)
+            {
+                misses++;
+                remove(normalize(resourcePath));
+            }
+            return content.bytes != null ? content.open() : Files.newInputStream(content.file, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        InputStream stored = content.open();
+        synchronized (this)
+        {
+            misses++;
+            remove(normalize(resourcePath));
+            contents.put(normalize(resourcePath), content);
+            memoryBytes += content.getMemoryBytes();
+            diskBytes += content.length - content.getMemoryBytes();
+            evict();
+        }
+        return stored;
+    }
+
+    /**
+     * Forget the content of a changed or removed resource and the contents of its descendants
+     *
+     * @param resourcePath
+     */
+    public synchronized void invalidate(String resourcePath)
+    {
+        String path = normalize(resourcePath);
+        Iterator<Map.Entry<String, Content>> entries = contents.entrySet().iterator();
+        while (entries.hasNext())
+        {
+            Map.Entry<String, Content> entry = entries.next();
+            if (entry.getKey().equals(path) || entry.getKey().startsWith(path + "/"))
+            {
+                entries.remove();
+                release(entry.getValue());
+            }
+        }
+    }
+
+    public synchronized void invalidateAll()
+    {
+        contents.values().forEach(this::release);
+        contents.clear();
+    }
+
+    /**
+     * Delete all the cached contents and the spill directory, with the files of the uncached contents still being read
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        invalidateAll();
+        if (spillDirectory != null)
+        {
+            deleteDirectory(spillDirectory);
+            try
+            {
+                Runtime.getRuntime().removeShutdownHook(spillCleanup);
+            }
+            catch (IllegalStateException e)
+            {
+                // the JVM is exiting, the hook deletes the directory anyway
+            }
+            spillDirectory = null;
+            spillCleanup = null;
+        }
+    }
+
+    public synchronized int size()
+    {
+        return contents.size();
+    }
+
+    public synchronized long getMemoryBytes()
+    {
+        return memoryBytes;
+    }
+
+    public synchronized long getDiskBytes()
+    {
+        return diskBytes;
+    }
+
+    /**
+     * @return number of contents served from the cache after a 304
+     */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * @return number of contents downloaded and stored
+     */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    private synchronized Path getSpillDirectory() throws IOException
+    {
+        if (spillDirectory == null)
+        {
+            Path directory = Files.createTempDirectory("webdav-content-cache");
+            spillCleanup = new Thread(() -> {
+                try
+                {
+                    deleteDirectory(directory);
+                }
+                catch (IOException e)
+                {
+                    // left in the temporary directory of the system
+                }
+            }, "webdav-content-cache-cleanup");
+            Runtime.getRuntime().addShutdownHook(spillCleanup);
+            spillDirectory = directory;
+        }
+        return spillDirectory;
+    }
+
+    /**
+     * Remove the least recently used contents until the cache is within its bounds
+     */
+    private void evict()
+    {
+        Iterator<Content> eldest = contents.values().iterator();
+        while (eldest.hasNext() && (contents.size() > maxEntries || memoryBytes > maxMemoryBytes || diskBytes > maxDiskBytes))
+        {
+            Content content = eldest.next();
+            eldest.remove();
+            release(content);
+        }
+    }
+
+    private void remove(String path)
+    {
+        Content content = contents.remove(path);
+        if (content != null)
+            release(content);
+    }
+
+    private void release(Content content)
+    {
+        memoryBytes -= content.getMemoryBytes();
+        diskBytes -= content.length - content.getMemoryBytes();
+        if (content.file != null)
+        {
+            try
+            {
+                Files.deleteIfExists(content.file);
+            }
+            catch (IOException e)
+            {
+                // still open by a reader on a platform that cannot delete open files, deleted with the spill directory
+            }
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException
+    {
+        if (!Files.isDirectory(directory))
+            return;
+        try (Stream<Path> files = Files.list(directory))
+        {
+            for (Path file : (Iterable<Path>) files::iterator)
+                Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    private static String normalize(String path)
+    {
+        String normalized = path.replace("%20", " ");
+        while (normalized.endsWith("/"))
+            normalized = normalized.substring(0, normalized.length() - 1);
+        return normalized;
+    }
+
+    private static class Content
+    {
+        private final String etag;
+        private final byte[] bytes;
+        private final Path file;
+        private final long length;
+
+        Content(String etag, byte[] bytes, Path file) throws IOException
+        {
+            this.etag = etag;
+            this.bytes = bytes;
+            this.file = file;
+            this.length = bytes != null ? bytes.length : Files.size(file);
+        }
+
+        long getMemoryBytes()
+        {
+            return bytes != null ? bytes.length : 0;
+        }
+
+        InputStream open() throws IOException
+        {
+            return bytes != null ? new ByteArrayInputStream(bytes) : Files.newInputStream(file);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.alfresco.webdav.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per session cache of collection listings, keyed by collection path and bounded with LRU eviction.
+ * <p>
+ * Each listing can keep a validator of the collection (ETag and last modification date), so that a cached listing can be
+ * revalidated with a cheap depth 0 PROPFIND instead of listing the collection again.
+ *
+ * @param <V> type of the cached listing
+ */
+public class ListingCache<V>
+{
+    private final int maxEntries;
+    private final boolean revalidate;
+    private final Map<String, Listing<V>> listings;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxEntries maximal number of collections kept in the cache
+     * @param revalidate true if a cached listing must be checked against the collection validator before being used
+     */
+    public ListingCache(int maxEntries, boolean revalidate)
+    {
+        this.maxEntries = maxEntries;
+        this.revalidate = revalidate;
+        this.listings = new LinkedHashMap<String, Listing<V>>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Listing<V>> eldest)
+            {
+                return size() > ListingCache.this.maxEntries;
+            }
+        };
+    }
+
+    public boolean isRevalidated()
+    {
+        return revalidate;
+    }
+
+    /**
+     * @param collectionPath
+     * @return cached listing or null
+     */
+    public synchronized V get(String collectionPath)
+    {
+        Listing<V> listing = listings.get(normalize(collectionPath));
+        if (listing == null)
+        {
+            misses++;
+            return null;
+        }
+        hits++;
+        return listing.value;
+    }
+
+    /**
+     * @param collectionPath
+     * @return validator of the cached listing, null if the collection is not cached or has no validator
+     */
+    public synchronized String getValidator(String collectionPath)
+    {
+        Listing<V> listing = listings.get(normalize(collectionPath));
+        return listing == null ? null : listing.validator;
+    }
+
+    public synchronized void put(String collectionPath, V value, String validator)
+    {
+        listings.put(normalize(collectionPath), new Listing<>(value, validator));
+    }
+
+    /**
+     * Forget what is known about a resource that was created, changed or removed: the listing of its parent, its own listing
+     * and the listings of all its descendants
+     *
+     * @param resourcePath path of the resource
+     */
+    public synchronized void invalidate(String resourcePath)
+    {
+        String path = normalize(resourcePath);
+        int parentEnd = path.lastIndexOf('/');
+        if (parentEnd > 0)
+            listings.remove(path.substring(0, parentEnd));
+        Iterator<String> paths = listings.keySet().iterator();
+        while (paths.hasNext())
+        {
+            String cachedPath = paths.next();
+            if (cachedPath.equals(path) || cachedPath.startsWith(path + "/"))
+                paths.remove();
+        }
+    }
+
+    public synchronized void invalidateAll()
+    {
+        listings.clear();
+    }
+
+    public synchronized int size()
+    {
+        return listings.size();
+    }
+
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    private static String normalize(String path)
+    {
+        String normalized = path.replace("%20", " ");
+        while (normalized.endsWith("/"))
+            normalized = normalized.substring(0, normalized.length() - 1);
+        return normalized;
+    }
+
+    private static class Listing<V>
+    {
+        private final V value;
+        private final String validator;
+
+        Listing(V value, String validator)
+        {
+            this.value = value;
+            this.validator = validator;
+        }
+    }
+}
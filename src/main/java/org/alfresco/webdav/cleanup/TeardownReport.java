@@ -0,0 +1,71 @@
+package org.alfresco.webdav.cleanup;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Outcome of a {@link TreeTeardown}
+ */
+public class TeardownReport
+{
+    private final String rootUri;
+    private final long deleted;
+    private final int fallbacks;
+    private final Map<String, String> failures;
+    private final long durationNanos;
+
+    public TeardownReport(String rootUri, long deleted, int fallbacks, Map<String, String> failures, long durationNanos)
+    {
+        this.rootUri = rootUri;
+        this.deleted = deleted;
+        this.fallbacks = fallbacks;
+        this.failures = Collections.unmodifiableMap(failures);
+        this.durationNanos = durationNanos;
+    }
+
+    public String getRootUri()
+    {
+        return rootUri;
+    }
+
+    /**
+     * @return number of successful DELETE requests, a collection deleted with its descendants counting as one
+     */
+    public long getDeleted()
+    {
+        return deleted;
+    }
+
+    /**
+     * @return number of collections that could not be deleted at once and were deleted leaves first
+     */
+    public int getFallbacks()
+    {
+        return fallbacks;
+    }
+
+    /**
+     * @return reason of each resource that could not be deleted or listed, keyed by its URI
+     */
+    public Map<String, String> getFailures()
+    {
+        return failures;
+    }
+
+    public boolean isSuccessful()
+    {
+        return failures.isEmpty();
+    }
+
+    public long getDurationNanos()
+    {
+        return durationNanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("TeardownReport[root=%s, deleted=%d, fallbacks=%d, failures=%d, duration=%dms]", rootUri, deleted, fallbacks,
+                failures.size(), durationNanos / 1_000_000);
+    }
+}
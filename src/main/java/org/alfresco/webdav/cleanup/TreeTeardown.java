@@ -0,0 +1,253 @@
+package org.alfresco.webdav.cleanup;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.alfresco.webdav.dsl.PropertySelection;
+import org.alfresco.webdav.http.WebDavRequest;
+import org.alfresco.webdav.http.WebDavResponse;
+import org.alfresco.webdav.http.WebDavTransport;
+import org.alfresco.webdav.listing.CrawlReport;
+import org.alfresco.webdav.listing.DavResource;
+import org.alfresco.webdav.listing.MultiStatusReader;
+import org.alfresco.webdav.listing.TreeCrawler;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.jackrabbit.webdav.DavConstants;
+import org.apache.jackrabbit.webdav.DavMethods;
+import org.apache.jackrabbit.webdav.util.EncodeUtil;
+
+/**
+ * Removes a WebDAV subtree with parallel DELETE requests, e.g. to reset test data.
+ * <p>
+ * In depth infinity mode each collection is first deleted with a single DELETE. When the server cannot delete all of
+ * it (207 multistatus, or 423 for a locked descendant), and always in leaves first mode, the subtree is crawled and
+ * removed bottom up: the files in parallel, then the collections from the deepest level to the top. A collection whose
+ * descendants could not all be deleted is left in place. At most {@code concurrency} requests are in flight, and
+ * everything that could not be deleted is reported in {@link TeardownReport#getFailures()}.
+ */
+public class TreeTeardown
+{
+    private final WebDavTransport transport;
+    private final int concurrency;
+    private final boolean depthInfinity;
+
+    /**
+     * @param transport transport of the user deleting the tree
+     * @param concurrency maximal number of requests in flight
+     * @param depthInfinity true to try a single DELETE per collection before falling back to leaves first
+     */
+    public TreeTeardown(WebDavTransport transport, int concurrency, boolean depthInfinity)
+    {
+        this.transport = transport;
+        this.concurrency = concurrency;
+        this.depthInfinity = depthInfinity;
+    }
+
+    /**
+     * Delete a collection and all its descendants
+     *
+     * @param rootUri escaped absolute URI of the collection
+     * @param keepRoot true to only delete the content of the collection
+     * @return what was deleted and what could not be
+     */
+    public TeardownReport teardown(String rootUri, boolean keepRoot)
+    {
+        long start = System.nanoTime();
+        URI root = URI.create(rootUri);
+        Teardown teardown = new Teardown(String.format("%s://%s", root.getScheme(), root.getRawAuthority()));
+        // escaped the way the crawled resources are, so that each resource has a single key in the failures
+        String escapedRoot = teardown.toUri(root.getPath());
+        Collection<String> targets = keepRoot ? listChildren(escapedRoot, teardown) : Collections.singletonList(escapedRoot);
+        if (depthInfinity)
+        {
+            Map<String, Integer> statuses = delete(targets, teardown);
+            for (Map.Entry<String, Integer> status : statuses.entrySet())
+            {
+                if (status.getValue() == HttpStatus.SC_MULTI_STATUS || status.getValue() == HttpStatus.SC_LOCKED)
+                {
+                    teardown.failures.remove(status.getKey());
+                    teardown.fallbacks.incrementAndGet();
+                    deleteLeavesFirst(status.getKey(), teardown);
+                }
+            }
+        }
+        else
+        {
+            for (String target : targets)
+                deleteLeavesFirst(target, teardown);
+        }
+        return new TeardownReport(escapedRoot, teardown.deleted.get(), teardown.fallbacks.get(), new TreeMap<>(teardown.failures), System.nanoTime() - start);
+    }
+
+    private List<String> listChildren(String rootUri, Teardown teardown)
+    {
+        String rootPath = normalize(URI.create(rootUri).getPath());
+        try (Stream<DavResource> resources = MultiStatusReader.propFind(transport, rootUri, PropertySelection.resourceType(), DavConstants.DEPTH_1))
+        {
+            return resources.filter(resource -> !normalize(resource.getHref()).equals(rootPath)).map(teardown::toUri).collect(Collectors.toList());
+        }
+        catch (Exception e)
+        {
+            teardown.failures.put(rootUri, "not listed: " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Crawl a subtree, then delete its files and its collections level by level, from the deepest one
+     */
+    private void deleteLeavesFirst(String uri, Teardown teardown)
+    {
+        List<DavResource> resources = Collections.synchronizedList(new ArrayList<>());
+        CrawlReport crawl = new TreeCrawler(transport, concurrency).crawl(uri, resources::add);
+        crawl.getFailures().forEach((collection, error) -> teardown.failures.put(collection, "not listed: " + error.getMessage()));
+
+        List<String> files = new ArrayList<>();
+        Map<Integer, List<String>> levels = new TreeMap<>(Collections.reverseOrder());
+        for (DavResource resource : resources)
+        {
+            if (resource.isCollection())
+                levels.computeIfAbsent(getDepth(resource.getHref()), depth -> new ArrayList<>()).add(resource.getHref());
+            else
+                files.add(teardown.toUri(resource.getHref()));
+        }
+        delete(files, teardown);
+        for (List<String> level : levels.values())
+        {
+            List<String> collections = new ArrayList<>();
+            for (String collection : level)
+            {
+                if (teardown.hasFailedDescendant(collection))
+                    teardown.failures.put(teardown.toUri(collection), "contains resources that could not be deleted");
+                else
+                    collections.add(teardown.toUri(collection));
+            }
+            delete(collections, teardown);
+        }
+    }
+
+    /**
+     * Delete resources in parallel and wait for all the answers
+     *
+     * @return status of each DELETE, -1 for a request that failed
+     */
+    private Map<String, Integer> delete(Collection<String> uris, Teardown teardown)
+    {
+        Map<String, CompletableFuture<Integer>> pending = new TreeMap<>();
+        for (String uri : uris)
+        {
+            teardown.inFlight.acquireUninterruptibly();
+            WebDavRequest delete = new WebDavRequest(DavMethods.METHOD_DELETE, uri).header(DavConstants.HEADER_DEPTH, DavConstants.DEPTH_INFINITY_S);
+            CompletableFuture<Integer> status;
+            try
+            {
+                status = transport.executeAsync(delete).thenApply(response -> {
+                    try (WebDavResponse closed = response)
+                    {
+                        return closed.getStatus();
+                    }
+                    catch (Exception e)
+                    {
+                        // the status is known, the connection is released anyway
+                        return response.getStatus();
+                    }
+                });
+            }
+            catch (RuntimeException e)
+            {
+                status = CompletableFuture.failedFuture(e);
+            }
+            pending.put(uri, status.whenComplete((result, error) -> teardown.inFlight.release()));
+        }
+        Map<String, Integer> statuses = new TreeMap<>();
+        for (Map.Entry<String, CompletableFuture<Integer>> entry : pending.entrySet())
+        {
+            String uri = entry.getKey();
+            int status;
+            try
+            {
+                status = entry.getValue().join();
+            }
+            catch (RuntimeException e)
+            {
+                teardown.failures.put(uri, String.valueOf(e.getCause() != null ? e.getCause() : e));
+                statuses.put(uri, -1);
+                continue;
+            }
+            statuses.put(uri, status);
+            if (status / 100 == 2 && status != HttpStatus.SC_MULTI_STATUS)
+            {
+                teardown.deleted.incrementAndGet();
+                teardown.forget(uri);
+            }
+            else if (status != HttpStatus.SC_NOT_FOUND)
+                teardown.failures.put(uri, String.format("%d %s", status, HttpStatus.getStatusText(status)));
+        }
+        return statuses;
+    }
+
+    private static int getDepth(String path)
+    {
+        return (int) normalize(path).chars().filter(c -> c == '/').count();
+    }
+
+    private static String normalize(String path)
+    {
+        return path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+
+    /**
+     * State shared by the requests of one teardown
+     */
+    private class Teardown
+    {
+        private final String server;
+        private final Semaphore inFlight = new Semaphore(concurrency);
+        private final AtomicLong deleted = new AtomicLong();
+        private final AtomicInteger fallbacks = new AtomicInteger();
+        private final Map<String, String> failures = new ConcurrentHashMap<>();
+
+        private Teardown(String server)
+        {
+            this.server = server;
+        }
+
+        private String toUri(DavResource resource)
+        {
+            return toUri(resource.getHref());
+        }
+
+        private String toUri(String href)
+        {
+            return server + EncodeUtil.escapePath(href);
+        }
+
+        private boolean hasFailedDescendant(String collectionPath)
+        {
+            String prefix = normalize(toUri(collectionPath)) + "/";
+            return failures.keySet().stream().anyMatch(failed -> normalize(failed).startsWith(prefix));
+        }
+
+        /**
+         * Drop the failures recorded for a deleted resource and its descendants, e.g. a collection that could not be
+         * listed but was deleted with its content
+         */
+        private void forget(String uri)
+        {
+            String deleted = normalize(uri);
+            failures.keySet().removeIf(failed -> normalize(failed).equals(deleted) || failed.startsWith(deleted + "/"));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.alfresco.webdav.dsl;
+
+import org.apache.jackrabbit.webdav.property.DavPropertyName;
+import org.apache.jackrabbit.webdav.property.DavPropertyNameSet;
+
+/**
+ * Named property sets requested by PROPFIND, so that the server only computes what an operation needs.
+ * Every method returns a new set that can be extended by the caller.
+ */
+public final class PropertySelection
+{
+    private PropertySelection()
+    {
+    }
+
+    /**
+     * @param names any DAV properties
+     * @return a set with the given properties
+     */
+    public static DavPropertyNameSet of(DavPropertyName... names)
+    {
+        DavPropertyNameSet selection = new DavPropertyNameSet();
+        for (DavPropertyName name : names)
+            selection.add(name);
+        return selection;
+    }
+
+    /**
+     * @return resourcetype, enough to know that a resource exists and if it is a collection
+     */
+    public static DavPropertyNameSet resourceType()
+    {
+        return of(DavPropertyName.RESOURCETYPE);
+    }
+
+    /**
+     * @return getetag and getlastmodified, used to detect that a resource changed
+     */
+    public static DavPropertyNameSet validators()
+    {
+        return of(DavPropertyName.GETETAG, DavPropertyName.GETLASTMODIFIED);
+    }
+
+    /**
+     * @return lockdiscovery, the active locks of a resource
+     */
+    public static DavPropertyNameSet lock()
+    {
+        return of(DavPropertyName.LOCKDISCOVERY);
+    }
+
+    /**
+     * @return the properties describing the children of a collection: resourcetype, getcontentlength, getetag and getlastmodified
+     */
+    public static DavPropertyNameSet listing()
+    {
+        return of(DavPropertyName.RESOURCETYPE, DavPropertyName.GETCONTENTLENGTH, DavPropertyName.GETETAG, DavPropertyName.GETLASTMODIFIED);
+    }
+
+    /**
+     * @return the listing properties and lockdiscovery, everything written in a tree manifest
+     */
+    public static DavPropertyNameSet manifest()
+    {
+        DavPropertyNameSet selection = listing();
+        selection.add(DavPropertyName.LOCKDISCOVERY);
+        return selection;
+    }
+}
@@ -3,13 +3,18 @@ package org.alfresco.webdav.dsl;
 import static org.alfresco.utility.report.log.Step.STEP;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.alfresco.utility.dsl.DSLAssertion;
 import org.alfresco.utility.model.ContentModel;
 import org.alfresco.utility.model.FileModel;
 import org.alfresco.utility.model.FolderModel;
 import org.alfresco.webdav.WebDavWrapper;
+import org.alfresco.webdav.listing.ListingSnapshot;
+import org.alfresco.webdav.probe.ResourceMetadata;
 import org.testng.Assert;
 
 public class WebDavAssertion extends DSLAssertion<WebDavWrapper>
@@ -33,14 +38,10 @@ public class WebDavAssertion extends DSLAssertion<WebDavWrapper>
      */
     public WebDavWrapper hasFolders(FolderModel... folderModel) throws Exception
     {
-        String currentSpace = webDavWrapper().getCurrentSpace();
-        List<FolderModel> folders = webDavWrapper().getFolders();
-        for (FolderModel folder : folderModel)
-        {
-            STEP(String.format("%s Verify that folder %s is in %s", WebDavWrapper.STEP_PREFIX, folder.getName(), currentSpace));
-            Assert.assertTrue(webDavWrapper().withWebDavUtil().isFolderInList(folder, folders),
-                    String.format("Folder %s is in %s", folder.getName(), currentSpace));
-        }
+        ListingSnapshot listing = webDavWrapper().withWebDavUtil().getListingSnapshot();
+        STEP(String.format("%s Verify that folders %s are in %s", WebDavWrapper.STEP_PREFIX, getNames(folderModel), listing.getLocation()));
+        List<String> missing = listing.missing(Arrays.asList(folderModel));
+        Assert.assertTrue(missing.isEmpty(), String.format("Folders %s are in %s", missing, listing.getLocation()));
         return webDavWrapper();
     }
 
@@ -53,13 +54,10 @@ public class WebDavAssertion extends DSLAssertion<WebDavWrapper>
      */
     public WebDavWrapper hasFiles(FileModel... fileModel) throws Exception
     {
-        String currentSpace = webDavWrapper().getCurrentSpace();
-        List<FileModel> files = webDavWrapper().getFiles();
-        for (FileModel file : fileModel)
-        {
-            STEP(String.format("%s Verify that file %s is in %s", WebDavWrapper.STEP_PREFIX, file.getName(), currentSpace));
-            Assert.assertTrue(webDavWrapper().withWebDavUtil().isFileInList(file, files), String.format("File %s is in %s", file.getName(), currentSpace));
-        }
+        ListingSnapshot listing = webDavWrapper().withWebDavUtil().getListingSnapshot();
+        STEP(String.format("%s Verify that files %s are in %s", WebDavWrapper.STEP_PREFIX, getNames(fileModel), listing.getLocation()));
+        List<String> missing = listing.missing(Arrays.asList(fileModel));
+        Assert.assertTrue(missing.isEmpty(), String.format("Files %s are in %s", missing, listing.getLocation()));
         return webDavWrapper();
     }
 
@@ -72,17 +70,55 @@ public class WebDavAssertion extends DSLAssertion<WebDavWrapper>
      */
     public WebDavWrapper hasChildren(ContentModel... contentModel) throws Exception
     {
-        String currentSpace = webDavWrapper().getCurrentSpace();
-        List<ContentModel> contents = webDavWrapper().withWebDavUtil().getChildren();
-        for (ContentModel content : contentModel)
-        {
-            STEP(String.format("%s Verify that file %s is in %s", WebDavWrapper.STEP_PREFIX, content.getName(), currentSpace));
-            Assert.assertTrue(webDavWrapper().withWebDavUtil().isContentInList(content, contents),
-                    String.format("Content %s is in %s", content.getName(), currentSpace));
-        }
+        ListingSnapshot listing = webDavWrapper().withWebDavUtil().getListingSnapshot();
+        STEP(String.format("%s Verify that contents %s are in %s", WebDavWrapper.STEP_PREFIX, getNames(contentModel), listing.getLocation()));
+        List<String> missing = listing.missing(Arrays.asList(contentModel));
+        Assert.assertTrue(missing.isEmpty(), String.format("Contents %s are in %s", missing, listing.getLocation()));
         return webDavWrapper();
     }
 
+    /**
+     * Verify that a parent folder has exactly the given children, nothing missing and nothing else
+     * 
+     * @param contentModel children
+     * @return
+     * @throws Exception
+     */
+    public WebDavWrapper hasOnlyChildren(ContentModel... contentModel) throws Exception
+    {
+        ListingSnapshot listing = webDavWrapper().withWebDavUtil().getListingSnapshot();
+        STEP(String.format("%s Verify that %s only contains %s", WebDavWrapper.STEP_PREFIX, listing.getLocation(), getNames(contentModel)));
+        List<String> missing = listing.missing(Arrays.asList(contentModel));
+        List<String> unexpected = listing.unexpected(Arrays.asList(contentModel));
+        Assert.assertTrue(missing.isEmpty() && unexpected.isEmpty(),
+                String.format("%s only contains the expected contents. Missing: %s, unexpected: %s", listing.getLocation(), missing, unexpected));
+        return webDavWrapper();
+    }
+
+    /**
+     * Verify that none of the given contents is a child of the parent folder
+     * 
+     * @param contentModel contents that should not be listed
+     * @return
+     * @throws Exception
+     */
+    public WebDavWrapper doesNotHaveChildren(ContentModel... contentModel) throws Exception
+    {
+        ListingSnapshot listing = webDavWrapper().withWebDavUtil().getListingSnapshot();
+        STEP(String.format("%s Verify that contents %s are not in %s", WebDavWrapper.STEP_PREFIX, getNames(contentModel), listing.getLocation()));
+        List<String> present = listing.present(Arrays.asList(contentModel));
+        Assert.assertTrue(present.isEmpty(), String.format("Contents %s are not in %s", present, listing.getLocation()));
+        return webDavWrapper();
+    }
+
+    private static List<String> getNames(ContentModel... contentModel)
+    {
+        List<String> names = new ArrayList<>();
+        for (ContentModel content : contentModel)
+            names.add(content.getName());
+        return names;
+    }
+
     /**
      * Verify the status for a specific webdav action
      * 
@@ -137,6 +173,25 @@ public class WebDavAssertion extends DSLAssertion<WebDavWrapper>
         return webDavWrapper();
     }
 
+    /**
+     * Verify that all the given contents exist in webdav, probing them concurrently
+     * 
+     * @param contents files or folders
+     * @return
+     * @throws Exception
+     */
+    public WebDavWrapper existsInWebdav(ContentModel... contents) throws Exception
+    {
+        List<String> resources = new ArrayList<>();
+        for (ContentModel content : contents)
+            resources.add(webDavWrapper().buildPath(webDavWrapper().getPrefixSpace(), content.getCmisLocation()));
+        STEP(String.format("%s Verify that %d contents exist in webdav", WebDavWrapper.STEP_PREFIX, resources.size()));
+        Map<String, ResourceMetadata> metadata = webDavWrapper().withWebDavUtil().probeAll(resources);
+        for (Map.Entry<String, ResourceMetadata> entry : metadata.entrySet())
+            Assert.assertTrue(entry.getValue().exists(), String.format("Content %s exists in webdav", entry.getKey()));
+        return webDavWrapper();
+    }
+
     /**
      * Verify if file is downloaded in project root.
      * 
@@ -1,41 +1,54 @@
 package org.alfresco.webdav.dsl;
 
 import static org.alfresco.utility.Utility.checkObjectIsInitialized;
-import static org.alfresco.utility.report.log.Step.STEP;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.alfresco.utility.model.ContentModel;
 import org.alfresco.utility.model.FileModel;
 import org.alfresco.utility.model.FolderModel;
 import org.alfresco.webdav.WebDavWrapper;
+import org.alfresco.webdav.cache.ListingCache;
+import org.alfresco.webdav.http.WebDavRequest;
+import org.alfresco.webdav.http.WebDavResponse;
+import org.alfresco.webdav.listing.DavResource;
+import org.alfresco.webdav.listing.ListingSnapshot;
+import org.alfresco.webdav.listing.MultiStatusReader;
+import org.alfresco.webdav.probe.ResourceMetadata;
+import org.alfresco.webdav.session.LockRegistry;
+import org.alfresco.webdav.session.WebDavResult;
 import org.apache.commons.httpclient.HttpStatus;
-import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jackrabbit.webdav.DavConstants;
 import org.apache.jackrabbit.webdav.DavException;
+import org.apache.jackrabbit.webdav.DavMethods;
 import org.apache.jackrabbit.webdav.MultiStatus;
 import org.apache.jackrabbit.webdav.MultiStatusResponse;
-import org.apache.jackrabbit.webdav.client.methods.CopyMethod;
-import org.apache.jackrabbit.webdav.client.methods.DavMethod;
-import org.apache.jackrabbit.webdav.client.methods.MoveMethod;
-import org.apache.jackrabbit.webdav.client.methods.PropFindMethod;
-import org.apache.jackrabbit.webdav.property.DavProperty;
+import org.apache.jackrabbit.webdav.property.DavPropertyNameSet;
 import org.apache.jackrabbit.webdav.property.DavPropertySet;
-import org.apache.jackrabbit.webdav.util.EncodeUtil;
+import org.apache.jackrabbit.webdav.xml.DomUtil;
 
 public class WebDavUtil
 {
@@ -60,42 +73,6 @@ public class WebDavUtil
         return newFile;
     }
 
-    protected boolean isFolderInList(FolderModel folderModel, List<FolderModel> folders)
-    {
-        for (FolderModel folder : folders)
-        {
-            if (folderModel.getName().equals(folder.getName()))
-            {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    protected boolean isFileInList(FileModel fileModel, List<FileModel> files)
-    {
-        for (FileModel file : files)
-        {
-            if (fileModel.getName().equals(file.getName()))
-            {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    protected boolean isContentInList(ContentModel contentModel, List<ContentModel> contents)
-    {
-        for (ContentModel content : contents)
-        {
-            if (content.getName().equals(content.getName()))
-            {
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * Get a list of folders from current location
      * 
@@ -121,21 +98,9 @@ public class WebDavUtil
         }
         else
         {
-            String currentFolder;
-            String path = webDavWrapper.getCurrentSpace().replace(webDavWrapper.tasProperties.getFullServerUrl(), "");
-            MultiStatusResponse[] responses = getChildrenResponse();
-            for (MultiStatusResponse response : responses)
+            try (Stream<DavResource> resources = streamChildren())
             {
-                currentFolder = EncodeUtil.unescape(response.getHref());
-                if (!(currentFolder.equals(path) || currentFolder.equals(path + "/")))
-                {
-                    if (isFolder(response))
-                    {
-                        FolderModel content = new FolderModel(new File(currentFolder).getName());
-                        content.setCmisLocation(currentFolder.replace("/alfresco/webdav", ""));
-                        children.add(content);
-                    }
-                }
+                resources.filter(DavResource::isCollection).forEach(resource -> children.add(toFolderModel(resource)));
             }
         }
         return children;
@@ -166,21 +131,9 @@ public class WebDavUtil
         }
         else
         {
-            String currentContent;
-            String path = webDavWrapper.getCurrentSpace().replace(webDavWrapper.tasProperties.getFullServerUrl(), "");
-            MultiStatusResponse[] responses = getChildrenResponse();
-            for (MultiStatusResponse response : responses)
+            try (Stream<DavResource> resources = streamChildren())
             {
-                currentContent = EncodeUtil.unescape(response.getHref());
-                if (!(currentContent.equals(path) || currentContent.equals(path + "/")))
-                {
-                    if (!isFolder(response))
-                    {
-                        FileModel content = new FileModel(new File(currentContent).getName());
-                        content.setCmisLocation(currentContent.replace("/alfresco/webdav", ""));
-                        children.add(content);
-                    }
-                }
+                resources.filter(resource -> !resource.isCollection()).forEach(resource -> children.add(toFileModel(resource)));
             }
         }
         return children;
@@ -208,48 +161,164 @@ public class WebDavUtil
         }
         else
         {
-            String currentContent;
-            String path = webDavWrapper.getCurrentSpace().replace(webDavWrapper.tasProperties.getFullServerUrl(), "");
-            MultiStatusResponse[] responses = getChildrenResponse();
-            for (MultiStatusResponse response : responses)
+            try (Stream<ContentModel> contents = streamContents())
             {
-                currentContent = EncodeUtil.unescape(response.getHref());
-                if (!(currentContent.equals(path) || currentContent.equals(path + "/")))
-                {
-                    ContentModel content = new ContentModel(new File(currentContent).getName());
-                    content.setCmisLocation(currentContent.replace("/alfresco/webdav", ""));
-                    children.add(content);
-                }
+                contents.forEach(children::add);
             }
         }
         return children;
     }
 
-    private MultiStatusResponse[] getChildrenResponse() throws Exception
+    /**
+     * Take an immutable snapshot of the current location, indexed by name and path for bulk assertions
+     * 
+     * @return
+     * @throws Exception
+     */
+    public ListingSnapshot getListingSnapshot() throws Exception
+    {
+        List<ContentModel> contents = new ArrayList<>();
+        if (webDavWrapper.isActionExecutedOnMappedDrive())
+        {
+            contents.addAll(getFolders());
+            contents.addAll(getFiles());
+        }
+        else
+        {
+            try (Stream<ContentModel> children = streamContents())
+            {
+                children.forEach(contents::add);
+            }
+        }
+        return new ListingSnapshot(webDavWrapper.getCurrentSpace(), contents);
+    }
+
+    /**
+     * Stream the folders and files of the current location while the listing is read from the server.
+     * The stream holds the connection until it is closed, so use it in a try-with-resources.
+     * 
+     * @return a {@link FolderModel} for each collection and a {@link FileModel} for each other resource
+     * @throws Exception
+     */
+    public Stream<ContentModel> streamContents() throws Exception
+    {
+        return streamChildren().map(resource -> resource.isCollection() ? toFolderModel(resource) : toFileModel(resource));
+    }
+
+    /**
+     * Stream the children of the current location with a depth 1 PROPFIND, without the location itself.
+     * When the listing cache is enabled, the listing is read completely and cached, otherwise the children are parsed
+     * one at a time while the response arrives. The stream holds the connection until it is closed.
+     * 
+     * @return
+     * @throws Exception
+     */
+    public Stream<DavResource> streamChildren() throws Exception
+    {
+        String currentSpace = webDavWrapper.getCurrentSpace();
+        String path = currentSpace.replace(webDavWrapper.tasProperties.getFullServerUrl(), "");
+        ListingCache<List<DavResource>> listingCache = webDavWrapper.getListingCache();
+        if (listingCache == null)
+            return streamPropFind(checkForWhiteSpace(currentSpace), PropertySelection.listing(), DavConstants.DEPTH_1)
+                    .filter(resource -> !isSameResource(resource, path));
+
+        List<DavResource> listing = listingCache.get(currentSpace);
+        if (listing == null || (listingCache.isRevalidated() && !isCollectionUnchanged(currentSpace, listingCache.getValidator(currentSpace))))
+        {
+            try (Stream<DavResource> resources = streamPropFind(checkForWhiteSpace(currentSpace), PropertySelection.listing(), DavConstants.DEPTH_1))
+            {
+                listing = resources.collect(Collectors.toList());
+            }
+            String validator = listing.stream().filter(resource -> isSameResource(resource, path)).map(DavResource::getValidator)
+                    .filter(Objects::nonNull).findFirst().orElse(null);
+            listingCache.put(currentSpace, listing, validator);
+        }
+        return listing.stream().filter(resource -> !isSameResource(resource, path));
+    }
+
+    private static boolean isSameResource(DavResource resource, String path)
+    {
+        return resource.getHref().equals(path) || resource.getHref().equals(path + "/");
+    }
+
+    private static FolderModel toFolderModel(DavResource resource)
     {
-        DavMethod pFind = new PropFindMethod(webDavWrapper.getCurrentSpace(), DavConstants.PROPFIND_ALL_PROP, DavConstants.DEPTH_1);
-        webDavWrapper.getHttpClient().executeMethod(pFind);
-        MultiStatus multiStatus = pFind.getResponseBodyAsMultiStatus();
-        MultiStatusResponse[] responses = multiStatus.getResponses();
-        pFind.releaseConnection();
-        return responses;
+        FolderModel content = new FolderModel(resource.getName());
+        content.setCmisLocation(resource.getHref().replace("/alfresco/webdav", ""));
+        return content;
     }
 
-    private boolean isFolder(MultiStatusResponse response)
+    private static FileModel toFileModel(DavResource resource)
     {
-        DavPropertySet properties = response.getProperties(200);
-        boolean isfolder = false;
-        String resourcetype = null;
-        DavProperty<?> resourceType = properties.get("resourcetype");
-        if ((resourceType != null) && (resourceType.getValue() != null))
+        FileModel content = new FileModel(resource.getName());
+        content.setCmisLocation(resource.getHref().replace("/alfresco/webdav", ""));
+        return content;
+    }
+
+    /**
+     * Check with a depth 0 PROPFIND if a collection still has the given ETag and last modification date
+     */
+    private boolean isCollectionUnchanged(String collection, String validator) throws Exception
+    {
+        if (validator == null)
+            return false;
+        try (Stream<DavResource> resources = streamPropFind(checkForWhiteSpace(collection), PropertySelection.validators(), DavConstants.DEPTH_0))
         {
-            resourcetype = resourceType.getValue().toString();
+            return resources.findFirst().map(DavResource::getValidator).filter(validator::equals).isPresent();
         }
-        if ((resourcetype != null) && (resourcetype.indexOf("collection") != -1))
+        catch (DavException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Send a PROPFIND requesting only the given properties and parse the multistatus response while it arrives.
+     * The stream holds the connection until it is closed.
+     * 
+     * @param uri escaped URI of a resource or collection
+     * @param properties requested properties, see {@link PropertySelection}
+     * @param depth {@link DavConstants#DEPTH_0} for the resource only, {@link DavConstants#DEPTH_1} to include the children of a collection
+     * @return one resource for each response element
+     * @throws DavException if the server does not answer with a multistatus, e.g. when the resource does not exist
+     * @throws Exception
+     */
+    public Stream<DavResource> streamPropFind(String uri, DavPropertyNameSet properties, int depth) throws Exception
+    {
+        return MultiStatusReader.propFind(webDavWrapper.getTransport(), uri, properties, depth);
+    }
+
+    /**
+     * Send a PROPFIND requesting only the given properties
+     * 
+     * @param uri resource or collection
+     * @param properties requested properties, see {@link PropertySelection}
+     * @param depth {@link DavConstants#DEPTH_0} for the resource only, {@link DavConstants#DEPTH_1} to include the children of a collection
+     * @return one response for each resource
+     * @throws DavException if the server does not answer with a multistatus, e.g. when the resource does not exist
+     * @throws Exception
+     */
+    public MultiStatusResponse[] propFind(String uri, DavPropertyNameSet properties, int depth) throws Exception
+    {
+        try (WebDavResponse response = webDavWrapper.getTransport().execute(MultiStatusReader.createPropFindRequest(uri, properties, depth)))
         {
-            isfolder = true;
+            if (response.getStatus() != HttpStatus.SC_MULTI_STATUS)
+                throw new DavException(response.getStatus(), String.format("PROPFIND %s returned %d", uri, response.getStatus()));
+            return MultiStatus.createFromXml(DomUtil.parseDocument(response.getBody()).getDocumentElement()).getResponses();
         }
-        return isfolder;
+    }
+
+    /**
+     * Get some properties of the last resource
+     * 
+     * @param properties requested properties, see {@link PropertySelection}
+     * @return the properties found, without the missing ones
+     * @throws Exception
+     */
+    public DavPropertySet getProperties(DavPropertyNameSet properties) throws Exception
+    {
+        MultiStatusResponse[] responses = propFind(checkForWhiteSpace(webDavWrapper.getLastResource()), properties, DavConstants.DEPTH_0);
+        return responses[0].getProperties(200);
     }
 
     public String checkForWhiteSpace(String content)
@@ -277,20 +346,23 @@ public class WebDavUtil
         String destination = webDavWrapper.buildPath(destinationPath, webDavSourceName);
         String webDavDestination = webDavWrapper.withWebDavUtil().checkForWhiteSpace(destination);
         webDavSource = webDavWrapper.withWebDavUtil().checkForWhiteSpace(webDavSource);
-        DavMethod action;
+        WebDavRequest action;
         if (copy)
         {
-            STEP(String.format("%s Copy '%s' to '%s'", WebDavWrapper.STEP_PREFIX, webDavSourceName, destinationPath));
-            action = new CopyMethod(webDavSource, webDavDestination, overwrite);
+            webDavWrapper.getStepReporter().step("%s Copy '%s' to '%s'", WebDavWrapper.STEP_PREFIX, webDavSourceName, destinationPath);
+            action = new WebDavRequest(DavMethods.METHOD_COPY, webDavSource);
         }
         else
         {
-            STEP(String.format("%s Move '%s' to '%s'", WebDavWrapper.STEP_PREFIX, webDavSourceName, destinationPath));
-            action = new MoveMethod(webDavSource, webDavDestination, overwrite);
+            webDavWrapper.getStepReporter().step("%s Move '%s' to '%s'", WebDavWrapper.STEP_PREFIX, webDavSourceName, destinationPath);
+            action = new WebDavRequest(DavMethods.METHOD_MOVE, webDavSource);
         }
-        webDavWrapper.status = webDavWrapper.getHttpClient().executeMethod(action);
-        action.releaseConnection();
+        action.header(DavConstants.HEADER_DESTINATION, webDavDestination).header(DavConstants.HEADER_OVERWRITE, overwrite ? "T" : "F");
+        webDavWrapper.status = execute(action);
+        if (!copy)
+            webDavWrapper.invalidateListings(webDavWrapper.getLastResource());
         webDavWrapper.setLastResource(destination);
+        webDavWrapper.invalidateListings(destination);
         return webDavWrapper;
     }
     
@@ -304,31 +376,32 @@ public class WebDavUtil
     {
         StringBuilder content = new StringBuilder();
         String inputLine;
-        FileInputStream fileInputStream = null;
+        Closeable source;
         InputStream inputStream;
-        GetMethod getMethod = null;
         if (webDavWrapper.isActionExecutedOnMappedDrive())
         {
-            fileInputStream = new FileInputStream(webDavWrapper.getLastResource());
-            inputStream = fileInputStream;
+            inputStream = new FileInputStream(webDavWrapper.getLastResource());
+            source = inputStream;
         }
-        else
+        else if (webDavWrapper.getContentCache() != null)
         {
-            getMethod = new GetMethod(checkForWhiteSpace(webDavWrapper.getLastResource()));
-            webDavWrapper.getHttpClient().executeMethod(getMethod);
-            inputStream = getMethod.getResponseBodyAsStream();
+            ByteArrayOutputStream cached = new ByteArrayOutputStream();
+            webDavWrapper.withDownloader().download(checkForWhiteSpace(webDavWrapper.getLastResource()), Channels.newChannel(cached));
+            inputStream = new ByteArrayInputStream(cached.toByteArray());
+            source = inputStream;
         }
-        InputStreamReader inputReader = new InputStreamReader(inputStream);
-        BufferedReader reader = new BufferedReader(inputReader);
-        while ((inputLine = reader.readLine()) != null)
-            content.append(inputLine);
-        reader.close();
-        inputStream.close();
-        inputReader.close();
-        if (webDavWrapper.isActionExecutedOnMappedDrive())
-            fileInputStream.close();
         else
-            getMethod.releaseConnection();
+        {
+            WebDavResponse response = webDavWrapper.getTransport()
+                    .execute(new WebDavRequest(DavMethods.METHOD_GET, checkForWhiteSpace(webDavWrapper.getLastResource())));
+            inputStream = response.getBody();
+            source = response;
+        }
+        try (Closeable closeable = source; BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream)))
+        {
+            while ((inputLine = reader.readLine()) != null)
+                content.append(inputLine);
+        }
         return content.toString();
     }
 
@@ -344,13 +417,56 @@ public class WebDavUtil
             return Files.exists(Paths.get(webDavWrapper.getLastResource()));
         else
         {
-            GetMethod pFind = new GetMethod(checkForWhiteSpace(webDavWrapper.getLastResource()));
-            webDavWrapper.status = webDavWrapper.getHttpClient().executeMethod(pFind);
-            pFind.releaseConnection();
+            ResourceMetadata metadata = webDavWrapper.withProbe().head(checkForWhiteSpace(webDavWrapper.getLastResource()));
+            webDavWrapper.status = metadata.getStatus();
             return webDavWrapper.status == HttpStatus.SC_OK;
         }
     }
 
+    /**
+     * Get the metadata of the last resource with a depth 0 PROPFIND, without downloading its content
+     * 
+     * @return
+     * @throws Exception
+     */
+    public ResourceMetadata probe() throws Exception
+    {
+        return webDavWrapper.withProbe().probe(checkForWhiteSpace(webDavWrapper.getLastResource()));
+    }
+
+    /**
+     * Get the metadata of many resources with concurrent depth 0 PROPFIND requests
+     * 
+     * @param resources full paths of the resources, e.g. built with {@link WebDavWrapper#buildPath(String, String...)}
+     * @return the metadata of each resource, keyed by the given path
+     * @throws Exception
+     */
+    public Map<String, ResourceMetadata> probeAll(Collection<String> resources) throws Exception
+    {
+        Map<String, String> uris = new LinkedHashMap<>();
+        for (String resource : resources)
+            uris.put(checkForWhiteSpace(resource), resource);
+        Map<String, ResourceMetadata> results = new LinkedHashMap<>();
+        webDavWrapper.withProbe().probeAll(uris.keySet()).forEach((uri, metadata) -> results.put(uris.get(uri), metadata));
+        return results;
+    }
+
+    /**
+     * Execute a request with the session of the current user, discarding the response body
+     * 
+     * @param request
+     * @return response status
+     * @throws Exception
+     */
+    public int execute(WebDavRequest request) throws Exception
+    {
+        WebDavResult result = webDavWrapper.getSession().execute(request);
+        if (result.getStatus() >= 400)
+            webDavWrapper.getStepReporter().failure("%s %s '%s' failed with status %d", WebDavWrapper.STEP_PREFIX, request.getMethod(), request.getUri(),
+                    result.getStatus());
+        return result.getStatus();
+    }
+
     public String getLastResourceName()
     {
         return new File(webDavWrapper.getLastResource()).getName();
@@ -358,20 +474,8 @@ public class WebDavUtil
 
     public boolean isLocked() throws Exception
     {
-        DavMethod pFind = new PropFindMethod(checkForWhiteSpace(webDavWrapper.getLastResource()), DavConstants.PROPFIND_ALL_PROP, DavConstants.DEPTH_1);
-        webDavWrapper.status = webDavWrapper.getHttpClient().executeMethod(pFind);
-        MultiStatusResponse[] responses;
-        try
-        {
-            MultiStatus multiStatus = pFind.getResponseBodyAsMultiStatus();
-            responses = multiStatus.getResponses();
-        }
-        catch (DavException e)
-        {
-            return false;
-        }
-        pFind.releaseConnection();
-        DavProperty<?> pLockDiscovery = responses[0].getProperties(200).get(DavConstants.PROPERTY_LOCKDISCOVERY);
-        return pLockDiscovery != null;
+        WebDavResult discovery = webDavWrapper.getLockRegistry().discover(checkForWhiteSpace(webDavWrapper.getLastResource()));
+        webDavWrapper.status = discovery.getStatus();
+        return LockRegistry.isLocked(discovery);
     }
 }
@@ -0,0 +1,146 @@
+package org.alfresco.webdav.http;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.alfresco.webdav.transfer.FileChannelRequestEntity;
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.HttpMethodBase;
+import org.apache.commons.httpclient.methods.ByteArrayRequestEntity;
+import org.apache.commons.httpclient.methods.EntityEnclosingMethod;
+import org.apache.commons.httpclient.methods.HeadMethod;
+import org.apache.commons.httpclient.params.HttpMethodParams;
+
+/**
+ * Default {@link WebDavTransport}, executing the requests with commons-httpclient.
+ * Requests are blocking, so {@link #executeAsync(WebDavRequest)} runs them on the given executor.
+ */
+public class HttpClientTransport implements WebDavTransport
+{
+    private final HttpClient httpClient;
+    private final Executor executor;
+
+    public HttpClientTransport(HttpClient httpClient, Executor executor)
+    {
+        this.httpClient = httpClient;
+        this.executor = executor;
+    }
+
+    public HttpClient getHttpClient()
+    {
+        return httpClient;
+    }
+
+    @Override
+    public WebDavResponse execute(WebDavRequest request) throws Exception
+    {
+        HttpMethod method = createMethod(request);
+        try
+        {
+            int status = httpClient.executeMethod(method);
+            Map<String, List<String>> headers = new LinkedHashMap<>();
+            for (Header header : method.getResponseHeaders())
+                headers.computeIfAbsent(header.getName(), name -> new ArrayList<>()).add(header.getValue());
+            return new WebDavResponse(status, headers, method.getResponseBodyAsStream(), method::releaseConnection);
+        }
+        catch (Exception e)
+        {
+            method.releaseConnection();
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<WebDavResponse> executeAsync(WebDavRequest request)
+    {
+        return CompletableFuture.supplyAsync(() -> {
+            try
+            {
+                return execute(request);
+            }
+            catch (Exception e)
+            {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    protected HttpMethod createMethod(WebDavRequest request)
+    {
+        HttpMethod method;
+        if ("HEAD".equals(request.getMethod()))
+            method = new HeadMethod(request.getUri());
+        else if (request.getBody() == null && request.getBodyFile() == null)
+            method = new DavMethod(request.getMethod(), request.getUri());
+        else
+        {
+            EntityEnclosingMethod entityMethod = new DavRequestMethod(request.getMethod(), request.getUri());
+            if (request.getBody() != null)
+                entityMethod.setRequestEntity(new ByteArrayRequestEntity(request.getBody(), request.getContentType()));
+            else
+                entityMethod.setRequestEntity(new FileChannelRequestEntity(request.getBodyFile(), request.getContentType()));
+            method = entityMethod;
+        }
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet())
+        {
+            if ("Expect".equalsIgnoreCase(header.getKey()))
+                method.getParams().setBooleanParameter(HttpMethodParams.USE_EXPECT_CONTINUE, true);
+            else
+                method.setRequestHeader(header.getKey(), header.getValue());
+        }
+        return method;
+    }
+
+    @Override
+    public void close()
+    {
+        // connections are owned by the shared connection manager
+    }
+
+    /**
+     * Any WebDAV method without a request body, sent without Content-Length
+     */
+    private static class DavMethod extends HttpMethodBase
+    {
+        private final String name;
+
+        DavMethod(String name, String uri)
+        {
+            super(uri);
+            this.name = name;
+        }
+
+        @Override
+        public String getName()
+        {
+            return name;
+        }
+    }
+
+    /**
+     * Any WebDAV method with a request body
+     */
+    private static class DavRequestMethod extends EntityEnclosingMethod
+    {
+        private final String name;
+
+        DavRequestMethod(String name, String uri)
+        {
+            super(uri);
+            this.name = name;
+        }
+
+        @Override
+        public String getName()
+        {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.alfresco.webdav.http;
+
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.alfresco.webdav.metrics.ClientMetrics;
+
+/**
+ * Non blocking {@link WebDavTransport} based on {@link HttpClient java.net.http.HttpClient}.
+ * The client negotiates HTTP/2 when the server offers it and multiplexes the requests on its connections;
+ * HTTP/1.1 servers are used with a pool of keep-alive connections.
+ * <p>
+ * Credentials are sent preemptively with Basic authentication.
+ */
+public class JdkHttpTransport implements WebDavTransport
+{
+    /**
+     * Headers computed by the JDK client, that cannot be set on a request
+     */
+    private static final Set<String> RESTRICTED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    static
+    {
+        RESTRICTED_HEADERS.add("Connection");
+        RESTRICTED_HEADERS.add("Content-Length");
+        RESTRICTED_HEADERS.add("Expect");
+        RESTRICTED_HEADERS.add("Host");
+        RESTRICTED_HEADERS.add("Upgrade");
+    }
+
+    private final HttpClient httpClient;
+    private final String authorization;
+    private final ClientMetrics metrics;
+
+    /**
+     * @param httpClient shared client
+     * @param username user used for authentication, null for anonymous requests
+     * @param password password of the user
+     */
+    public JdkHttpTransport(HttpClient httpClient, String username, String password)
+    {
+        this(httpClient, username, password, null);
+    }
+
+    /**
+     * @param httpClient shared client
+     * @param username user used for authentication, null for anonymous requests
+     * @param password password of the user
+     * @param metrics where the requests are recorded, null to not record them
+     */
+    public JdkHttpTransport(HttpClient httpClient, String username, String password, ClientMetrics metrics)
+    {
+        this.httpClient = httpClient;
+        this.metrics = metrics;
+        if (username == null)
+            this.authorization = null;
+        else
+            this.authorization = "Basic "
+                    + Base64.getEncoder().encodeToString(String.format("%s:%s", username, password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static HttpClient createHttpClient()
+    {
+        return HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).followRedirects(HttpClient.Redirect.NEVER).build();
+    }
+
+    @Override
+    public WebDavResponse execute(WebDavRequest request) throws Exception
+    {
+        try
+        {
+            return executeAsync(request).get();
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof Exception)
+                throw (Exception) e.getCause();
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<WebDavResponse> executeAsync(WebDavRequest request)
+    {
+        HttpRequest httpRequest;
+        try
+        {
+            httpRequest = createRequest(request);
+        }
+        catch (Exception e)
+        {
+            return CompletableFuture.failedFuture(e);
+        }
+        long start = System.nanoTime();
+        CompletableFuture<WebDavResponse> response = httpClient.sendAsync(httpRequest, BodyHandlers.ofInputStream())
+                .thenApply(JdkHttpTransport::toWebDavResponse);
+        if (metrics == null)
+            return response;
+        return response.whenComplete((result, error) -> metrics.record(request.getMethod(), result != null ? result.getStatus() : 0,
+                System.nanoTime() - start, request.getContentLength(), result != null && !"HEAD".equals(request.getMethod()) ? result.getContentLength() : -1));
+    }
+
+    protected HttpRequest createRequest(WebDavRequest request) throws FileNotFoundException
+    {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(request.getUri()));
+        BodyPublisher body = BodyPublishers.noBody();
+        if (request.getBody() != null)
+            body = BodyPublishers.ofByteArray(request.getBody());
+        else if (request.getBodyFile() != null)
+            body = BodyPublishers.ofFile(request.getBodyFile().toPath());
+        builder.method(request.getMethod(), body);
+        if (request.getContentType() != null)
+            builder.header("Content-Type", request.getContentType());
+        if (authorization != null)
+            builder.header("Authorization", authorization);
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet())
+        {
+            if ("Expect".equalsIgnoreCase(header.getKey()))
+                builder.expectContinue(true);
+            else if (!RESTRICTED_HEADERS.contains(header.getKey()))
+                builder.header(header.getKey(), header.getValue());
+        }
+        return builder.build();
+    }
+
+    private static WebDavResponse toWebDavResponse(HttpResponse<InputStream> response)
+    {
+        // closing the body stream gives the connection back to the JDK client
+        return new WebDavResponse(response.statusCode(), response.headers().map(), response.body(), null);
+    }
+
+    @Override
+    public void close()
+    {
+        // the JDK client is shared and releases its connections when it is no longer referenced
+    }
+}
@@ -0,0 +1,242 @@
+package org.alfresco.webdav.http;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.alfresco.webdav.WebDavProperties;
+import org.alfresco.webdav.metrics.ClientMetrics;
+import org.alfresco.webdav.metrics.InstrumentedHttpClient;
+import org.apache.commons.httpclient.Credentials;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.UsernamePasswordCredentials;
+import org.apache.commons.httpclient.auth.AuthScope;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Process wide HTTP connection pool shared by all {@link org.alfresco.webdav.WebDavWrapper} sessions.
+ * Connections are pooled per host, so a new session reuses the warm connections left by the previous ones.
+ * Credentials are not part of the pool: each {@link HttpClient} created here keeps them in its own state.
+ */
+@Component
+public class WebDavConnectionPool implements DisposableBean
+{
+    public static final String TRANSPORT_JDK = "jdk";
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger(1);
+
+    @Autowired
+    private WebDavProperties webDavProperties;
+
+    private MultiThreadedHttpConnectionManager connectionManager;
+    private IdleConnectionTimeoutThread idleConnectionEvictor;
+    private java.net.http.HttpClient jdkHttpClient;
+    private ExecutorService asyncExecutor;
+    private ScheduledExecutorService scheduler;
+    private ClientMetrics metrics;
+    private ObjectName metricsName;
+
+    /**
+     * @return a new client using the shared connections, without any credentials
+     */
+    public HttpClient createHttpClient()
+    {
+        ClientMetrics clientMetrics = getMetrics();
+        if (clientMetrics != null)
+            return new InstrumentedHttpClient(getConnectionManager(), clientMetrics);
+        return new HttpClient(getConnectionManager());
+    }
+
+    /**
+     * @param credentials credentials of the user that will use this client
+     * @return a new client using the shared connections, authenticated with the given credentials
+     */
+    public HttpClient createHttpClient(Credentials credentials)
+    {
+        HttpClient client = createHttpClient();
+        client.getState().setCredentials(AuthScope.ANY, credentials);
+        return client;
+    }
+
+    /**
+     * Create the transport configured with webdav.transport for one user
+     *
+     * @param username
+     * @param password
+     * @return a transport sharing the connections of this pool
+     */
+    public WebDavTransport createTransport(String username, String password)
+    {
+        if (TRANSPORT_JDK.equalsIgnoreCase(webDavProperties.getTransport()))
+            return new JdkHttpTransport(getJdkHttpClient(), username, password, getMetrics());
+        return new HttpClientTransport(createHttpClient(new UsernamePasswordCredentials(username, password)), getAsyncExecutor());
+    }
+
+    /**
+     * Create the transport configured with webdav.transport for anonymous requests
+     *
+     * @return a transport sharing the connections of this pool, without any credentials
+     */
+    public WebDavTransport createTransport()
+    {
+        if (TRANSPORT_JDK.equalsIgnoreCase(webDavProperties.getTransport()))
+            return new JdkHttpTransport(getJdkHttpClient(), null, null, getMetrics());
+        return new HttpClientTransport(createHttpClient(), getAsyncExecutor());
+    }
+
+    public synchronized java.net.http.HttpClient getJdkHttpClient()
+    {
+        if (jdkHttpClient == null)
+            jdkHttpClient = JdkHttpTransport.createHttpClient();
+        return jdkHttpClient;
+    }
+
+    /**
+     * @return executor running the asynchronous requests of the blocking transports, bounded by the total number of connections
+     */
+    public synchronized ExecutorService getAsyncExecutor()
+    {
+        if (asyncExecutor == null)
+        {
+            AtomicInteger threadCount = new AtomicInteger();
+            asyncExecutor = Executors.newFixedThreadPool(webDavProperties.getMaxTotalConnections(), runnable -> {
+                Thread thread = new Thread(runnable, "webdav-async-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return asyncExecutor;
+    }
+
+    /**
+     * @return single thread running the periodic background tasks of the sessions, e.g. lock refreshes; the tasks
+     *         must hand their requests over to the asynchronous transports instead of blocking it
+     */
+    public synchronized ScheduledExecutorService getScheduler()
+    {
+        if (scheduler == null)
+        {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "webdav-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    public synchronized MultiThreadedHttpConnectionManager getConnectionManager()
+    {
+        if (connectionManager == null)
+        {
+            HttpConnectionManagerParams params = new HttpConnectionManagerParams();
+            params.setDefaultMaxConnectionsPerHost(webDavProperties.getMaxConnectionsPerHost());
+            params.setMaxTotalConnections(webDavProperties.getMaxTotalConnections());
+            params.setStaleCheckingEnabled(webDavProperties.isStaleCheckingEnabled());
+            connectionManager = new MultiThreadedHttpConnectionManager();
+            connectionManager.setParams(params);
+
+            idleConnectionEvictor = new IdleConnectionTimeoutThread();
+            idleConnectionEvictor.setName("webdav-idle-connection-evictor");
+            idleConnectionEvictor.setConnectionTimeout(webDavProperties.getIdleConnectionTimeout());
+            idleConnectionEvictor.setTimeoutInterval(webDavProperties.getIdleConnectionCheckInterval());
+            idleConnectionEvictor.addConnectionManager(connectionManager);
+            idleConnectionEvictor.start();
+        }
+        return connectionManager;
+    }
+
+    /**
+     * @return metrics of the requests sent through this pool, registered as an MBean on first use, or null if
+     *         webdav.metrics.enabled is false. The first pool of the process registers them as
+     *         {@value ClientMetrics#OBJECT_NAME}, any other one adds its own "pool" key to that name.
+     */
+    public synchronized ClientMetrics getMetrics()
+    {
+        if (metrics == null && webDavProperties.isMetricsEnabled())
+        {
+            metrics = new ClientMetrics();
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            try
+            {
+                metricsName = mBeanServer.registerMBean(metrics, new ObjectName(ClientMetrics.OBJECT_NAME)).getObjectName();
+            }
+            catch (InstanceAlreadyExistsException e)
+            {
+                try
+                {
+                    metricsName = mBeanServer.registerMBean(metrics,
+                            new ObjectName(String.format("%s,pool=%d", ClientMetrics.OBJECT_NAME, POOL_COUNT.incrementAndGet()))).getObjectName();
+                }
+                catch (JMException notRegistered)
+                {
+                    // the metrics stay available with getMetrics()
+                }
+            }
+            catch (JMException e)
+            {
+                // the metrics stay available with getMetrics()
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * @return number of connections currently opened by the pool
+     */
+    public synchronized int getConnectionsInPool()
+    {
+        return connectionManager == null ? 0 : connectionManager.getConnectionsInPool();
+    }
+
+    @Override
+    public synchronized void destroy()
+    {
+        if (asyncExecutor != null)
+        {
+            asyncExecutor.shutdownNow();
+            asyncExecutor = null;
+        }
+        if (scheduler != null)
+        {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        jdkHttpClient = null;
+        if (metricsName != null)
+        {
+            try
+            {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+            }
+            catch (JMException e)
+            {
+                // already unregistered
+            }
+            metricsName = null;
+        }
+        metrics = null;
+        if (idleConnectionEvictor != null)
+        {
+            idleConnectionEvictor.shutdown();
+            idleConnectionEvictor = null;
+        }
+        if (connectionManager != null)
+        {
+            connectionManager.shutdown();
+            connectionManager = null;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.alfresco.webdav.http;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A raw WebDAV request executed by a {@link WebDavTransport}.
+ * The body is either kept in memory or streamed from a local file.
+ */
+public class WebDavRequest
+{
+    private final String method;
+    private final String uri;
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private byte[] body;
+    private File bodyFile;
+    private String contentType;
+
+    public WebDavRequest(String method, String uri)
+    {
+        this.method = method;
+        this.uri = uri;
+    }
+
+    public WebDavRequest header(String name, String value)
+    {
+        headers.put(name, value);
+        return this;
+    }
+
+    public WebDavRequest body(byte[] body, String contentType)
+    {
+        this.body = body;
+        this.bodyFile = null;
+        this.contentType = contentType;
+        return this;
+    }
+
+    public WebDavRequest body(File bodyFile, String contentType)
+    {
+        this.bodyFile = bodyFile;
+        this.body = null;
+        this.contentType = contentType;
+        return this;
+    }
+
+    public String getMethod()
+    {
+        return method;
+    }
+
+    public String getUri()
+    {
+        return uri;
+    }
+
+    public Map<String, String> getHeaders()
+    {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    public byte[] getBody()
+    {
+        return body;
+    }
+
+    public File getBodyFile()
+    {
+        return bodyFile;
+    }
+
+    public String getContentType()
+    {
+        return contentType;
+    }
+
+    public boolean hasBody()
+    {
+        return body != null || bodyFile != null;
+    }
+
+    /**
+     * @return length of the body in bytes, 0 if the request has no body
+     */
+    public long getContentLength()
+    {
+        if (body != null)
+            return body.length;
+        if (bodyFile != null)
+            return bodyFile.length();
+        return 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s %s", method, uri);
+    }
+}
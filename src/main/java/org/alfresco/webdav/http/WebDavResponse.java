@@ -0,0 +1,96 @@
+package org.alfresco.webdav.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Response of a {@link WebDavRequest}. The body is not read until {@link #getBody()} is called,
+ * so the response must always be closed in order to give the connection back to the transport.
+ */
+public class WebDavResponse implements Closeable
+{
+    private final int status;
+    private final Map<String, List<String>> headers;
+    private final InputStream body;
+    private final Closeable onClose;
+
+    public WebDavResponse(int status, Map<String, List<String>> headers, InputStream body, Closeable onClose)
+    {
+        this.status = status;
+        Map<String, List<String>> caseInsensitiveHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        caseInsensitiveHeaders.putAll(headers);
+        this.headers = Collections.unmodifiableMap(caseInsensitiveHeaders);
+        this.body = body != null ? body : new ByteArrayInputStream(new byte[0]);
+        this.onClose = onClose;
+    }
+
+    public int getStatus()
+    {
+        return status;
+    }
+
+    public Map<String, List<String>> getHeaders()
+    {
+        return headers;
+    }
+
+    /**
+     * @param name header name, case insensitive
+     * @return first value of the header or null if the response does not have it
+     */
+    public String getHeader(String name)
+    {
+        List<String> values = headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * @return value of the Content-Length header or -1 if the length is unknown (e.g. chunked responses) or the header
+     *         is malformed
+     */
+    public long getContentLength()
+    {
+        String contentLength = getHeader("Content-Length");
+        if (contentLength == null)
+            return -1;
+        try
+        {
+            long length = Long.parseLong(contentLength.trim());
+            return length < 0 ? -1 : length;
+        }
+        catch (NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+
+    public InputStream getBody()
+    {
+        return body;
+    }
+
+    public byte[] getBodyAsBytes() throws IOException
+    {
+        return body.readAllBytes();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            body.close();
+        }
+        finally
+        {
+            if (onClose != null)
+                onClose.close();
+        }
+    }
+}
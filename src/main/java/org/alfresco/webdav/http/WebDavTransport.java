@@ -0,0 +1,30 @@
+package org.alfresco.webdav.http;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HTTP engine used underneath {@link org.alfresco.webdav.WebDavWrapper}.
+ * Implementations are thread safe and already authenticated with the credentials of one user.
+ * <p>
+ * {@link HttpClientTransport} is the default one, {@link JdkHttpTransport} is the non blocking alternative.
+ */
+public interface WebDavTransport extends Closeable
+{
+    /**
+     * Execute the request and wait for the response headers
+     *
+     * @param request
+     * @return the response, that must be closed by the caller
+     * @throws Exception
+     */
+    WebDavResponse execute(WebDavRequest request) throws Exception;
+
+    /**
+     * Execute the request without blocking the calling thread
+     *
+     * @param request
+     * @return a future completed with the response, that must be closed by the caller
+     */
+    CompletableFuture<WebDavResponse> executeAsync(WebDavRequest request);
+}
@@ -0,0 +1,71 @@
+package org.alfresco.webdav.listing;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Outcome of a {@link TreeCrawler} traversal
+ */
+public class CrawlReport
+{
+    private final String rootUri;
+    private final long resources;
+    private final long collections;
+    private final Map<String, Exception> failures;
+    private final long durationNanos;
+
+    public CrawlReport(String rootUri, long resources, long collections, Map<String, Exception> failures, long durationNanos)
+    {
+        this.rootUri = rootUri;
+        this.resources = resources;
+        this.collections = collections;
+        this.failures = Collections.unmodifiableMap(failures);
+        this.durationNanos = durationNanos;
+    }
+
+    public String getRootUri()
+    {
+        return rootUri;
+    }
+
+    /**
+     * @return number of resources emitted, the root included
+     */
+    public long getResources()
+    {
+        return resources;
+    }
+
+    /**
+     * @return number of collections listed
+     */
+    public long getCollections()
+    {
+        return collections;
+    }
+
+    /**
+     * @return error of each collection that could not be listed, keyed by its URI
+     */
+    public Map<String, Exception> getFailures()
+    {
+        return failures;
+    }
+
+    public boolean isSuccessful()
+    {
+        return failures.isEmpty();
+    }
+
+    public long getDurationNanos()
+    {
+        return durationNanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("CrawlReport[root=%s, resources=%d, collections=%d, failures=%d, duration=%dms]", rootUri, resources, collections,
+                failures.size(), durationNanos / 1_000_000);
+    }
+}
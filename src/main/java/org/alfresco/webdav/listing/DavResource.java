@@ -0,0 +1,101 @@
+package org.alfresco.webdav.listing;
+
+/**
+ * One resource of a multistatus response, with the properties read by {@link MultiStatusReader}
+ */
+public class DavResource
+{
+    private final String href;
+    private final int status;
+    private final boolean collection;
+    private final long contentLength;
+    private final String etag;
+    private final String lastModified;
+    private final boolean locked;
+
+    public DavResource(String href, int status, boolean collection, long contentLength, String etag, String lastModified, boolean locked)
+    {
+        this.href = href;
+        this.status = status;
+        this.collection = collection;
+        this.contentLength = contentLength;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.locked = locked;
+    }
+
+    /**
+     * @return unescaped path of the resource, as sent by the server (e.g. /alfresco/webdav/Sites/site/documentLibrary/file.txt)
+     */
+    public String getHref()
+    {
+        return href;
+    }
+
+    /**
+     * @return last segment of the path
+     */
+    public String getName()
+    {
+        String path = href.endsWith("/") ? href.substring(0, href.length() - 1) : href;
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * @return status of the resource, 200 unless the server reported an error for it
+     */
+    public int getStatus()
+    {
+        return status;
+    }
+
+    public boolean isCollection()
+    {
+        return collection;
+    }
+
+    /**
+     * @return getcontentlength or -1 if the server did not send it
+     */
+    public long getContentLength()
+    {
+        return contentLength;
+    }
+
+    public String getEtag()
+    {
+        return etag;
+    }
+
+    /**
+     * @return getlastmodified as sent by the server (RFC 1123 date)
+     */
+    public String getLastModified()
+    {
+        return lastModified;
+    }
+
+    /**
+     * @return true if lockdiscovery reported an active lock
+     */
+    public boolean isLocked()
+    {
+        return locked;
+    }
+
+    /**
+     * @return ETag and last modification date combined, null if the server sent none of them
+     */
+    public String getValidator()
+    {
+        if (etag == null && lastModified == null)
+            return null;
+        return String.format("%s|%s", etag, lastModified);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s%s", href, collection ? " (collection)" : "");
+    }
+}
@@ -0,0 +1,175 @@
+package org.alfresco.webdav.listing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.alfresco.utility.model.ContentModel;
+import org.alfresco.utility.model.FileModel;
+import org.alfresco.utility.model.FolderModel;
+
+/**
+ * Immutable listing of a location, indexed by name and by path, so that membership checks take constant time whatever
+ * the size of the folder. Bulk checks return every mismatch at once.
+ */
+public class ListingSnapshot
+{
+    private final String location;
+    private final Map<String, ContentModel> byName;
+    private final Map<String, ContentModel> folders;
+    private final Map<String, ContentModel> files;
+    private final Map<String, ContentModel> byPath;
+
+    /**
+     * @param location listed location
+     * @param contents children of the location, {@link FolderModel} for folders and {@link FileModel} for files
+     */
+    public ListingSnapshot(String location, Collection<? extends ContentModel> contents)
+    {
+        Map<String, ContentModel> byName = new LinkedHashMap<>();
+        Map<String, ContentModel> folders = new HashMap<>();
+        Map<String, ContentModel> files = new HashMap<>();
+        Map<String, ContentModel> byPath = new HashMap<>();
+        for (ContentModel content : contents)
+        {
+            byName.putIfAbsent(content.getName(), content);
+            if (content instanceof FolderModel)
+                folders.putIfAbsent(content.getName(), content);
+            else if (content instanceof FileModel)
+                files.putIfAbsent(content.getName(), content);
+            if (content.getCmisLocation() != null)
+                byPath.putIfAbsent(normalize(content.getCmisLocation()), content);
+        }
+        this.location = location;
+        this.byName = Collections.unmodifiableMap(byName);
+        this.folders = Collections.unmodifiableMap(folders);
+        this.files = Collections.unmodifiableMap(files);
+        this.byPath = Collections.unmodifiableMap(byPath);
+    }
+
+    public String getLocation()
+    {
+        return location;
+    }
+
+    /**
+     * @return number of distinct names
+     */
+    public int size()
+    {
+        return byName.size();
+    }
+
+    public Collection<ContentModel> getContents()
+    {
+        return byName.values();
+    }
+
+    /**
+     * @return the content with the given name or null
+     */
+    public ContentModel getByName(String name)
+    {
+        return byName.get(name);
+    }
+
+    /**
+     * @param path CMIS location of the content, e.g. /Sites/site/documentLibrary/file.txt
+     * @return the content with the given path or null
+     */
+    public ContentModel getByPath(String path)
+    {
+        return byPath.get(normalize(path));
+    }
+
+    public boolean contains(String name)
+    {
+        return byName.containsKey(name);
+    }
+
+    public boolean containsFolder(String name)
+    {
+        return folders.containsKey(name);
+    }
+
+    public boolean containsFile(String name)
+    {
+        return files.containsKey(name);
+    }
+
+    /**
+     * A {@link FolderModel} is searched among the folders, a {@link FileModel} among the files and any other model by name only
+     *
+     * @return true if the listing has the given content
+     */
+    public boolean contains(ContentModel content)
+    {
+        if (content instanceof FolderModel)
+            return containsFolder(content.getName());
+        if (content instanceof FileModel)
+            return containsFile(content.getName());
+        return contains(content.getName());
+    }
+
+    /**
+     * @return names of the expected contents that are not in the listing, empty if it contains all of them
+     */
+    public List<String> missing(Collection<? extends ContentModel> expected)
+    {
+        List<String> missing = new ArrayList<>();
+        for (ContentModel content : expected)
+        {
+            if (!contains(content))
+                missing.add(content.getName());
+        }
+        return missing;
+    }
+
+    /**
+     * @return names of the given contents that are in the listing, empty if it contains none of them
+     */
+    public List<String> present(Collection<? extends ContentModel> unexpected)
+    {
+        List<String> present = new ArrayList<>();
+        for (ContentModel content : unexpected)
+        {
+            if (contains(content))
+                present.add(content.getName());
+        }
+        return present;
+    }
+
+    /**
+     * @return names in the listing that are not one of the expected contents, empty if the listing has nothing else
+     */
+    public List<String> unexpected(Collection<? extends ContentModel> expected)
+    {
+        Set<String> expectedNames = new HashSet<>();
+        for (ContentModel content : expected)
+            expectedNames.add(content.getName());
+        List<String> unexpected = new ArrayList<>();
+        for (String name : byName.keySet())
+        {
+            if (!expectedNames.contains(name))
+                unexpected.add(name);
+        }
+        return unexpected;
+    }
+
+    private static String normalize(String path)
+    {
+        return path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("ListingSnapshot[%s, %d folders, %d files, %d contents]", location, folders.size(), files.size(), byName.size());
+    }
+}
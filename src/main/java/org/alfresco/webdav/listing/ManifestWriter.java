@@ -0,0 +1,109 @@
+package org.alfresco.webdav.listing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.jackrabbit.webdav.util.EncodeUtil;
+
+/**
+ * Writes crawled resources into a manifest file, one tab separated line per resource:
+ * escaped path, "C" for a collection or "F", content length, ETag, last modification date and "L" if the resource is
+ * locked or "-". Missing values are written as "-". A file name ending with ".gz" is compressed.
+ * <p>
+ * The writer is thread safe, so it can be used as the sink of a {@link TreeCrawler}.
+ */
+public class ManifestWriter implements Consumer<DavResource>, Closeable
+{
+    private static final String NONE = "-";
+
+    private final BufferedWriter writer;
+
+    public ManifestWriter(Path file) throws IOException
+    {
+        OutputStream out = Files.newOutputStream(file);
+        if (isCompressed(file))
+            out = new GZIPOutputStream(out, 64 * 1024);
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    @Override
+    public synchronized void accept(DavResource resource)
+    {
+        try
+        {
+            writer.write(String.join("\t", EncodeUtil.escapePath(resource.getHref()), resource.isCollection() ? "C" : "F",
+                    String.valueOf(resource.getContentLength()), orNone(resource.getEtag()), orNone(resource.getLastModified()),
+                    resource.isLocked() ? "L" : NONE));
+            writer.newLine();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        writer.close();
+    }
+
+    /**
+     * Read a manifest, e.g. to compare two crawls of the same tree
+     *
+     * @param file manifest written by this class
+     * @return resources keyed by their unescaped path, in the order of the file
+     * @throws IOException
+     */
+    public static Map<String, DavResource> read(Path file) throws IOException
+    {
+        Map<String, DavResource> resources = new LinkedHashMap<>();
+        InputStream in = Files.newInputStream(file);
+        if (isCompressed(file))
+            in = new GZIPInputStream(in, 64 * 1024);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                String[] fields = line.split("\t", -1);
+                if (fields.length < 6)
+                    throw new IOException(String.format("Invalid manifest line in %s: %s", file, line));
+                String href = EncodeUtil.unescape(fields[0]);
+                resources.put(href, new DavResource(href, 200, "C".equals(fields[1]), Long.parseLong(fields[2]), fromNone(fields[3]),
+                        fromNone(fields[4]), "L".equals(fields[5])));
+            }
+        }
+        return resources;
+    }
+
+    private static boolean isCompressed(Path file)
+    {
+        return file.getFileName().toString().endsWith(".gz");
+    }
+
+    private static String orNone(String value)
+    {
+        return value == null ? NONE : value;
+    }
+
+    private static String fromNone(String value)
+    {
+        return NONE.equals(value) ? null : value;
+    }
+}
@@ -0,0 +1,331 @@
+package org.alfresco.webdav.listing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.alfresco.webdav.http.WebDavRequest;
+import org.alfresco.webdav.http.WebDavResponse;
+import org.alfresco.webdav.http.WebDavTransport;
+import org.apache.jackrabbit.webdav.DavConstants;
+import org.apache.jackrabbit.webdav.DavException;
+import org.apache.jackrabbit.webdav.DavMethods;
+import org.apache.jackrabbit.webdav.DavServletResponse;
+import org.apache.jackrabbit.webdav.property.DavPropertyName;
+import org.apache.jackrabbit.webdav.property.DavPropertyNameIterator;
+import org.apache.jackrabbit.webdav.property.DavPropertyNameSet;
+import org.apache.jackrabbit.webdav.util.EncodeUtil;
+
+/**
+ * Pull parser of a PROPFIND multistatus response.
+ * <p>
+ * Resources are read one at a time from the response stream, while it is still arriving, so the memory used does not
+ * depend on the number of resources. Only the properties of a 200 propstat are kept.
+ */
+public class MultiStatusReader implements Iterator<DavResource>, Closeable
+{
+    private static final String DAV = DavConstants.NAMESPACE.getURI();
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    private final InputStream in;
+    private final XMLStreamReader reader;
+    private DavResource next;
+    private boolean finished;
+
+    public MultiStatusReader(InputStream in) throws XMLStreamException
+    {
+        this.in = in;
+        this.reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+    }
+
+    /**
+     * @return the remaining resources as a stream that closes this reader when it is closed
+     */
+    public Stream<DavResource> stream()
+    {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(() -> {
+            try
+            {
+                close();
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Send a PROPFIND and parse the multistatus response while it arrives. The stream holds the connection until it is closed.
+     *
+     * @param transport transport of the user sending the request
+     * @param uri escaped URI of a resource or collection
+     * @param properties requested properties
+     * @param depth {@link DavConstants#DEPTH_0}, {@link DavConstants#DEPTH_1} or {@link DavConstants#DEPTH_INFINITY}
+     * @return one resource for each response element
+     * @throws DavException if the server does not answer with a multistatus, e.g. when the resource does not exist
+     * @throws Exception
+     */
+    public static Stream<DavResource> propFind(WebDavTransport transport, String uri, DavPropertyNameSet properties, int depth) throws Exception
+    {
+        WebDavResponse response = transport.execute(createPropFindRequest(uri, properties, depth));
+        try
+        {
+            if (response.getStatus() != DavServletResponse.SC_MULTI_STATUS)
+                throw new DavException(response.getStatus(), String.format("PROPFIND %s returned %d", uri, response.getStatus()));
+            return new MultiStatusReader(response.getBody()).stream().onClose(() -> {
+                try
+                {
+                    response.close();
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (Exception e)
+        {
+            response.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param uri escaped URI of a resource or collection
+     * @param properties requested properties
+     * @param depth {@link DavConstants#DEPTH_0}, {@link DavConstants#DEPTH_1} or {@link DavConstants#DEPTH_INFINITY}
+     * @return a PROPFIND request asking for the given properties
+     */
+    public static WebDavRequest createPropFindRequest(String uri, DavPropertyNameSet properties, int depth)
+    {
+        return new WebDavRequest(DavMethods.METHOD_PROPFIND, uri)
+                .header(DavConstants.HEADER_DEPTH, depth == DavConstants.DEPTH_INFINITY ? DavConstants.DEPTH_INFINITY_S : String.valueOf(depth))
+                .body(createPropFindBody(properties), "text/xml; charset=UTF-8");
+    }
+
+    /**
+     * @param properties
+     * @return the body of a PROPFIND request asking for the given properties
+     */
+    public static byte[] createPropFindBody(DavPropertyNameSet properties)
+    {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><D:propfind xmlns:D=\"DAV:\"><D:prop>");
+        Map<String, String> prefixes = new HashMap<>();
+        DavPropertyNameIterator names = properties.iterator();
+        while (names.hasNext())
+        {
+            DavPropertyName name = names.nextPropertyName();
+            String namespace = name.getNamespace().getURI();
+            if (DAV.equals(namespace))
+                xml.append("<D:").append(name.getName()).append("/>");
+            else
+            {
+                String prefix = prefixes.computeIfAbsent(namespace, uri -> "ns" + prefixes.size());
+                xml.append(String.format("<%s:%s xmlns:%s=\"%s\"/>", prefix, name.getName(), prefix, namespace));
+            }
+        }
+        xml.append("</D:prop></D:propfind>");
+        return xml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if (next == null && !finished)
+            next = readNext();
+        return next != null;
+    }
+
+    @Override
+    public DavResource next()
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        DavResource resource = next;
+        next = null;
+        return resource;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        finished = true;
+        try
+        {
+            reader.close();
+        }
+        catch (XMLStreamException e)
+        {
+            throw new IOException(e);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private DavResource readNext()
+    {
+        try
+        {
+            while (reader.hasNext())
+            {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && isDav(DavConstants.XML_RESPONSE))
+                    return readResponse();
+            }
+            finished = true;
+            return null;
+        }
+        catch (XMLStreamException e)
+        {
+            throw new IllegalStateException("Invalid multistatus response", e);
+        }
+    }
+
+    private DavResource readResponse() throws XMLStreamException
+    {
+        String href = null;
+        int status = 200;
+        PropStat found = new PropStat();
+        while (reader.hasNext())
+        {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT && isDav(DavConstants.XML_RESPONSE))
+                break;
+            if (event != XMLStreamConstants.START_ELEMENT)
+                continue;
+            if (isDav(DavConstants.XML_HREF))
+                href = toPath(reader.getElementText().trim());
+            else if (isDav(DavConstants.XML_STATUS))
+                status = parseStatus(reader.getElementText());
+            else if (isDav(DavConstants.XML_PROPSTAT))
+            {
+                PropStat propStat = readPropStat();
+                if (propStat.status == 200)
+                    found = propStat;
+            }
+        }
+        return new DavResource(href, status, found.collection, found.contentLength, found.etag, found.lastModified, found.locked);
+    }
+
+    private PropStat readPropStat() throws XMLStreamException
+    {
+        PropStat propStat = new PropStat();
+        while (reader.hasNext())
+        {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT && isDav(DavConstants.XML_PROPSTAT))
+                break;
+            if (event != XMLStreamConstants.START_ELEMENT)
+                continue;
+            if (isDav(DavConstants.XML_STATUS))
+                propStat.status = parseStatus(reader.getElementText());
+            else if (isDav(DavConstants.PROPERTY_RESOURCETYPE))
+                propStat.collection = containsChild(DavConstants.PROPERTY_RESOURCETYPE, "collection");
+            else if (isDav(DavConstants.PROPERTY_GETCONTENTLENGTH))
+            {
+                String length = reader.getElementText().trim();
+                propStat.contentLength = length.isEmpty() ? -1 : Long.parseLong(length);
+            }
+            else if (isDav(DavConstants.PROPERTY_GETETAG))
+                propStat.etag = emptyToNull(reader.getElementText());
+            else if (isDav(DavConstants.PROPERTY_GETLASTMODIFIED))
+                propStat.lastModified = emptyToNull(reader.getElementText());
+            else if (isDav(DavConstants.PROPERTY_LOCKDISCOVERY))
+                propStat.locked = containsChild(DavConstants.PROPERTY_LOCKDISCOVERY, DavConstants.XML_ACTIVELOCK);
+        }
+        return propStat;
+    }
+
+    /**
+     * Read the current element until its end
+     *
+     * @return true if it contains a DAV element with the given name
+     */
+    private boolean containsChild(String element, String child) throws XMLStreamException
+    {
+        boolean found = false;
+        while (reader.hasNext())
+        {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT && isDav(element))
+                break;
+            if (event == XMLStreamConstants.START_ELEMENT && isDav(child))
+                found = true;
+        }
+        return found;
+    }
+
+    private boolean isDav(String localName)
+    {
+        return localName.equals(reader.getLocalName()) && DAV.equals(reader.getNamespaceURI());
+    }
+
+    /**
+     * @return unescaped path of an href, that can be sent as a path or as an absolute URL
+     */
+    private static String toPath(String href)
+    {
+        String path = href;
+        int scheme = path.indexOf("://");
+        if (scheme > 0)
+        {
+            int pathStart = path.indexOf('/', scheme + 3);
+            path = pathStart < 0 ? "/" : path.substring(pathStart);
+        }
+        return EncodeUtil.unescape(path);
+    }
+
+    /**
+     * @param statusLine e.g. "HTTP/1.1 200 OK"
+     */
+    private static int parseStatus(String statusLine)
+    {
+        String[] parts = statusLine.trim().split(" ");
+        return parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+    }
+
+    private static String emptyToNull(String text)
+    {
+        String trimmed = text.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static XMLInputFactory createXmlInputFactory()
+    {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Properties read from one propstat element
+     */
+    private static class PropStat
+    {
+        private int status;
+        private boolean collection;
+        private long contentLength = -1;
+        private String etag;
+        private String lastModified;
+        private boolean locked;
+    }
+}
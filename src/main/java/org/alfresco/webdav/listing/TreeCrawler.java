@@ -0,0 +1,165 @@
+package org.alfresco.webdav.listing;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.alfresco.webdav.dsl.PropertySelection;
+import org.alfresco.webdav.http.WebDavTransport;
+import org.apache.jackrabbit.webdav.DavConstants;
+import org.apache.jackrabbit.webdav.util.EncodeUtil;
+
+/**
+ * Traverses a WebDAV subtree in parallel.
+ * <p>
+ * Each collection is listed by a depth 1 PROPFIND in its own fork-join task, so idle workers steal the listing of
+ * sibling collections. At most {@code concurrency} PROPFINDs are in flight. Every resource is handed to the sink as
+ * soon as it is parsed, so the memory used does not depend on the size of the tree. A collection that cannot be listed
+ * is reported in {@link CrawlReport#getFailures()} and the rest of the tree is still crawled.
+ */
+public class TreeCrawler
+{
+    private static final AtomicInteger CRAWLER_COUNT = new AtomicInteger();
+
+    private final WebDavTransport transport;
+    private final int concurrency;
+
+    /**
+     * @param transport transport of the user crawling the tree
+     * @param concurrency maximal number of PROPFIND requests in flight
+     */
+    public TreeCrawler(WebDavTransport transport, int concurrency)
+    {
+        this.transport = transport;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Crawl a collection and all its descendants
+     *
+     * @param rootUri escaped absolute URI of the collection
+     * @param sink receives the root and every descendant, called from several threads
+     * @return
+     */
+    public CrawlReport crawl(String rootUri, Consumer<DavResource> sink)
+    {
+        long start = System.nanoTime();
+        URI root = URI.create(rootUri);
+        String server = String.format("%s://%s", root.getScheme(), root.getRawAuthority());
+        Crawl crawl = new Crawl(server, sink);
+
+        int crawlerId = CRAWLER_COUNT.incrementAndGet();
+        AtomicInteger threadCount = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(concurrency, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName(String.format("webdav-crawl-%d-%d", crawlerId, threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        try
+        {
+            pool.invoke(new CollectionTask(crawl, rootUri, true));
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+        return new CrawlReport(rootUri, crawl.resources.get(), crawl.collections.get(), crawl.failures, System.nanoTime() - start);
+    }
+
+    /**
+     * State shared by the tasks of one crawl
+     */
+    private class Crawl
+    {
+        private final String server;
+        private final Consumer<DavResource> sink;
+        private final Semaphore inFlight = new Semaphore(concurrency);
+        private final AtomicLong resources = new AtomicLong();
+        private final AtomicLong collections = new AtomicLong();
+        private final Map<String, Exception> failures = new ConcurrentHashMap<>();
+
+        private Crawl(String server, Consumer<DavResource> sink)
+        {
+            this.server = server;
+            this.sink = sink;
+        }
+
+        private void emit(DavResource resource)
+        {
+            resources.incrementAndGet();
+            sink.accept(resource);
+        }
+    }
+
+    private class CollectionTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Crawl crawl;
+        private final String uri;
+        private final boolean root;
+
+        private CollectionTask(Crawl crawl, String uri, boolean root)
+        {
+            this.crawl = crawl;
+            this.uri = uri;
+            this.root = root;
+        }
+
+        @Override
+        protected void compute()
+        {
+            String path = normalize(URI.create(uri).getPath());
+            List<CollectionTask> children = new ArrayList<>();
+            try
+            {
+                crawl.inFlight.acquire();
+                try (Stream<DavResource> resources = MultiStatusReader.propFind(transport, uri, PropertySelection.manifest(), DavConstants.DEPTH_1))
+                {
+                    crawl.collections.incrementAndGet();
+                    resources.forEach(resource -> {
+                        if (normalize(resource.getHref()).equals(path))
+                        {
+                            if (root)
+                                crawl.emit(resource);
+                            return;
+                        }
+                        crawl.emit(resource);
+                        if (resource.isCollection())
+                            children.add(new CollectionTask(crawl, crawl.server + EncodeUtil.escapePath(resource.getHref()), false));
+                    });
+                }
+                finally
+                {
+                    crawl.inFlight.release();
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                crawl.failures.put(uri, e);
+            }
+            catch (Exception e)
+            {
+                crawl.failures.put(uri, e);
+            }
+            invokeAll(children);
+        }
+    }
+
+    private static String normalize(String path)
+    {
+        return path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+}
@@ -0,0 +1,84 @@
+package org.alfresco.webdav.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Thread safe latency histograms, one per operation, in microseconds
+ */
+public class LatencyRecorder
+{
+    /**
+     * Longest latency tracked, longer ones are recorded as this value
+     */
+    public static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<LoadOperation, Histogram> histograms = new EnumMap<>(LoadOperation.class);
+    private final Map<LoadOperation, AtomicLong> errors = new EnumMap<>(LoadOperation.class);
+    private final Map<LoadOperation, AtomicReference<Throwable>> lastErrors = new EnumMap<>(LoadOperation.class);
+
+    public LatencyRecorder()
+    {
+        for (LoadOperation operation : LoadOperation.values())
+        {
+            histograms.put(operation, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS));
+            errors.put(operation, new AtomicLong());
+            lastErrors.put(operation, new AtomicReference<>());
+        }
+    }
+
+    /**
+     * Record the latency of one operation.
+     * <p>
+     * With an expected interval, the operations that a slow response prevented from being sent are back-filled as in
+     * {@link Histogram#recordValueWithExpectedInterval(long, long)}, which corrects the coordinated omission of a closed loop.
+     *
+     * @param operation
+     * @param latencyNanos
+     * @param expectedIntervalNanos interval at which the user should send operations, 0 for no correction
+     * @param error null if the operation succeeded, otherwise the cause of its failure, counted as an error
+     */
+    public void record(LoadOperation operation, long latencyNanos, long expectedIntervalNanos, Throwable error)
+    {
+        long latency = Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS);
+        long expectedInterval = TimeUnit.NANOSECONDS.toMicros(expectedIntervalNanos);
+        if (expectedInterval > 0)
+            histograms.get(operation).recordValueWithExpectedInterval(latency, expectedInterval);
+        else
+            histograms.get(operation).recordValue(latency);
+        if (error != null)
+        {
+            errors.get(operation).incrementAndGet();
+            lastErrors.get(operation).set(error);
+        }
+    }
+
+    /**
+     * @return latencies of the operation in microseconds, live
+     */
+    public Histogram getHistogram(LoadOperation operation)
+    {
+        return histograms.get(operation);
+    }
+
+    public long getErrors(LoadOperation operation)
+    {
+        return errors.get(operation).get();
+    }
+
+    /**
+     * @return cause of the last failure of the operation, or null
+     */
+    public Throwable getLastError(LoadOperation operation)
+    {
+        return lastErrors.get(operation).get();
+    }
+}
@@ -0,0 +1,232 @@
+package org.alfresco.webdav.load;
+
+import static org.alfresco.utility.report.log.Step.STEP;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.alfresco.webdav.WebDavWrapper;
+
+/**
+ * Runs a {@link LoadScenario} with one virtual user per WebDAV session and records the latency of every operation.
+ * <p>
+ * Each virtual user first creates its own folders in the current space of its session, so the sessions must be
+ * authenticated and positioned (e.g. with {@link WebDavWrapper#usingSite(String)}) before the run.
+ * <p>
+ * In the closed-loop model, latency is measured from the actual start of each operation and corrected for coordinated
+ * omission with an expected interval, by default the mean think time. In the open-loop model, operations are scheduled
+ * at a constant rate and latency is measured from the scheduled start, so the time spent waiting for an idle user is
+ * part of it.
+ */
+public class LoadGenerator
+{
+    private static final long DRAIN_TIMEOUT_SECONDS = 60;
+    private static final AtomicInteger RUN_COUNT = new AtomicInteger();
+
+    private final LoadScenario scenario;
+    private final List<WebDavWrapper> sessions;
+
+    /**
+     * @param scenario
+     * @param sessions one authenticated session per virtual user
+     */
+    public LoadGenerator(LoadScenario scenario, List<WebDavWrapper> sessions)
+    {
+        if (sessions.isEmpty())
+            throw new IllegalArgumentException("At least one session is needed");
+        this.scenario = scenario;
+        this.sessions = sessions;
+    }
+
+    /**
+     * Run the scenario in a closed loop, correcting coordinated omission with the mean think time of the scenario as
+     * expected interval. A scenario without think time has no expected interval and is not corrected.
+     *
+     * @param duration
+     * @return
+     * @throws Exception
+     */
+    public LoadReport runClosedLoop(Duration duration) throws Exception
+    {
+        return runClosedLoop(duration, scenario.getMeanThinkTime());
+    }
+
+    /**
+     * Run the scenario in a closed loop: each user sends an operation, waits for the response, then thinks
+     *
+     * @param duration
+     * @param expectedInterval interval at which each user is expected to send operations, think time included; a
+     *            longer latency also records the operations it delayed. {@link Duration#ZERO} disables the correction.
+     * @return
+     * @throws Exception
+     */
+    public LoadReport runClosedLoop(Duration duration, Duration expectedInterval) throws Exception
+    {
+        STEP(String.format("%s Run scenario '%s' in closed loop with %d users for %s", WebDavWrapper.STEP_PREFIX, scenario.getName(), sessions.size(),
+                duration));
+        LatencyRecorder recorder = new LatencyRecorder();
+        ExecutorService executor = newExecutor();
+        try
+        {
+            List<VirtualUser> users = setUp(executor);
+            long start = System.nanoTime();
+            long end = start + duration.toNanos();
+            List<Future<?>> loops = new ArrayList<>();
+            for (VirtualUser user : users)
+                loops.add(executor.submit(() -> {
+                    while (System.nanoTime() < end)
+                    {
+                        LoadOperation operation = user.resolve(scenario.nextOperation(user.getRandom()));
+                        execute(user, operation, System.nanoTime(), expectedInterval.toNanos(), recorder);
+                        long thinkTime = Math.min(scenario.nextThinkTime(user.getRandom()), TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()));
+                        if (thinkTime > 0)
+                            Thread.sleep(thinkTime);
+                    }
+                    return null;
+                }));
+            waitFor(loops);
+            return new LoadReport(scenario, LoadModel.CLOSED_LOOP, users.size(), System.nanoTime() - start, recorder);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Run the scenario in an open loop: operations are scheduled at a constant rate, whatever the response times, and
+     * each one is executed by the next idle user. Think times are not used. Operations still queued at the end of the
+     * run are executed, for at most one minute, so that a slow server is not hidden by dropping them; the operations
+     * that did not complete by then are counted in {@link LoadReport#getDroppedOperations()}.
+     *
+     * @param duration
+     * @param operationsPerSecond arrival rate of the operations
+     * @return
+     * @throws Exception
+     */
+    public LoadReport runOpenLoop(Duration duration, double operationsPerSecond) throws Exception
+    {
+        STEP(String.format("%s Run scenario '%s' in open loop with %d users at %.1f operations/s for %s", WebDavWrapper.STEP_PREFIX, scenario.getName(),
+                sessions.size(), operationsPerSecond, duration));
+        LatencyRecorder recorder = new LatencyRecorder();
+        ExecutorService executor = newExecutor();
+        try
+        {
+            List<VirtualUser> users = setUp(executor);
+            BlockingQueue<VirtualUser> idleUsers = new LinkedBlockingQueue<>(users);
+            long period = (long) (TimeUnit.SECONDS.toNanos(1) / operationsPerSecond);
+            AtomicLong completed = new AtomicLong();
+            long start = System.nanoTime();
+            long end = start + duration.toNanos();
+            long arrival = 0;
+            for (;; arrival++)
+            {
+                long intendedStart = start + arrival * period;
+                if (intendedStart >= end)
+                    break;
+                long wait;
+                while ((wait = intendedStart - System.nanoTime()) > 0)
+                    LockSupport.parkNanos(wait);
+                executor.execute(() -> {
+                    VirtualUser user;
+                    try
+                    {
+                        user = idleUsers.take();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    try
+                    {
+                        execute(user, user.resolve(scenario.nextOperation(user.getRandom())), intendedStart, 0, recorder);
+                        completed.incrementAndGet();
+                    }
+                    finally
+                    {
+                        idleUsers.add(user);
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return new LoadReport(scenario, LoadModel.OPEN_LOOP, users.size(), System.nanoTime() - start, arrival - completed.get(), recorder);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private void execute(VirtualUser user, LoadOperation operation, long intendedStart, long expectedIntervalNanos, LatencyRecorder recorder)
+    {
+        Throwable error;
+        try
+        {
+            error = user.execute(operation) ? null : new IllegalStateException(String.format("%s failed with status %d", operation, user.getStatus()));
+        }
+        catch (Exception e)
+        {
+            error = e;
+        }
+        recorder.record(operation, System.nanoTime() - intendedStart, expectedIntervalNanos, error);
+    }
+
+    /**
+     * Create the virtual users and their folders in parallel
+     */
+    private List<VirtualUser> setUp(ExecutorService executor) throws Exception
+    {
+        String runName = String.format("load-%s-%d-%d", scenario.getName(), System.currentTimeMillis(), RUN_COUNT.incrementAndGet());
+        List<VirtualUser> users = new ArrayList<>();
+        List<Future<?>> setUps = new ArrayList<>();
+        for (int i = 0; i < sessions.size(); i++)
+        {
+            VirtualUser user = new VirtualUser(i + 1, sessions.get(i), runName.hashCode() * 31L + i);
+            users.add(user);
+            setUps.add(executor.submit(() -> {
+                user.setUp(runName);
+                return null;
+            }));
+        }
+        waitFor(setUps);
+        return users;
+    }
+
+    private ExecutorService newExecutor()
+    {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(sessions.size(), runnable -> {
+            Thread thread = new Thread(runnable, String.format("webdav-load-%s-%d", scenario.getName(), threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static void waitFor(List<Future<?>> futures) throws Exception
+    {
+        try
+        {
+            for (Future<?> future : futures)
+                future.get();
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof Exception)
+                throw (Exception) e.getCause();
+            throw e;
+        }
+    }
+}
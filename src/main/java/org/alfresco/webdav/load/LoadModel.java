@@ -0,0 +1,17 @@
+package org.alfresco.webdav.load;
+
+/**
+ * How a {@link LoadGenerator} issues operations
+ */
+public enum LoadModel
+{
+    /**
+     * Each virtual user sends its next operation when the previous one completed, after a think time
+     */
+    CLOSED_LOOP,
+
+    /**
+     * Operations arrive at a constant rate whatever the response times, and wait for an idle user
+     */
+    OPEN_LOOP
+}
@@ -0,0 +1,48 @@
+package org.alfresco.webdav.load;
+
+/**
+ * WebDAV operations that a {@link LoadScenario} can mix. Operations on a file use one of the files created by the same
+ * virtual user, and create one first when the user has none.
+ */
+public enum LoadOperation
+{
+    /**
+     * Create a new file in the folder of the user
+     */
+    CREATE_FILE,
+
+    /**
+     * Replace the content of a file
+     */
+    UPDATE,
+
+    /**
+     * List the files of the folder of the user
+     */
+    GET_FILES,
+
+    /**
+     * Lock a file, then unlock it
+     */
+    LOCK_UNLOCK,
+
+    /**
+     * Copy a file in the second folder of the user, replacing the previous copy
+     */
+    COPY,
+
+    /**
+     * Move a file between the two folders of the user
+     */
+    MOVE,
+
+    /**
+     * Download a file
+     */
+    DOWNLOAD,
+
+    /**
+     * Delete a file
+     */
+    DELETE
+}
@@ -0,0 +1,159 @@
+package org.alfresco.webdav.load;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latency percentiles of a {@link LoadGenerator} run
+ */
+public class LoadReport
+{
+    private static final double MICROS_PER_MILLI = 1000.0;
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    private final LoadScenario scenario;
+    private final LoadModel model;
+    private final int users;
+    private final long durationNanos;
+    private final long droppedOperations;
+    private final Map<LoadOperation, Histogram> histograms = new EnumMap<>(LoadOperation.class);
+    private final Map<LoadOperation, Long> errors = new EnumMap<>(LoadOperation.class);
+    private final Map<LoadOperation, Throwable> lastErrors = new EnumMap<>(LoadOperation.class);
+
+    public LoadReport(LoadScenario scenario, LoadModel model, int users, long durationNanos, LatencyRecorder recorder)
+    {
+        this(scenario, model, users, durationNanos, 0, recorder);
+    }
+
+    /**
+     * @param droppedOperations number of scheduled operations that did not complete before the end of the run
+     */
+    public LoadReport(LoadScenario scenario, LoadModel model, int users, long durationNanos, long droppedOperations, LatencyRecorder recorder)
+    {
+        this.scenario = scenario;
+        this.model = model;
+        this.users = users;
+        this.durationNanos = durationNanos;
+        this.droppedOperations = droppedOperations;
+        for (LoadOperation operation : LoadOperation.values())
+        {
+            Histogram histogram = recorder.getHistogram(operation).copy();
+            if (histogram.getTotalCount() > 0)
+            {
+                histograms.put(operation, histogram);
+                errors.put(operation, recorder.getErrors(operation));
+                if (recorder.getLastError(operation) != null)
+                    lastErrors.put(operation, recorder.getLastError(operation));
+            }
+        }
+    }
+
+    public LoadScenario getScenario()
+    {
+        return scenario;
+    }
+
+    public LoadModel getModel()
+    {
+        return model;
+    }
+
+    public int getUsers()
+    {
+        return users;
+    }
+
+    public long getDurationNanos()
+    {
+        return durationNanos;
+    }
+
+    /**
+     * @return latencies in microseconds of each executed operation
+     */
+    public Map<LoadOperation, Histogram> getHistograms()
+    {
+        return histograms;
+    }
+
+    public long getErrors(LoadOperation operation)
+    {
+        return errors.getOrDefault(operation, 0L);
+    }
+
+    /**
+     * @return cause of the last failure of the operation, or null
+     */
+    public Throwable getLastError(LoadOperation operation)
+    {
+        return lastErrors.get(operation);
+    }
+
+    /**
+     * @return number of open loop operations still queued or running when the run was stopped, not in the histograms
+     */
+    public long getDroppedOperations()
+    {
+        return droppedOperations;
+    }
+
+    /**
+     * @return number of operations executed, back-filled ones included
+     */
+    public long getTotalCount()
+    {
+        return histograms.values().stream().mapToLong(Histogram::getTotalCount).sum();
+    }
+
+    /**
+     * Write "summary.txt" with the percentiles of each operation and one "&lt;operation&gt;.hgrm" percentile
+     * distribution per operation, in milliseconds, readable by the HdrHistogram plotter
+     *
+     * @param directory created if needed
+     * @throws IOException
+     */
+    public void writeTo(Path directory) throws IOException
+    {
+        Files.createDirectories(directory);
+        Files.write(directory.resolve("summary.txt"), toString().getBytes(StandardCharsets.UTF_8));
+        for (Map.Entry<LoadOperation, Histogram> histogram : histograms.entrySet())
+        {
+            Path file = directory.resolve(histogram.getKey().name().toLowerCase(Locale.ROOT) + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8.name()))
+            {
+                histogram.getValue().outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT, "Scenario %s, %s, %d users, %.1f s%n", scenario.getName(), model, users,
+                durationNanos / 1e9));
+        report.append(String.format(Locale.ROOT, "%-12s %10s %8s %10s %10s %10s %10s %10s %10s %10s%n", "operation", "count", "errors", "ops/s",
+                "mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Map.Entry<LoadOperation, Histogram> entry : histograms.entrySet())
+        {
+            Histogram histogram = entry.getValue();
+            report.append(String.format(Locale.ROOT, "%-12s %10d %8d %10.1f %10.2f", entry.getKey(), histogram.getTotalCount(), getErrors(entry.getKey()),
+                    histogram.getTotalCount() / (durationNanos / 1e9), histogram.getMean() / MICROS_PER_MILLI));
+            for (double percentile : PERCENTILES)
+                report.append(String.format(Locale.ROOT, " %10.2f", histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI));
+            report.append(String.format(Locale.ROOT, " %10.2f%n", histogram.getMaxValue() / MICROS_PER_MILLI));
+        }
+        if (droppedOperations > 0)
+            report.append(String.format(Locale.ROOT, "%d operations dropped at the end of the run%n", droppedOperations));
+        for (Map.Entry<LoadOperation, Throwable> error : lastErrors.entrySet())
+            report.append(String.format(Locale.ROOT, "last %s error: %s%n", error.getKey(), error.getValue()));
+        return report.toString();
+    }
+}
@@ -0,0 +1,113 @@
+package org.alfresco.webdav.load;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Weighted mix of operations and think time of the virtual users.
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * new LoadScenario("editors").withOperation(LoadOperation.CREATE_FILE, 2).withOperation(LoadOperation.UPDATE, 5)
+ *         .withOperation(LoadOperation.GET_FILES, 10).withThinkTime(Duration.ofMillis(200), Duration.ofSeconds(1));
+ * </pre>
+ */
+public class LoadScenario
+{
+    private final String name;
+    private final Map<LoadOperation, Integer> weights = new EnumMap<>(LoadOperation.class);
+    private int totalWeight;
+    private Duration minThinkTime = Duration.ZERO;
+    private Duration maxThinkTime = Duration.ZERO;
+
+    public LoadScenario(String name)
+    {
+        this.name = name;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @param operation
+     * @param weight relative frequency of the operation in the mix
+     * @return
+     */
+    public LoadScenario withOperation(LoadOperation operation, int weight)
+    {
+        if (weight < 0)
+            throw new IllegalArgumentException(String.format("Invalid weight %d for %s", weight, operation));
+        Integer previous = weights.put(operation, weight);
+        totalWeight += weight - (previous == null ? 0 : previous);
+        return this;
+    }
+
+    /**
+     * Pause of a closed-loop user between two operations, chosen uniformly between min and max
+     *
+     * @param min
+     * @param max
+     * @return
+     */
+    public LoadScenario withThinkTime(Duration min, Duration max)
+    {
+        if (max.compareTo(min) < 0)
+            throw new IllegalArgumentException(String.format("Maximal think time %s is shorter than %s", max, min));
+        this.minThinkTime = min;
+        this.maxThinkTime = max;
+        return this;
+    }
+
+    public Map<LoadOperation, Integer> getWeights()
+    {
+        return weights;
+    }
+
+    /**
+     * @param random generator of the virtual user
+     * @return an operation drawn according to the weights
+     */
+    public LoadOperation nextOperation(Random random)
+    {
+        if (totalWeight <= 0)
+            throw new IllegalStateException(String.format("Scenario %s has no operation", name));
+        int draw = random.nextInt(totalWeight);
+        for (Map.Entry<LoadOperation, Integer> weight : weights.entrySet())
+        {
+            draw -= weight.getValue();
+            if (draw < 0)
+                return weight.getKey();
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    /**
+     * @return mean think time between two operations of a virtual user
+     */
+    public Duration getMeanThinkTime()
+    {
+        return minThinkTime.plus(maxThinkTime).dividedBy(2);
+    }
+
+    /**
+     * @param random generator of the virtual user
+     * @return think time in milliseconds
+     */
+    public long nextThinkTime(Random random)
+    {
+        long min = minThinkTime.toMillis();
+        long max = maxThinkTime.toMillis();
+        return max > min ? min + (long) (random.nextDouble() * (max - min)) : min;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("LoadScenario[%s, %s, think time %s-%s]", name, weights, minThinkTime, maxThinkTime);
+    }
+}
@@ -0,0 +1,148 @@
+package org.alfresco.webdav.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.alfresco.utility.Utility;
+import org.alfresco.utility.model.FileModel;
+import org.alfresco.utility.model.FolderModel;
+import org.alfresco.webdav.WebDavWrapper;
+import org.apache.commons.httpclient.HttpStatus;
+
+/**
+ * One simulated user of a {@link LoadGenerator}: an authenticated session working in its own two folders.
+ * A virtual user is used by one thread at a time.
+ */
+class VirtualUser
+{
+    private final int id;
+    private final WebDavWrapper webDav;
+    private final Random random;
+    private final List<FileModel> files = new ArrayList<>();
+    private FolderModel folder;
+    private FolderModel otherFolder;
+    private int fileCount;
+
+    VirtualUser(int id, WebDavWrapper webDav, long seed)
+    {
+        this.id = id;
+        this.webDav = webDav;
+        this.random = new Random(seed);
+    }
+
+    int getId()
+    {
+        return id;
+    }
+
+    Random getRandom()
+    {
+        return random;
+    }
+
+    /**
+     * Create the folders of the user in the current space of its session
+     */
+    void setUp(String runName) throws Exception
+    {
+        folder = new FolderModel(String.format("%s-user%d", runName, id));
+        webDav.createFolder(folder);
+        checkCreated(folder);
+        otherFolder = new FolderModel(String.format("%s-user%d-moved", runName, id));
+        webDav.usingResource(folder).createFolder(otherFolder);
+        checkCreated(otherFolder);
+    }
+
+    private void checkCreated(FolderModel created)
+    {
+        if (webDav.status != HttpStatus.SC_CREATED)
+            throw new IllegalStateException(String.format("User %d could not create folder %s: status %d", id, created.getName(), webDav.status));
+    }
+
+    /**
+     * @return the given operation, or {@link LoadOperation#CREATE_FILE} if it needs a file and the user has none
+     */
+    LoadOperation resolve(LoadOperation operation)
+    {
+        if (operation != LoadOperation.CREATE_FILE && operation != LoadOperation.GET_FILES && files.isEmpty())
+            return LoadOperation.CREATE_FILE;
+        return operation;
+    }
+
+    /**
+     * @param operation an operation returned by {@link #resolve(LoadOperation)}
+     * @return true if the operation completed without an error status
+     */
+    boolean execute(LoadOperation operation) throws Exception
+    {
+        webDav.status = 0;
+        switch (operation)
+        {
+            case CREATE_FILE:
+                FileModel file = new FileModel(String.format("file%d-%d.txt", id, ++fileCount));
+                file.setContent(randomContent());
+                webDav.usingResource(folder).createFile(file);
+                if (isSuccessful())
+                    files.add(file);
+                break;
+            case UPDATE:
+                webDav.usingResource(anyFile()).update(randomContent());
+                break;
+            case GET_FILES:
+                webDav.usingResource(folder).getFiles();
+                break;
+            case LOCK_UNLOCK:
+                webDav.usingResource(anyFile()).lock();
+                if (isSuccessful())
+                    webDav.unlock();
+                break;
+            case COPY:
+                webDav.usingResource(anyFile()).overwriteIfExists().copyTo(otherFolder);
+                break;
+            case MOVE:
+                FileModel moved = anyFile();
+                String parent = moved.getCmisLocation().substring(0, moved.getCmisLocation().lastIndexOf('/'));
+                FolderModel destination = parent.equals(folder.getCmisLocation()) ? otherFolder : folder;
+                webDav.usingResource(moved).overwriteIfExists().moveTo(destination);
+                if (isSuccessful())
+                    moved.setCmisLocation(Utility.buildPath(destination.getCmisLocation(), moved.getName()));
+                break;
+            case DOWNLOAD:
+                webDav.usingResource(anyFile()).download();
+                break;
+            case DELETE:
+                FileModel deleted = anyFile();
+                webDav.usingResource(deleted).delete();
+                if (isSuccessful())
+                    files.remove(deleted);
+                break;
+            default:
+                throw new IllegalArgumentException(String.valueOf(operation));
+        }
+        return isSuccessful();
+    }
+
+    private boolean isSuccessful()
+    {
+        return webDav.status < 400;
+    }
+
+    /**
+     * @return status of the last request of the operation
+     */
+    int getStatus()
+    {
+        return webDav.status;
+    }
+
+    private FileModel anyFile()
+    {
+        return files.get(random.nextInt(files.size()));
+    }
+
+    private String randomContent()
+    {
+        return String.format("content %d of user %d", random.nextLong(), id);
+    }
+}
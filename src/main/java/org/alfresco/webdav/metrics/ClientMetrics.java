@@ -0,0 +1,212 @@
+package org.alfresco.webdav.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Thread safe counters and latency histograms of the WebDAV requests sent by the client, tagged by WebDAV method and
+ * status class (e.g. "PROPFIND 2xx"). Requests failing without a response are tagged "error".
+ * <p>
+ * Recording does not lock: counters are {@link LongAdder}s and latencies go to a {@link ConcurrentHistogram} in
+ * microseconds. Latency is the time until the response headers are received. {@link #reset()} swaps in a new set of
+ * counters, so each reading sees either the counters from before a reset or the ones from after it.
+ */
+public class ClientMetrics implements ClientMetricsMBean
+{
+    public static final String OBJECT_NAME = "org.alfresco.webdav:type=ClientMetrics";
+    public static final String ERROR = "error";
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    /**
+     * Keys by method, indexed by status class, 0 for the failed requests
+     */
+    private static final ConcurrentMap<String, String[]> KEYS = new ConcurrentHashMap<>();
+
+    private volatile ConcurrentMap<String, OperationCounters> operations = new ConcurrentHashMap<>();
+
+    /**
+     * @param method WebDAV method, e.g. PROPFIND
+     * @param status HTTP status of the response, 0 if the request failed without a response
+     * @param latencyNanos
+     * @param requestBytes length of the request body, negative if unknown
+     * @param responseBytes length of the response body announced by the server, negative if unknown
+     */
+    public void record(String method, int status, long latencyNanos, long requestBytes, long responseBytes)
+    {
+        String key = getKey(method, status);
+        ConcurrentMap<String, OperationCounters> current = operations;
+        OperationCounters counters = current.get(key);
+        if (counters == null)
+            counters = current.computeIfAbsent(key, OperationCounters::new);
+        counters.record(latencyNanos, requestBytes, responseBytes);
+    }
+
+    /**
+     * @return operation key of a request, e.g. "PROPFIND 2xx" or "PUT error"
+     */
+    public static String getKey(String method, int status)
+    {
+        int statusClass = status > 0 ? status / 100 : 0;
+        if (statusClass >= 6)
+            return method + " " + statusClass + "xx";
+        String[] keys = KEYS.get(method);
+        if (keys == null)
+            keys = KEYS.computeIfAbsent(method, ClientMetrics::createKeys);
+        return keys[statusClass];
+    }
+
+    private static String[] createKeys(String method)
+    {
+        String[] keys = new String[6];
+        keys[0] = method + " " + ERROR;
+        for (int statusClass = 1; statusClass < keys.length; statusClass++)
+            keys[statusClass] = method + " " + statusClass + "xx";
+        return keys;
+    }
+
+    /**
+     * @return true for the keys of 4xx and 5xx responses and of failed requests
+     */
+    static boolean isError(String key)
+    {
+        return key.endsWith(" 4xx") || key.endsWith(" 5xx") || key.endsWith(" " + ERROR);
+    }
+
+    /**
+     * @return immutable copy of the current values, keyed and sorted by operation
+     */
+    public Map<String, OperationMetrics> snapshot()
+    {
+        Map<String, OperationMetrics> snapshot = new TreeMap<>();
+        for (OperationCounters counters : operations.values())
+            snapshot.put(counters.key, counters.snapshot());
+        return snapshot;
+    }
+
+    @Override
+    public String[] getOperations()
+    {
+        return new TreeSet<>(operations.keySet()).toArray(new String[0]);
+    }
+
+    @Override
+    public long getRequestCount()
+    {
+        return getRequestCount(operations);
+    }
+
+    @Override
+    public long getErrorCount()
+    {
+        return getErrorCount(operations);
+    }
+
+    @Override
+    public double getErrorRate()
+    {
+        ConcurrentMap<String, OperationCounters> current = operations;
+        long count = getRequestCount(current);
+        return count == 0 ? 0 : (double) getErrorCount(current) / count;
+    }
+
+    private static long getRequestCount(ConcurrentMap<String, OperationCounters> operations)
+    {
+        return operations.values().stream().mapToLong(counters -> counters.count.sum()).sum();
+    }
+
+    private static long getErrorCount(ConcurrentMap<String, OperationCounters> operations)
+    {
+        return operations.values().stream().filter(counters -> isError(counters.key)).mapToLong(counters -> counters.count.sum()).sum();
+    }
+
+    @Override
+    public long getRequestBytes()
+    {
+        return operations.values().stream().mapToLong(counters -> counters.requestBytes.sum()).sum();
+    }
+
+    @Override
+    public long getResponseBytes()
+    {
+        return operations.values().stream().mapToLong(counters -> counters.responseBytes.sum()).sum();
+    }
+
+    @Override
+    public long getCount(String operation)
+    {
+        OperationCounters counters = operations.get(operation);
+        return counters == null ? 0 : counters.count.sum();
+    }
+
+    @Override
+    public double getMeanMillis(String operation)
+    {
+        OperationCounters counters = operations.get(operation);
+        return counters == null ? 0 : counters.snapshot().getMeanMillis();
+    }
+
+    @Override
+    public double getPercentileMillis(String operation, double percentile)
+    {
+        OperationCounters counters = operations.get(operation);
+        return counters == null ? 0 : counters.snapshot().getPercentileMillis(percentile);
+    }
+
+    @Override
+    public String getSummary()
+    {
+        StringBuilder summary = new StringBuilder();
+        for (OperationMetrics metrics : snapshot().values())
+            summary.append(metrics).append(System.lineSeparator());
+        return summary.toString();
+    }
+
+    /**
+     * Start again from empty counters. A request recorded while the counters are swapped may be counted in the
+     * discarded ones.
+     */
+    @Override
+    public void reset()
+    {
+        operations = new ConcurrentHashMap<>();
+    }
+
+    private static class OperationCounters
+    {
+        private final String key;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder requestBytes = new LongAdder();
+        private final LongAdder responseBytes = new LongAdder();
+        private final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+
+        OperationCounters(String key)
+        {
+            this.key = key;
+        }
+
+        void record(long latencyNanos, long requestLength, long responseLength)
+        {
+            count.increment();
+            if (requestLength > 0)
+                requestBytes.add(requestLength);
+            if (responseLength > 0)
+                responseBytes.add(responseLength);
+            latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+        }
+
+        OperationMetrics snapshot()
+        {
+            return new OperationMetrics(key, count.sum(), requestBytes.sum(), responseBytes.sum(), latencies.copy());
+        }
+    }
+}
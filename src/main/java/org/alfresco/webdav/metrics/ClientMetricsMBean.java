@@ -0,0 +1,41 @@
+package org.alfresco.webdav.metrics;
+
+/**
+ * JMX view of the {@link ClientMetrics}, registered as {@value ClientMetrics#OBJECT_NAME}.
+ * Operations are named "&lt;method&gt; &lt;status class&gt;", e.g. "PROPFIND 2xx".
+ */
+public interface ClientMetricsMBean
+{
+    String[] getOperations();
+
+    long getRequestCount();
+
+    /**
+     * @return number of requests answered with a 4xx or 5xx status or failed without a response
+     */
+    long getErrorCount();
+
+    double getErrorRate();
+
+    long getRequestBytes();
+
+    long getResponseBytes();
+
+    long getCount(String operation);
+
+    double getMeanMillis(String operation);
+
+    /**
+     * @param operation
+     * @param percentile between 0 and 100
+     * @return latency at the given percentile, in milliseconds
+     */
+    double getPercentileMillis(String operation, double percentile);
+
+    /**
+     * @return one line of counters and percentiles per operation
+     */
+    String getSummary();
+
+    void reset();
+}
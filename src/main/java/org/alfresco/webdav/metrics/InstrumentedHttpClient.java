@@ -0,0 +1,48 @@
+package org.alfresco.webdav.metrics;
+
+import java.io.IOException;
+
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpConnectionManager;
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.HttpMethodBase;
+import org.apache.commons.httpclient.HttpState;
+import org.apache.commons.httpclient.methods.EntityEnclosingMethod;
+
+/**
+ * {@link HttpClient} recording every executed method in {@link ClientMetrics}.
+ * All the executeMethod variants end in {@link #executeMethod(HostConfiguration, HttpMethod, HttpState)}.
+ */
+public class InstrumentedHttpClient extends HttpClient
+{
+    private final ClientMetrics metrics;
+
+    public InstrumentedHttpClient(HttpConnectionManager connectionManager, ClientMetrics metrics)
+    {
+        super(connectionManager);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public int executeMethod(HostConfiguration hostConfiguration, HttpMethod method, HttpState state) throws IOException
+    {
+        long start = System.nanoTime();
+        int status = 0;
+        try
+        {
+            status = super.executeMethod(hostConfiguration, method, state);
+            return status;
+        }
+        finally
+        {
+            long requestBytes = -1;
+            if (method instanceof EntityEnclosingMethod && ((EntityEnclosingMethod) method).getRequestEntity() != null)
+                requestBytes = ((EntityEnclosingMethod) method).getRequestEntity().getContentLength();
+            long responseBytes = -1;
+            if (status > 0 && method instanceof HttpMethodBase && !"HEAD".equals(method.getName()))
+                responseBytes = ((HttpMethodBase) method).getResponseContentLength();
+            metrics.record(method.getName(), status, System.nanoTime() - start, requestBytes, responseBytes);
+        }
+    }
+}
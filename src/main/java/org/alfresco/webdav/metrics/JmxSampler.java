@@ -0,0 +1,304 @@
+package org.alfresco.webdav.metrics;
+
+import static org.alfresco.utility.report.log.Step.STEP;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.openmbean.CompositeData;
+
+import org.HdrHistogram.Histogram;
+import org.alfresco.utility.network.Jmx;
+import org.alfresco.webdav.WebDavWrapper;
+
+/**
+ * Reads server MBean attributes through a {@link Jmx} client at a fixed interval and writes them to a CSV time series,
+ * one row per sample, next to the client requests of the same interval: count, errors and latency percentiles from
+ * the {@link ClientMetrics}. A row shows which server resource saturates when the client latency climbs.
+ * <p>
+ * An attribute that cannot be read (missing MBean, other GC or connector name) leaves an empty cell and does not stop
+ * the sampling.
+ */
+public class JmxSampler implements AutoCloseable
+{
+    /**
+     * JVM and Alfresco attributes sampled by {@link #withDefaultAttributes()}
+     */
+    public static final String DEFAULT_ATTRIBUTES = "heap_used=java.lang:type=Memory|HeapMemoryUsage|used;"
+            + "threads=java.lang:type=Threading|ThreadCount;"
+            + "gc_young_count=java.lang:type=GarbageCollector,name=G1 Young Generation|CollectionCount;"
+            + "gc_young_ms=java.lang:type=GarbageCollector,name=G1 Young Generation|CollectionTime;"
+            + "gc_old_count=java.lang:type=GarbageCollector,name=G1 Old Generation|CollectionCount;"
+            + "gc_old_ms=java.lang:type=GarbageCollector,name=G1 Old Generation|CollectionTime;"
+            + "db_active=Alfresco:Name=ConnectionPool|NumActive;"
+            + "db_idle=Alfresco:Name=ConnectionPool|NumIdle;"
+            + "http_threads_busy=Catalina:type=ThreadPool,name=\"http-nio-8080\"|currentThreadsBusy;"
+            + "http_threads=Catalina:type=ThreadPool,name=\"http-nio-8080\"|currentThreadCount";
+
+    private final Jmx jmx;
+    private final ClientMetrics clientMetrics;
+    private final Duration interval;
+    private final List<SampledAttribute> attributes = new ArrayList<>();
+    private ScheduledExecutorService scheduler;
+    private BufferedWriter writer;
+    private Histogram previousLatencies;
+    private long previousRequests;
+    private long previousErrors;
+    private long startNanos;
+    private int sampleCount;
+
+    /**
+     * @param jmx client of the server
+     * @param clientMetrics metrics of the client requests, null to only sample the server
+     * @param interval time between two samples
+     */
+    public JmxSampler(Jmx jmx, ClientMetrics clientMetrics, Duration interval)
+    {
+        this.jmx = jmx;
+        this.clientMetrics = clientMetrics;
+        this.interval = interval;
+    }
+
+    /**
+     * @param label name of the CSV column
+     * @param objectName e.g. java.lang:type=Memory
+     * @param attribute e.g. HeapMemoryUsage
+     * @param key item of a composite attribute, e.g. used, or null
+     * @return
+     */
+    public synchronized JmxSampler withAttribute(String label, String objectName, String attribute, String key)
+    {
+        attributes.add(new SampledAttribute(label, objectName, attribute, key));
+        return this;
+    }
+
+    /**
+     * @param definitions attributes separated by ';', each as "label=objectName|attribute[|key]"
+     * @return
+     */
+    public JmxSampler withAttributes(String definitions)
+    {
+        for (String definition : definitions.split(";"))
+        {
+            if (definition.trim().isEmpty())
+                continue;
+            int equals = definition.indexOf('=');
+            String[] parts = definition.substring(equals + 1).trim().split("\\|");
+            if (equals <= 0 || parts.length < 2)
+                throw new IllegalArgumentException("Expected label=objectName|attribute[|key]: " + definition);
+            withAttribute(definition.substring(0, equals).trim(), parts[0], parts[1], parts.length > 2 ? parts[2] : null);
+        }
+        return this;
+    }
+
+    /**
+     * Sample heap, threads, G1 collections, the Alfresco database connection pool and the Tomcat HTTP threads
+     *
+     * @return
+     */
+    public JmxSampler withDefaultAttributes()
+    {
+        return withAttributes(DEFAULT_ATTRIBUTES);
+    }
+
+    /**
+     * Write the CSV header and start sampling in the background
+     *
+     * @param csvFile created or replaced
+     * @return
+     * @throws IOException
+     */
+    public synchronized JmxSampler start(Path csvFile) throws IOException
+    {
+        if (scheduler != null)
+            throw new IllegalStateException("The sampler is already started");
+        STEP(String.format("%s Sample %d server attributes every %s into %s", WebDavWrapper.STEP_PREFIX, attributes.size(), interval, csvFile));
+        if (csvFile.getParent() != null)
+            Files.createDirectories(csvFile.getParent());
+        writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8);
+        StringBuilder header = new StringBuilder("timestamp,elapsed_ms,client_requests,client_errors,client_p50_ms,client_p99_ms,client_max_ms");
+        for (SampledAttribute attribute : attributes)
+            header.append(',').append(attribute.label);
+        writer.write(header.toString());
+        writer.newLine();
+        startNanos = System.nanoTime();
+        previousLatencies = null;
+        previousRequests = 0;
+        previousErrors = 0;
+        if (clientMetrics != null)
+        {
+            previousLatencies = getLatencies();
+            previousRequests = clientMetrics.getRequestCount();
+            previousErrors = clientMetrics.getErrorCount();
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "webdav-jmx-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::sampleQuietly, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * Stop sampling, write a last sample and close the CSV file
+     *
+     * @throws IOException
+     */
+    public void stop() throws IOException
+    {
+        ScheduledExecutorService stopped;
+        synchronized (this)
+        {
+            stopped = scheduler;
+            scheduler = null;
+        }
+        if (stopped == null)
+            return;
+        stopped.shutdownNow();
+        try
+        {
+            stopped.awaitTermination(interval.toMillis() + TimeUnit.SECONDS.toMillis(30), TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this)
+        {
+            sample();
+            writer.close();
+            writer = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        stop();
+    }
+
+    /**
+     * @return number of rows written
+     */
+    public synchronized int getSampleCount()
+    {
+        return sampleCount;
+    }
+
+    private synchronized void sampleQuietly()
+    {
+        try
+        {
+            if (writer != null)
+                sample();
+        }
+        catch (IOException e)
+        {
+            // the next sample retries; stop() reports a broken file
+        }
+    }
+
+    /**
+     * Write one row: client requests since the previous row, then the current value of each attribute
+     */
+    private void sample() throws IOException
+    {
+        Instant now = Instant.now();
+        StringBuilder row = new StringBuilder();
+        row.append(now).append(',').append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        if (clientMetrics != null)
+        {
+            long requests = clientMetrics.getRequestCount();
+            long errors = clientMetrics.getErrorCount();
+            Histogram latencies = getLatencies();
+            Histogram intervalLatencies = latencies.copy();
+            try
+            {
+                if (previousLatencies != null)
+                    intervalLatencies.subtract(previousLatencies);
+            }
+            catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e)
+            {
+                // the client metrics were reset since the previous row
+                intervalLatencies = latencies.copy();
+            }
+            row.append(',').append(Math.max(requests - previousRequests, 0)).append(',').append(Math.max(errors - previousErrors, 0));
+            for (double percentile : new double[] { 50, 99 })
+                row.append(String.format(Locale.ROOT, ",%.3f", intervalLatencies.getValueAtPercentile(percentile) / 1000.0));
+            row.append(String.format(Locale.ROOT, ",%.3f", intervalLatencies.getMaxValue() / 1000.0));
+            previousLatencies = latencies;
+            previousRequests = requests;
+            previousErrors = errors;
+        }
+        else
+            row.append(",,,,,");
+        for (SampledAttribute attribute : attributes)
+            row.append(',').append(read(attribute));
+        writer.write(row.toString());
+        writer.newLine();
+        writer.flush();
+        sampleCount++;
+    }
+
+    /**
+     * @return latencies of all the client operations, in microseconds
+     */
+    private Histogram getLatencies()
+    {
+        Histogram total = null;
+        for (OperationMetrics operation : clientMetrics.snapshot().values())
+        {
+            if (total == null)
+                total = operation.getLatencies();
+            else
+                total.add(operation.getLatencies());
+        }
+        return total != null ? total : new Histogram(3);
+    }
+
+    private String read(SampledAttribute attribute)
+    {
+        try
+        {
+            Object value = jmx.readProperty(attribute.objectName, attribute.attribute);
+            if (attribute.key != null && value instanceof CompositeData)
+                value = ((CompositeData) value).get(attribute.key);
+            else if (attribute.key != null && value instanceof Map)
+                value = ((Map<?, ?>) value).get(attribute.key);
+            return value == null ? "" : value.toString().replace(',', ' ');
+        }
+        catch (Exception e)
+        {
+            return "";
+        }
+    }
+
+    private static class SampledAttribute
+    {
+        private final String label;
+        private final String objectName;
+        private final String attribute;
+        private final String key;
+
+        SampledAttribute(String label, String objectName, String attribute, String key)
+        {
+            this.label = label;
+            this.objectName = objectName;
+            this.attribute = attribute;
+            this.key = key;
+        }
+    }
+}
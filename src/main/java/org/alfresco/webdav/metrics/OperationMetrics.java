@@ -0,0 +1,106 @@
+package org.alfresco.webdav.metrics;
+
+import java.util.Locale;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Immutable counters and latencies of one operation of the {@link ClientMetrics}
+ */
+public class OperationMetrics
+{
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final String operation;
+    private final long count;
+    private final long requestBytes;
+    private final long responseBytes;
+    private final Histogram latencies;
+
+    OperationMetrics(String operation, long count, long requestBytes, long responseBytes, Histogram latencies)
+    {
+        this.operation = operation;
+        this.count = count;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+        this.latencies = latencies;
+    }
+
+    /**
+     * @return e.g. "PROPFIND 2xx"
+     */
+    public String getOperation()
+    {
+        return operation;
+    }
+
+    public String getMethod()
+    {
+        return operation.substring(0, operation.indexOf(' '));
+    }
+
+    /**
+     * @return "2xx", "4xx"... or {@link ClientMetrics#ERROR}
+     */
+    public String getStatusClass()
+    {
+        return operation.substring(operation.indexOf(' ') + 1);
+    }
+
+    /**
+     * @return true for 4xx and 5xx responses and failed requests
+     */
+    public boolean isError()
+    {
+        return ClientMetrics.isError(operation);
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    public long getRequestBytes()
+    {
+        return requestBytes;
+    }
+
+    public long getResponseBytes()
+    {
+        return responseBytes;
+    }
+
+    public double getMeanMillis()
+    {
+        return latencies.getMean() / MICROS_PER_MILLI;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return
+     */
+    public double getPercentileMillis(double percentile)
+    {
+        return latencies.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+
+    public double getMaxMillis()
+    {
+        return latencies.getMaxValue() / MICROS_PER_MILLI;
+    }
+
+    /**
+     * @return a copy of the latencies, in microseconds
+     */
+    Histogram getLatencies()
+    {
+        return latencies.copy();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format(Locale.ROOT, "%-16s count=%d sent=%d received=%d mean=%.2fms p50=%.2fms p99=%.2fms max=%.2fms", operation, count,
+                requestBytes, responseBytes, getMeanMillis(), getPercentileMillis(50), getPercentileMillis(99), getMaxMillis());
+    }
+}
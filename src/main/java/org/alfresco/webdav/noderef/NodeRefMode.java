@@ -0,0 +1,23 @@
+package org.alfresco.webdav.noderef;
+
+/**
+ * When {@link org.alfresco.webdav.WebDavWrapper} reads the node reference of the content it creates
+ */
+public enum NodeRefMode
+{
+    /**
+     * Right after each successful PUT or MKCOL, as one more request to the repository
+     */
+    EAGER,
+
+    /**
+     * On first access with {@link org.alfresco.webdav.WebDavWrapper#getNodeRef(org.alfresco.utility.model.ContentModel)},
+     * or for all the pending models at once with {@link org.alfresco.webdav.WebDavWrapper#resolveNodeRefs()}
+     */
+    DEFERRED,
+
+    /**
+     * Never: node references stay unset, e.g. against a server that is not an Alfresco repository
+     */
+    DISABLED
+}
@@ -0,0 +1,214 @@
+package org.alfresco.webdav.noderef;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.alfresco.utility.data.ContentService;
+import org.alfresco.utility.model.ContentModel;
+import org.alfresco.utility.model.UserModel;
+
+/**
+ * Per session resolution of node references by repository path, with a cache keyed by user and path bounded with LRU
+ * eviction.
+ * <p>
+ * Models can be resolved at once, or deferred and resolved later, all together and in parallel, so that the lookups do
+ * not add a round trip to every measured WebDAV create.
+ */
+public class NodeRefResolver
+{
+    private final ContentService contentService;
+    private final Executor executor;
+    private final int maxEntries;
+    private final Map<String, String> nodeRefs;
+    private final Map<ContentModel, UserModel> pending = new IdentityHashMap<>();
+    private long hits;
+    private long misses;
+
+    /**
+     * @param contentService repository client reading the node references
+     * @param executor runs the lookups of {@link #resolveAll(UserModel, Collection)}
+     * @param maxEntries maximal number of node references kept in the cache
+     */
+    public NodeRefResolver(ContentService contentService, Executor executor, int maxEntries)
+    {
+        this.contentService = contentService;
+        this.executor = executor;
+        this.maxEntries = maxEntries;
+        this.nodeRefs = new LinkedHashMap<String, String>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest)
+            {
+                return size() > NodeRefResolver.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param user
+     * @param path repository path, e.g. /Sites/site/documentLibrary/file.txt
+     * @return the node reference of the content, from the cache if possible
+     */
+    public String resolve(UserModel user, String path)
+    {
+        String key = getKey(user, path);
+        synchronized (this)
+        {
+            String nodeRef = nodeRefs.get(key);
+            if (nodeRef != null)
+            {
+                hits++;
+                return nodeRef;
+            }
+            misses++;
+        }
+        String nodeRef = contentService.getNodeRefByPath(user.getUsername(), user.getPassword(), path);
+        if (nodeRef != null)
+        {
+            synchronized (this)
+            {
+                nodeRefs.put(key, nodeRef);
+            }
+        }
+        return nodeRef;
+    }
+
+    /**
+     * Set the node reference of a model from its CMIS location
+     *
+     * @param user
+     * @param model
+     * @return the node reference
+     */
+    public String resolve(UserModel user, ContentModel model)
+    {
+        synchronized (this)
+        {
+            pending.remove(model);
+        }
+        model.setNodeRef(resolve(user, model.getCmisLocation()));
+        return model.getNodeRef();
+    }
+
+    /**
+     * Remember a created model, whose node reference is read by {@link #resolvePending()}
+     */
+    public synchronized void defer(UserModel user, ContentModel model)
+    {
+        pending.put(model, user);
+    }
+
+    public synchronized boolean isPending(ContentModel model)
+    {
+        return pending.containsKey(model);
+    }
+
+    /**
+     * Resolve all the deferred models in parallel
+     *
+     * @return number of resolved models
+     */
+    public int resolvePending()
+    {
+        Map<ContentModel, UserModel> resolved;
+        synchronized (this)
+        {
+            resolved = new IdentityHashMap<>(pending);
+            pending.clear();
+        }
+        List<CompletableFuture<String>> lookups = new ArrayList<>();
+        for (Map.Entry<ContentModel, UserModel> model : resolved.entrySet())
+            lookups.add(resolveAsync(model.getValue(), model.getKey()));
+        join(lookups);
+        return resolved.size();
+    }
+
+    /**
+     * Resolve the given models in parallel
+     *
+     * @param user
+     * @param models
+     */
+    public void resolveAll(UserModel user, Collection<? extends ContentModel> models)
+    {
+        List<CompletableFuture<String>> lookups = new ArrayList<>();
+        for (ContentModel model : models)
+            lookups.add(resolveAsync(user, model));
+        join(lookups);
+    }
+
+    /**
+     * Forget the node references of a created, moved or removed resource and of its descendants
+     *
+     * @param path repository path of the resource
+     */
+    public synchronized void invalidate(String path)
+    {
+        String normalized = normalize(path);
+        Iterator<String> keys = nodeRefs.keySet().iterator();
+        while (keys.hasNext())
+        {
+            String cachedPath = keys.next();
+            cachedPath = cachedPath.substring(cachedPath.indexOf('\n') + 1);
+            if (cachedPath.equals(normalized) || cachedPath.startsWith(normalized + "/"))
+                keys.remove();
+        }
+    }
+
+    public synchronized int size()
+    {
+        return nodeRefs.size();
+    }
+
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    private CompletableFuture<String> resolveAsync(UserModel user, ContentModel model)
+    {
+        return CompletableFuture.supplyAsync(() -> resolve(user, model), executor);
+    }
+
+    private static void join(List<CompletableFuture<String>> lookups)
+    {
+        try
+        {
+            CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[0])).join();
+        }
+        catch (CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private static String getKey(UserModel user, String path)
+    {
+        return user.getUsername() + "\n" + normalize(path);
+    }
+
+    private static String normalize(String path)
+    {
+        String normalized = path.replace("%20", " ");
+        while (normalized.endsWith("/"))
+            normalized = normalized.substring(0, normalized.length() - 1);
+        return normalized;
+    }
+}
@@ -0,0 +1,253 @@
+package org.alfresco.webdav.probe;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.alfresco.webdav.dsl.PropertySelection;
+import org.alfresco.webdav.http.WebDavTransport;
+import org.alfresco.webdav.listing.DavResource;
+import org.alfresco.webdav.listing.MultiStatusReader;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.jackrabbit.webdav.DavConstants;
+import org.apache.jackrabbit.webdav.util.EncodeUtil;
+
+/**
+ * Confirms asynchronously that deleted resources are gone, for servers that remove content in the background.
+ * <p>
+ * The resources are probed at once, then again after delays growing exponentially up to a maximum, each with a random
+ * jitter so that many confirmations do not probe the server in lockstep. When enough resources of one collection are
+ * waiting, a single depth 1 PROPFIND of the collection replaces their depth 0 probes.
+ */
+public class DeletionConfirmer
+{
+    private static final long MIN_DELAY_MILLIS = 10;
+
+    private final WebDavTransport transport;
+    private final MetadataProbe probe;
+    private final ScheduledExecutorService scheduler;
+    private final Duration initialDelay;
+    private final Duration maxDelay;
+    private final Duration timeout;
+    private final int batchThreshold;
+
+    /**
+     * @param transport transport of the user who deleted the resources
+     * @param scheduler runs the delayed probes, which do not block it
+     * @param initialDelay delay before the second probe, doubled for each following one; delays shorter than 10 ms
+     *            are raised to 10 ms
+     * @param maxDelay maximal delay between two probes
+     * @param timeout time after which the resources still present are reported as not deleted
+     * @param batchThreshold minimal number of waiting resources of a collection confirmed with one listing of the
+     *            collection
+     */
+    public DeletionConfirmer(WebDavTransport transport, ScheduledExecutorService scheduler, Duration initialDelay, Duration maxDelay, Duration timeout,
+            int batchThreshold)
+    {
+        this.transport = transport;
+        this.probe = new MetadataProbe(transport);
+        this.scheduler = scheduler;
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        this.timeout = timeout;
+        this.batchThreshold = batchThreshold;
+    }
+
+    /**
+     * @param uri escaped URI of a deleted resource
+     * @return a future completed with true once the resource is gone, or with false after the timeout or if the user
+     *         may not probe it
+     */
+    public CompletableFuture<Boolean> confirm(String uri)
+    {
+        return confirmAll(Collections.singleton(uri)).thenApply(confirmed -> confirmed.get(uri));
+    }
+
+    /**
+     * @param uris escaped URIs of deleted resources
+     * @return a future completed, once all the resources are gone or after the timeout, with true for each resource
+     *         confirmed as deleted and false for the others
+     */
+    public CompletableFuture<Map<String, Boolean>> confirmAll(Collection<String> uris)
+    {
+        Confirmation confirmation = new Confirmation(uris);
+        if (uris.isEmpty())
+            confirmation.complete();
+        else
+            probe(confirmation);
+        return confirmation.result;
+    }
+
+    /**
+     * Probe the remaining resources once, then complete the confirmation or schedule the next round
+     */
+    private void probe(Confirmation confirmation)
+    {
+        List<CompletableFuture<Map<String, Boolean>>> probes = new ArrayList<>();
+        for (Map.Entry<String, List<String>> siblings : groupByParent(confirmation.remaining).entrySet())
+        {
+            if (siblings.getValue().size() >= batchThreshold)
+                probes.add(listGone(siblings.getKey(), siblings.getValue()));
+            else
+            {
+                for (String uri : siblings.getValue())
+                    probes.add(probe.probeAsync(uri).thenApply(metadata -> decide(Collections.singletonList(uri), metadata.getStatus())));
+            }
+        }
+        CompletableFuture.allOf(probes.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, error) -> {
+            for (CompletableFuture<Map<String, Boolean>> done : probes)
+            {
+                // a failed probe leaves its resources for the next round
+                if (!done.isCompletedExceptionally())
+                    confirmation.decided(done.join());
+            }
+            long delay = confirmation.nextDelayMillis();
+            if (confirmation.remaining.isEmpty() || confirmation.isExpired(delay))
+            {
+                confirmation.complete();
+                return;
+            }
+            try
+            {
+                scheduler.schedule(() -> probe(confirmation), delay, TimeUnit.MILLISECONDS);
+            }
+            catch (RejectedExecutionException e)
+            {
+                // shut down: report what is confirmed so far
+                confirmation.complete();
+            }
+        });
+    }
+
+    /**
+     * List a collection to find which of its children are gone, all of them if the collection itself is gone
+     */
+    private CompletableFuture<Map<String, Boolean>> listGone(String parentUri, List<String> children)
+    {
+        return transport.executeAsync(MultiStatusReader.createPropFindRequest(parentUri, PropertySelection.resourceType(), DavConstants.DEPTH_1))
+                .thenApply(response -> {
+                    try (response)
+                    {
+                        if (response.getStatus() != HttpStatus.SC_MULTI_STATUS)
+                            return decide(children, response.getStatus());
+                        Set<String> listed;
+                        try (MultiStatusReader reader = new MultiStatusReader(response.getBody()))
+                        {
+                            listed = reader.stream().map(DavResource::getHref).map(DeletionConfirmer::trimSlash).collect(Collectors.toSet());
+                        }
+                        return children.stream().filter(child -> !listed.contains(getPath(child)))
+                                .collect(Collectors.toMap(child -> child, child -> Boolean.TRUE));
+                    }
+                    catch (IOException e)
+                    {
+                        throw new UncheckedIOException(e);
+                    }
+                    catch (XMLStreamException e)
+                    {
+                        throw new IllegalStateException(e);
+                    }
+                });
+    }
+
+    private static Map<String, List<String>> groupByParent(Collection<String> uris)
+    {
+        Map<String, List<String>> siblings = new LinkedHashMap<>();
+        for (String uri : uris)
+        {
+            String trimmed = trimSlash(uri);
+            siblings.computeIfAbsent(trimmed.substring(0, trimmed.lastIndexOf('/') + 1), parent -> new ArrayList<>()).add(uri);
+        }
+        return siblings;
+    }
+
+    /**
+     * @param status of a probe of the resources, or of their collection
+     * @return true for the resources that are gone, false for the resources that cannot be confirmed because the user
+     *         may not read them, nothing for the resources to probe again
+     */
+    private static Map<String, Boolean> decide(List<String> uris, int status)
+    {
+        if (status == HttpStatus.SC_NOT_FOUND || status == HttpStatus.SC_GONE)
+            return uris.stream().collect(Collectors.toMap(uri -> uri, uri -> Boolean.TRUE));
+        if (status == HttpStatus.SC_UNAUTHORIZED || status == HttpStatus.SC_FORBIDDEN)
+            return uris.stream().collect(Collectors.toMap(uri -> uri, uri -> Boolean.FALSE));
+        return Collections.emptyMap();
+    }
+
+    /**
+     * @return unescaped path of a URI, as the hrefs read by {@link MultiStatusReader}
+     */
+    private static String getPath(String uri)
+    {
+        return trimSlash(EncodeUtil.unescape(URI.create(uri).getRawPath()));
+    }
+
+    private static String trimSlash(String path)
+    {
+        return path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+
+    private class Confirmation
+    {
+        private final Collection<String> uris;
+        private final Set<String> remaining = ConcurrentHashMap.newKeySet();
+        private final Set<String> confirmed = ConcurrentHashMap.newKeySet();
+        private final CompletableFuture<Map<String, Boolean>> result = new CompletableFuture<>();
+        private final long deadline = System.nanoTime() + timeout.toNanos();
+        private int attempts;
+
+        Confirmation(Collection<String> uris)
+        {
+            this.uris = uris;
+            this.remaining.addAll(uris);
+        }
+
+        /**
+         * @return the exponential delay before the next round, with a jitter of up to half of it, at least 10 ms
+         */
+        long nextDelayMillis()
+        {
+            long delay = Math.min(initialDelay.toMillis() << Math.min(attempts++, 30), maxDelay.toMillis());
+            return Math.max(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1), MIN_DELAY_MILLIS);
+        }
+
+        boolean isExpired(long delayMillis)
+        {
+            return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis) - deadline > 0;
+        }
+
+        void decided(Map<String, Boolean> decisions)
+        {
+            decisions.forEach((uri, gone) -> {
+                remaining.remove(uri);
+                if (gone)
+                    confirmed.add(uri);
+            });
+        }
+
+        void complete()
+        {
+            Map<String, Boolean> deleted = new LinkedHashMap<>();
+            for (String uri : uris)
+                deleted.put(uri, confirmed.contains(uri));
+            result.complete(deleted);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.alfresco.webdav.probe;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.alfresco.webdav.dsl.PropertySelection;
+import org.alfresco.webdav.http.WebDavRequest;
+import org.alfresco.webdav.http.WebDavResponse;
+import org.alfresco.webdav.http.WebDavTransport;
+import org.alfresco.webdav.listing.DavResource;
+import org.alfresco.webdav.listing.MultiStatusReader;
+import org.apache.jackrabbit.webdav.DavConstants;
+import org.apache.jackrabbit.webdav.DavMethods;
+import org.apache.jackrabbit.webdav.DavServletResponse;
+
+/**
+ * Reads the metadata of resources without downloading their content.
+ * <p>
+ * {@link #head(String)} answers with the same status as a GET and is the cheapest existence check.
+ * {@link #probe(String)} sends a depth 0 PROPFIND, that also tells if the resource is a collection.
+ */
+public class MetadataProbe
+{
+    public static final int DEFAULT_CONCURRENCY = 8;
+
+    private final WebDavTransport transport;
+    private final int concurrency;
+
+    /**
+     * @param transport transport of the user probing the resources
+     */
+    public MetadataProbe(WebDavTransport transport)
+    {
+        this(transport, DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * @param transport transport of the user probing the resources
+     * @param concurrency maximal number of requests in flight in {@link #probeAll(Collection)}
+     */
+    public MetadataProbe(WebDavTransport transport, int concurrency)
+    {
+        this.transport = transport;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Probe a resource with HEAD
+     *
+     * @param uri escaped URI of the resource
+     * @return
+     * @throws Exception
+     */
+    public ResourceMetadata head(String uri) throws Exception
+    {
+        try (WebDavResponse response = transport.execute(new WebDavRequest(DavMethods.METHOD_HEAD, uri)))
+        {
+            return fromHead(uri, response);
+        }
+    }
+
+    /**
+     * Probe a resource with a depth 0 PROPFIND
+     *
+     * @param uri escaped URI of the resource
+     * @return
+     * @throws Exception
+     */
+    public ResourceMetadata probe(String uri) throws Exception
+    {
+        try (WebDavResponse response = transport.execute(createProbeRequest(uri)))
+        {
+            return fromPropFind(uri, response);
+        }
+    }
+
+    /**
+     * Probe many resources with concurrent depth 0 PROPFIND requests, at most {@code concurrency} of them in flight
+     *
+     * @param uris escaped URIs of the resources
+     * @return the metadata of each resource, in the order of the given URIs
+     * @throws Exception
+     */
+    public Map<String, ResourceMetadata> probeAll(Collection<String> uris) throws Exception
+    {
+        Map<String, CompletableFuture<ResourceMetadata>> pending = new LinkedHashMap<>();
+        Semaphore inFlight = new Semaphore(concurrency);
+        for (String uri : uris)
+        {
+            inFlight.acquire();
+            CompletableFuture<ResourceMetadata> probe;
+            try
+            {
+                probe = probeAsync(uri);
+            }
+            catch (RuntimeException e)
+            {
+                probe = CompletableFuture.failedFuture(e);
+            }
+            pending.put(uri, probe.whenComplete((metadata, error) -> inFlight.release()));
+        }
+
+        Map<String, ResourceMetadata> results = new LinkedHashMap<>();
+        try
+        {
+            for (Map.Entry<String, CompletableFuture<ResourceMetadata>> entry : pending.entrySet())
+                results.put(entry.getKey(), entry.getValue().join());
+        }
+        catch (CompletionException e)
+        {
+            pending.values().forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof Exception)
+                throw (Exception) e.getCause();
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * Probe a resource with a depth 0 PROPFIND without blocking the calling thread
+     *
+     * @param uri escaped URI of the resource
+     * @return
+     */
+    public CompletableFuture<ResourceMetadata> probeAsync(String uri)
+    {
+        return transport.executeAsync(createProbeRequest(uri)).thenApply(response -> {
+            try (response)
+            {
+                return fromPropFind(uri, response);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+            catch (XMLStreamException e)
+            {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static WebDavRequest createProbeRequest(String uri)
+    {
+        return MultiStatusReader.createPropFindRequest(uri, PropertySelection.listing(), DavConstants.DEPTH_0);
+    }
+
+    private static ResourceMetadata fromHead(String uri, WebDavResponse response)
+    {
+        int status = response.getStatus();
+        boolean exists = status / 100 == 2;
+        return new ResourceMetadata(uri, status, exists, false, exists ? response.getContentLength() : -1, response.getHeader("ETag"),
+                response.getHeader("Last-Modified"));
+    }
+
+    private static ResourceMetadata fromPropFind(String uri, WebDavResponse response) throws IOException, XMLStreamException
+    {
+        int status = response.getStatus();
+        if (status != DavServletResponse.SC_MULTI_STATUS)
+            return new ResourceMetadata(uri, status, false, false, -1, null, null);
+        try (Stream<DavResource> resources = new MultiStatusReader(response.getBody()).stream())
+        {
+            DavResource resource = resources.findFirst().orElse(null);
+            if (resource == null || resource.getStatus() / 100 != 2)
+                return new ResourceMetadata(uri, resource == null ? status : resource.getStatus(), false, false, -1, null, null);
+            return new ResourceMetadata(uri, status, true, resource.isCollection(), resource.getContentLength(), resource.getEtag(),
+                    resource.getLastModified());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.alfresco.webdav.probe;
+
+/**
+ * Metadata of a resource returned by {@link MetadataProbe}, without its content
+ */
+public class ResourceMetadata
+{
+    private final String uri;
+    private final int status;
+    private final boolean exists;
+    private final boolean collection;
+    private final long contentLength;
+    private final String etag;
+    private final String lastModified;
+
+    public ResourceMetadata(String uri, int status, boolean exists, boolean collection, long contentLength, String etag, String lastModified)
+    {
+        this.uri = uri;
+        this.status = status;
+        this.exists = exists;
+        this.collection = collection;
+        this.contentLength = contentLength;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * @return escaped URI that was probed
+     */
+    public String getUri()
+    {
+        return uri;
+    }
+
+    /**
+     * @return status of the probe request: 200 for an existing resource probed with HEAD, 207 with PROPFIND
+     */
+    public int getStatus()
+    {
+        return status;
+    }
+
+    public boolean exists()
+    {
+        return exists;
+    }
+
+    /**
+     * @return true if the resource is a collection, always false for a HEAD probe that cannot tell
+     */
+    public boolean isCollection()
+    {
+        return collection;
+    }
+
+    /**
+     * @return size in bytes or -1 if unknown
+     */
+    public long getContentLength()
+    {
+        return contentLength;
+    }
+
+    public String getEtag()
+    {
+        return etag;
+    }
+
+    /**
+     * @return last modification date as sent by the server (RFC 1123 date)
+     */
+    public String getLastModified()
+    {
+        return lastModified;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("ResourceMetadata[uri=%s, status=%d, exists=%s, collection=%s, length=%d, etag=%s, lastModified=%s]", uri, status, exists,
+                collection, contentLength, etag, lastModified);
+    }
+}
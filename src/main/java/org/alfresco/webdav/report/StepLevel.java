@@ -0,0 +1,32 @@
+package org.alfresco.webdav.report;
+
+/**
+ * Which steps the {@link StepReporter} writes to the report log, and on which thread
+ */
+public enum StepLevel
+{
+    /**
+     * Every step, formatted and logged on the calling thread
+     */
+    SYNC,
+
+    /**
+     * Every step and failure, formatted and logged by the background writer
+     */
+    ALL,
+
+    /**
+     * One step in webdav.step.sampleRate and every failure, logged by the background writer
+     */
+    SAMPLED,
+
+    /**
+     * Failures only, logged by the background writer
+     */
+    FAILURES,
+
+    /**
+     * Nothing
+     */
+    OFF
+}
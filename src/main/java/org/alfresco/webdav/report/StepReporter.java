@@ -0,0 +1,275 @@
+package org.alfresco.webdav.report;
+
+import static org.alfresco.utility.report.log.Step.STEP;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.alfresco.webdav.WebDavProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+/**
+ * Process wide reporter of the WebDAV steps, configured with webdav.step.level (see {@link StepLevel}).
+ * <p>
+ * Except in {@link StepLevel#SYNC} mode, steps are not formatted on the calling thread: the format and its arguments
+ * are put in a bounded lock-free ring buffer, and a background thread formats and logs them in batches, against the
+ * TestNG result of the test that reported them. Arguments that are not immutable are captured with
+ * {@link String#valueOf(Object)} when the step is reported. When the buffer is full, steps are dropped and counted
+ * rather than slowing down the callers.
+ */
+@Component
+public class StepReporter implements DisposableBean
+{
+    private static final int BATCH_SIZE = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Autowired
+    private WebDavProperties webDavProperties;
+
+    private volatile StepLevel level;
+    private int sampleRate;
+    private AtomicReferenceArray<PendingStep> buffer;
+    private int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong stepCount = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private volatile Thread writer;
+
+    /**
+     * @return level of webdav.step.level, unless changed with {@link #setLevel(StepLevel)}
+     */
+    public StepLevel getLevel()
+    {
+        if (level == null)
+            configure();
+        return level;
+    }
+
+    /**
+     * Change the level for the following steps, e.g. for the duration of a load run
+     *
+     * @param newLevel
+     */
+    public synchronized void setLevel(StepLevel newLevel)
+    {
+        if (level == null)
+            configure();
+        level = newLevel;
+        if (newLevel != StepLevel.SYNC && newLevel != StepLevel.OFF)
+            startWriter();
+    }
+
+    /**
+     * Report a step of a test
+     *
+     * @param format a {@link String#format(String, Object...)} format
+     * @param args its arguments, formatted later when the step is logged asynchronously
+     */
+    public void step(String format, Object... args)
+    {
+        switch (getLevel())
+        {
+            case SYNC:
+                STEP(format(format, args));
+                break;
+            case ALL:
+                enqueue(format, args);
+                break;
+            case SAMPLED:
+                if (stepCount.incrementAndGet() % sampleRate == 0)
+                    enqueue(format, args);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Report a failed operation; in {@link StepLevel#SYNC} mode the failure is left to the assertions of the test
+     *
+     * @param format a {@link String#format(String, Object...)} format
+     * @param args its arguments
+     */
+    public void failure(String format, Object... args)
+    {
+        StepLevel current = getLevel();
+        if (current == StepLevel.ALL || current == StepLevel.SAMPLED || current == StepLevel.FAILURES)
+            enqueue(format, args);
+    }
+
+    /**
+     * Wait until the steps reported so far are logged
+     *
+     * @param timeoutMillis
+     * @return false if the steps are still not logged after the timeout
+     */
+    public boolean flush(long timeoutMillis)
+    {
+        long target = head.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (tail.get() < target)
+        {
+            if (System.nanoTime() > deadline || writer == null)
+                return false;
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        return true;
+    }
+
+    /**
+     * @return number of steps lost because the buffer was full
+     */
+    public long getDroppedSteps()
+    {
+        return dropped.sum();
+    }
+
+    @Override
+    public void destroy()
+    {
+        Thread stopped;
+        synchronized (this)
+        {
+            stopped = writer;
+        }
+        if (stopped == null)
+            return;
+        flush(TimeUnit.SECONDS.toMillis(10));
+        synchronized (this)
+        {
+            writer = null;
+        }
+        stopped.interrupt();
+    }
+
+    private synchronized void configure()
+    {
+        if (level != null)
+            return;
+        sampleRate = Math.max(webDavProperties.getStepSampleRate(), 1);
+        int capacity = Integer.highestOneBit(Math.max(webDavProperties.getStepBufferSize(), 2) - 1) << 1;
+        buffer = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+        level = StepLevel.valueOf(webDavProperties.getStepLevel());
+        if (level != StepLevel.SYNC && level != StepLevel.OFF)
+            startWriter();
+    }
+
+    /**
+     * Claim the next slot of the ring buffer and publish the step in it, or drop the step if the buffer is full
+     */
+    private void enqueue(String format, Object[] args)
+    {
+        long sequence;
+        do
+        {
+            sequence = head.get();
+            if (sequence - tail.get() >= buffer.length())
+            {
+                dropped.increment();
+                return;
+            }
+        }
+        while (!head.compareAndSet(sequence, sequence + 1));
+        buffer.lazySet((int) (sequence & mask), new PendingStep(format, snapshot(args), Reporter.getCurrentTestResult()));
+    }
+
+    /**
+     * @return the arguments, with the ones that could change before the step is formatted replaced by their string
+     */
+    private static Object[] snapshot(Object[] args)
+    {
+        Object[] snapshot = args;
+        for (int i = 0; args != null && i < args.length; i++)
+        {
+            if (!isImmutable(args[i]))
+            {
+                if (snapshot == args)
+                    snapshot = args.clone();
+                snapshot[i] = String.valueOf(args[i]);
+            }
+        }
+        return snapshot;
+    }
+
+    private static boolean isImmutable(Object arg)
+    {
+        return arg == null || arg instanceof String || arg instanceof Integer || arg instanceof Long || arg instanceof Double || arg instanceof Float
+                || arg instanceof Short || arg instanceof Byte || arg instanceof Boolean || arg instanceof Character || arg instanceof Enum;
+    }
+
+    private static String format(String format, Object[] args)
+    {
+        try
+        {
+            return String.format(format, args);
+        }
+        catch (RuntimeException e)
+        {
+            return String.format("%s [step not formatted: %s]", format, e.getMessage());
+        }
+    }
+
+    private void startWriter()
+    {
+        if (writer != null)
+            return;
+        writer = new Thread(this::drain, "webdav-step-reporter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Log the published steps in order, one batch at a time
+     */
+    private void drain()
+    {
+        while (!Thread.currentThread().isInterrupted())
+        {
+            int logged = 0;
+            while (logged < BATCH_SIZE && tail.get() < head.get())
+            {
+                int index = (int) (tail.get() & mask);
+                PendingStep step = buffer.get(index);
+                if (step == null)
+                    break; // claimed but not yet published
+                buffer.lazySet(index, null);
+                tail.lazySet(tail.get() + 1);
+                logged++;
+                Reporter.setCurrentTestResult(step.testResult);
+                try
+                {
+                    STEP(format(step.format, step.args));
+                }
+                finally
+                {
+                    Reporter.setCurrentTestResult(null);
+                }
+            }
+            if (logged == 0)
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    private static class PendingStep
+    {
+        private final String format;
+        private final Object[] args;
+        private final ITestResult testResult;
+
+        PendingStep(String format, Object[] args, ITestResult testResult)
+        {
+            this.format = format;
+            this.args = args;
+            this.testResult = testResult;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.alfresco.webdav.server;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Exclusive write lock of the {@link ResourceStore}
+ */
+final class ActiveLock
+{
+    private final String path;
+    private final String token;
+    private final String owner;
+    private final boolean deep;
+    private final long timeoutSeconds;
+    private final Instant expires;
+
+    ActiveLock(String path, String owner, boolean deep, long timeoutSeconds)
+    {
+        this(path, "opaquelocktoken:" + UUID.randomUUID(), owner, deep, timeoutSeconds);
+    }
+
+    private ActiveLock(String path, String token, String owner, boolean deep, long timeoutSeconds)
+    {
+        this.path = path;
+        this.token = token;
+        this.owner = owner;
+        this.deep = deep;
+        this.timeoutSeconds = timeoutSeconds;
+        this.expires = Instant.now().plusSeconds(timeoutSeconds);
+    }
+
+    /**
+     * @return the same lock with a new timeout
+     */
+    ActiveLock refreshed(long newTimeoutSeconds)
+    {
+        return new ActiveLock(path, token, owner, deep, newTimeoutSeconds);
+    }
+
+    String getPath()
+    {
+        return path;
+    }
+
+    String getToken()
+    {
+        return token;
+    }
+
+    String getOwner()
+    {
+        return owner;
+    }
+
+    /**
+     * @return true for a depth infinity lock, that also locks the descendants
+     */
+    boolean isDeep()
+    {
+        return deep;
+    }
+
+    long getTimeoutSeconds()
+    {
+        return timeoutSeconds;
+    }
+
+    boolean isExpired()
+    {
+        return Instant.now().isAfter(expires);
+    }
+
+    /**
+     * @return true if this lock applies to the given path
+     */
+    boolean covers(String resourcePath)
+    {
+        return path.equals(resourcePath) || (deep && resourcePath.startsWith(path + "/"));
+    }
+}
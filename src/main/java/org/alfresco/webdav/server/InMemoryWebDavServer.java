@@ -0,0 +1,692 @@
+package org.alfresco.webdav.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.alfresco.utility.LogFactory;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.jackrabbit.webdav.DavConstants;
+import org.apache.jackrabbit.webdav.DavMethods;
+import org.apache.jackrabbit.webdav.util.EncodeUtil;
+import org.apache.jackrabbit.webdav.xml.DomUtil;
+import org.apache.jackrabbit.webdav.xml.ElementIterator;
+import org.slf4j.Logger;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embeddable WebDAV server keeping its resources in memory, with the layout of the Alfresco repository
+ * (Sites, User Homes, Shared...), to run the WebDAV client, the benchmarks and the load generator without Alfresco.
+ * <p>
+ * It implements the class 2 methods used by {@link org.alfresco.webdav.WebDavWrapper}: OPTIONS, GET and HEAD (with
+ * single byte ranges), PUT, MKCOL, DELETE, COPY, MOVE, PROPFIND, PROPPATCH, LOCK and UNLOCK. Locks are exclusive write
+ * locks. Any Basic credentials are accepted; requests without credentials are challenged as Alfresco does.
+ * <p>
+ * To point a wrapper at it, set alfresco.server=localhost and alfresco.port to {@link #getPort()}, and
+ * webdav.nodeRef.mode=DISABLED since node references can only be read from Alfresco.
+ */
+public class InMemoryWebDavServer implements AutoCloseable
+{
+    public static final String CONTEXT = "/alfresco/webdav";
+    public static final int DEFAULT_THREADS = 64;
+
+    private static final String DAV_PROPERTY_PREFIX = "{" + DavConstants.NAMESPACE.getURI() + "}";
+    private static final Pattern LOCK_TOKEN = Pattern.compile("<(opaquelocktoken:[^>]+)>");
+    private static final Logger LOG = LogFactory.getLogger();
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d{0,18})-(\\d{0,18})");
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+    private static final long DEFAULT_LOCK_TIMEOUT_SECONDS = 3600;
+    private static final long INFINITE_LOCK_TIMEOUT_SECONDS = TimeUnit.DAYS.toSeconds(7);
+    private static final String[] LAYOUT = { "/Sites", "/User Homes", "/Data Dictionary", "/Shared", "/Guest Home" };
+    private static final String[] LIVE_PROPERTIES = { DavConstants.PROPERTY_RESOURCETYPE, DavConstants.PROPERTY_GETCONTENTLENGTH,
+            DavConstants.PROPERTY_GETCONTENTTYPE, DavConstants.PROPERTY_GETETAG, DavConstants.PROPERTY_GETLASTMODIFIED,
+            DavConstants.PROPERTY_CREATIONDATE, DavConstants.PROPERTY_DISPLAYNAME, DavConstants.PROPERTY_LOCKDISCOVERY,
+            DavConstants.PROPERTY_SUPPORTEDLOCK };
+
+    private final ResourceStore store = new ResourceStore();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * @param port 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public InMemoryWebDavServer(int port) throws IOException
+    {
+        this(port, DEFAULT_THREADS);
+    }
+
+    /**
+     * @param port 0 for any free port
+     * @param threads number of requests handled concurrently
+     * @throws IOException if the port cannot be bound
+     */
+    public InMemoryWebDavServer(int port, int threads) throws IOException
+    {
+        for (String path : LAYOUT)
+            store.createCollection(path);
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "webdav-server-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext(CONTEXT, this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Run a standalone server, on the port given as first argument or 8080
+     */
+    public static void main(String[] args) throws Exception
+    {
+        InMemoryWebDavServer server = new InMemoryWebDavServer(args.length > 0 ? Integer.parseInt(args[0]) : 8080).start();
+        LOG.info("WebDAV server listening on {}", server.getBaseUrl());
+        Thread.currentThread().join();
+    }
+
+    /**
+     * @return this server, accepting requests
+     */
+    public InMemoryWebDavServer start()
+    {
+        server.start();
+        return this;
+    }
+
+    public int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return URL of the WebDAV root, e.g. http://localhost:8080/alfresco/webdav
+     */
+    public String getBaseUrl()
+    {
+        return String.format("http://localhost:%d%s", getPort(), CONTEXT);
+    }
+
+    /**
+     * Create a site and its document library, as created by Alfresco Share
+     *
+     * @param siteId
+     * @return
+     */
+    public InMemoryWebDavServer createSite(String siteId)
+    {
+        store.createCollection("/Sites/" + siteId);
+        store.createCollection("/Sites/" + siteId + "/documentLibrary");
+        return this;
+    }
+
+    /**
+     * @param username
+     * @return
+     */
+    public InMemoryWebDavServer createUserHome(String username)
+    {
+        store.createCollection("/User Homes/" + username);
+        return this;
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        try
+        {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            String owner = getUser(exchange.getRequestHeaders());
+            if (owner == null)
+            {
+                exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"Alfresco DAV Server\"");
+                exchange.sendResponseHeaders(HttpStatus.SC_UNAUTHORIZED, -1);
+                return;
+            }
+            String path = toPath(exchange.getRequestURI().getRawPath());
+            if (path == null)
+            {
+                exchange.sendResponseHeaders(HttpStatus.SC_NOT_FOUND, -1);
+                return;
+            }
+            switch (exchange.getRequestMethod())
+            {
+                case DavMethods.METHOD_OPTIONS:
+                    exchange.getResponseHeaders().set("DAV", "1,2");
+                    exchange.getResponseHeaders().set("MS-Author-Via", "DAV");
+                    exchange.getResponseHeaders().set("Allow",
+                            "OPTIONS, GET, HEAD, PUT, DELETE, MKCOL, COPY, MOVE, PROPFIND, PROPPATCH, LOCK, UNLOCK");
+                    exchange.sendResponseHeaders(HttpStatus.SC_OK, -1);
+                    break;
+                case DavMethods.METHOD_GET:
+                case DavMethods.METHOD_HEAD:
+                    get(exchange, path);
+                    break;
+                case DavMethods.METHOD_PUT:
+                    put(exchange, path, body);
+                    break;
+                case DavMethods.METHOD_MKCOL:
+                    exchange.sendResponseHeaders(body.length > 0 ? HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE : store.createCollection(path), -1);
+                    break;
+                case DavMethods.METHOD_DELETE:
+                    exchange.sendResponseHeaders(store.delete(path, getSubmittedTokens(exchange.getRequestHeaders())), -1);
+                    break;
+                case DavMethods.METHOD_COPY:
+                case DavMethods.METHOD_MOVE:
+                    copyOrMove(exchange, path);
+                    break;
+                case DavMethods.METHOD_PROPFIND:
+                    propFind(exchange, path, body);
+                    break;
+                case DavMethods.METHOD_PROPPATCH:
+                    propPatch(exchange, path, body);
+                    break;
+                case DavMethods.METHOD_LOCK:
+                    lock(exchange, path, body, owner);
+                    break;
+                case DavMethods.METHOD_UNLOCK:
+                    String token = exchange.getRequestHeaders().getFirst(DavConstants.HEADER_LOCK_TOKEN);
+                    exchange.sendResponseHeaders(store.unlock(path, token != null ? token.replaceAll("[<>\\s]", "") : null), -1);
+                    break;
+                default:
+                    exchange.sendResponseHeaders(HttpStatus.SC_METHOD_NOT_ALLOWED, -1);
+            }
+        }
+        catch (Exception e)
+        {
+            LOG.error(String.format("%s %s failed", exchange.getRequestMethod(), exchange.getRequestURI()), e);
+            exchange.sendResponseHeaders(HttpStatus.SC_INTERNAL_SERVER_ERROR, -1);
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+
+    private void get(HttpExchange exchange, String path) throws IOException
+    {
+        StoredResource resource = store.get(path);
+        if (resource == null)
+        {
+            exchange.sendResponseHeaders(HttpStatus.SC_NOT_FOUND, -1);
+            return;
+        }
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", resource.getEtag());
+        headers.set("Last-Modified", HTTP_DATE.format(resource.getLastModified()));
+        if (resource.matchesEtag(exchange.getRequestHeaders().getFirst("If-None-Match")))
+        {
+            exchange.sendResponseHeaders(HttpStatus.SC_NOT_MODIFIED, -1);
+            return;
+        }
+        byte[] content = resource.getContent();
+        if (resource.isCollection())
+        {
+            StringBuilder page = new StringBuilder("<html><body><ul>");
+            for (StoredResource child : store.getChildren(path))
+                page.append(String.format("<li><a href=\"%s\">%s</a></li>", getHref(child), escape(child.getName())));
+            content = page.append("</ul></body></html>").toString().getBytes(StandardCharsets.UTF_8);
+            headers.set("Content-Type", "text/html; charset=UTF-8");
+        }
+        else
+        {
+            headers.set("Content-Type", resource.getContentType());
+            headers.set("Accept-Ranges", "bytes");
+        }
+        int status = HttpStatus.SC_OK;
+        int offset = 0;
+        int length = content.length;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        Matcher matcher = range != null ? RANGE.matcher(range.trim()) : null;
+        // a range without any bound, e.g. "bytes=-", is invalid and ignored
+        boolean validRange = matcher != null && matcher.matches() && !(matcher.group(1).isEmpty() && matcher.group(2).isEmpty());
+        if (!resource.isCollection() && validRange && (ifRange == null || ifRange.equals(resource.getEtag())))
+        {
+            long first = matcher.group(1).isEmpty() ? Math.max(content.length - Long.parseLong(matcher.group(2)), 0) : Long.parseLong(matcher.group(1));
+            long last = matcher.group(1).isEmpty() || matcher.group(2).isEmpty() ? content.length - 1
+                    : Math.min(Long.parseLong(matcher.group(2)), content.length - 1);
+            if (first >= content.length || first > last)
+            {
+                headers.set("Content-Range", "bytes */" + content.length);
+                exchange.sendResponseHeaders(HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE, -1);
+                return;
+            }
+            status = HttpStatus.SC_PARTIAL_CONTENT;
+            offset = (int) first;
+            length = (int) (last - first + 1);
+            headers.set("Content-Range", String.format("bytes %d-%d/%d", first, last, content.length));
+        }
+        if (DavMethods.METHOD_HEAD.equals(exchange.getRequestMethod()))
+        {
+            headers.set("Content-Length", String.valueOf(length));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, length > 0 ? length : -1);
+        if (length > 0)
+        {
+            try (OutputStream out = exchange.getResponseBody())
+            {
+                out.write(content, offset, length);
+            }
+        }
+    }
+
+    private void put(HttpExchange exchange, String path, byte[] body) throws IOException
+    {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        int status = store.put(path, body, contentType, getSubmittedTokens(exchange.getRequestHeaders()), exchange.getRequestHeaders().getFirst("If-Match"));
+        StoredResource resource = store.get(path);
+        if (status / 100 == 2 && resource != null)
+            exchange.getResponseHeaders().set("ETag", resource.getEtag());
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private void copyOrMove(HttpExchange exchange, String path) throws IOException
+    {
+        Headers request = exchange.getRequestHeaders();
+        String destinationHeader = request.getFirst(DavConstants.HEADER_DESTINATION);
+        if (destinationHeader == null)
+        {
+            exchange.sendResponseHeaders(HttpStatus.SC_BAD_REQUEST, -1);
+            return;
+        }
+        String destination = toPath(URI.create(destinationHeader.trim()).getRawPath());
+        if (destination == null)
+        {
+            exchange.sendResponseHeaders(HttpStatus.SC_BAD_GATEWAY, -1);
+            return;
+        }
+        boolean overwrite = !"F".equalsIgnoreCase(request.getFirst(DavConstants.HEADER_OVERWRITE));
+        Set<String> tokens = getSubmittedTokens(request);
+        int status;
+        if (DavMethods.METHOD_MOVE.equals(exchange.getRequestMethod()))
+            status = store.move(path, destination, overwrite, tokens);
+        else
+            status = store.copy(path, destination, overwrite, !"0".equals(request.getFirst(DavConstants.HEADER_DEPTH)), tokens);
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private void propFind(HttpExchange exchange, String path, byte[] body) throws Exception
+    {
+        StoredResource resource = store.get(path);
+        if (resource == null)
+        {
+            exchange.sendResponseHeaders(HttpStatus.SC_NOT_FOUND, -1);
+            return;
+        }
+        List<String> requested = null;
+        boolean namesOnly = false;
+        if (body.length > 0)
+        {
+            Element propFind = parse(body);
+            Element prop = DomUtil.getChildElement(propFind, DavConstants.XML_PROP, DavConstants.NAMESPACE);
+            namesOnly = DomUtil.getChildElement(propFind, DavConstants.XML_PROPNAME, DavConstants.NAMESPACE) != null;
+            if (prop != null)
+            {
+                requested = new ArrayList<>();
+                ElementIterator names = DomUtil.getChildren(prop);
+                while (names.hasNext())
+                    requested.add(getKey(names.nextElement()));
+            }
+        }
+        List<StoredResource> found = new ArrayList<>();
+        found.add(resource);
+        String depth = exchange.getRequestHeaders().getFirst(DavConstants.HEADER_DEPTH);
+        if (resource.isCollection() && "1".equals(depth))
+            found.addAll(store.getChildren(path));
+        else if (resource.isCollection() && !"0".equals(depth))
+            found.addAll(store.getDescendants(path));
+
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?><D:multistatus xmlns:D=\"DAV:\">");
+        for (StoredResource each : found)
+        {
+            xml.append("<D:response><D:href>").append(getHref(each)).append("</D:href>");
+            StringBuilder foundProperties = new StringBuilder();
+            StringBuilder missingProperties = new StringBuilder();
+            for (String key : requested != null ? requested : getPropertyKeys(each))
+            {
+                if (namesOnly)
+                    appendElement(foundProperties, key, "");
+                else if (!appendProperty(foundProperties, each, key))
+                    appendElement(missingProperties, key, "");
+            }
+            appendPropStat(xml, foundProperties, HttpStatus.SC_OK);
+            appendPropStat(xml, missingProperties, HttpStatus.SC_NOT_FOUND);
+            xml.append("</D:response>");
+        }
+        sendXml(exchange, HttpStatus.SC_MULTI_STATUS, xml.append("</D:multistatus>"));
+    }
+
+    private void propPatch(HttpExchange exchange, String path, byte[] body) throws Exception
+    {
+        StoredResource resource = store.get(path);
+        if (resource == null || body.length == 0)
+        {
+            exchange.sendResponseHeaders(resource == null ? HttpStatus.SC_NOT_FOUND : HttpStatus.SC_BAD_REQUEST, -1);
+            return;
+        }
+        Map<String, String> set = new LinkedHashMap<>();
+        Set<String> removed = new HashSet<>();
+        ElementIterator updates = DomUtil.getChildren(parse(body));
+        while (updates.hasNext())
+        {
+            Element update = updates.nextElement();
+            Element prop = DomUtil.getChildElement(update, DavConstants.XML_PROP, DavConstants.NAMESPACE);
+            ElementIterator properties = prop != null ? DomUtil.getChildren(prop) : DomUtil.getChildren(update, "none", DavConstants.NAMESPACE);
+            while (properties.hasNext())
+            {
+                Element property = properties.nextElement();
+                if (DavConstants.XML_SET.equals(update.getLocalName()))
+                    set.put(getKey(property), DomUtil.getText(property, ""));
+                else
+                    removed.add(getKey(property));
+            }
+        }
+        List<String> keys = new ArrayList<>(set.keySet());
+        keys.addAll(removed);
+        boolean protectedChange = keys.stream().anyMatch(key -> key.startsWith(DAV_PROPERTY_PREFIX));
+        int status = protectedChange ? HttpStatus.SC_FORBIDDEN
+                : store.updateProperties(path, set, removed, getSubmittedTokens(exchange.getRequestHeaders()));
+        if (status != HttpStatus.SC_MULTI_STATUS && status != HttpStatus.SC_FORBIDDEN)
+        {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?><D:multistatus xmlns:D=\"DAV:\"><D:response><D:href>");
+        xml.append(getHref(resource)).append("</D:href>");
+        for (String key : keys)
+        {
+            StringBuilder name = new StringBuilder();
+            appendElement(name, key, "");
+            int propertyStatus = protectedChange && key.startsWith(DAV_PROPERTY_PREFIX) ? HttpStatus.SC_FORBIDDEN
+                    : protectedChange ? HttpStatus.SC_FAILED_DEPENDENCY : HttpStatus.SC_OK;
+            appendPropStat(xml, name, propertyStatus);
+        }
+        sendXml(exchange, HttpStatus.SC_MULTI_STATUS, xml.append("</D:response></D:multistatus>"));
+    }
+
+    private void lock(HttpExchange exchange, String path, byte[] body, String user) throws Exception
+    {
+        Headers request = exchange.getRequestHeaders();
+        long timeout = getTimeoutSeconds(request.getFirst(DavConstants.HEADER_TIMEOUT));
+        Set<String> tokens = getSubmittedTokens(request);
+        ActiveLock lock;
+        int status;
+        if (body.length == 0)
+        {
+            lock = store.refreshLock(path, tokens, timeout);
+            status = lock != null ? HttpStatus.SC_OK : HttpStatus.SC_PRECONDITION_FAILED;
+        }
+        else
+        {
+            Element lockInfo = parse(body);
+            Element scope = DomUtil.getChildElement(lockInfo, DavConstants.XML_LOCKSCOPE, DavConstants.NAMESPACE);
+            if (scope != null && DomUtil.getChildElement(scope, DavConstants.XML_EXCLUSIVE, DavConstants.NAMESPACE) == null)
+            {
+                exchange.sendResponseHeaders(HttpStatus.SC_PRECONDITION_FAILED, -1);
+                return;
+            }
+            Element ownerElement = DomUtil.getChildElement(lockInfo, DavConstants.XML_OWNER, DavConstants.NAMESPACE);
+            String owner = ownerElement != null && !DomUtil.getTextTrim(ownerElement).isEmpty() ? DomUtil.getTextTrim(ownerElement) : user;
+            boolean deep = !"0".equals(request.getFirst(DavConstants.HEADER_DEPTH));
+            ResourceStore.LockResult result = store.lock(path, owner, deep, timeout, tokens);
+            lock = result.getLock();
+            status = result.getStatus();
+        }
+        if (lock == null)
+        {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.getResponseHeaders().set(DavConstants.HEADER_LOCK_TOKEN, "<" + lock.getToken() + ">");
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?><D:prop xmlns:D=\"DAV:\">");
+        appendLockDiscovery(xml, lock);
+        sendXml(exchange, status, xml.append("</D:prop>"));
+    }
+
+    /**
+     * @return keys of the live and dead properties of the resource
+     */
+    private static List<String> getPropertyKeys(StoredResource resource)
+    {
+        List<String> keys = new ArrayList<>();
+        for (String name : LIVE_PROPERTIES)
+        {
+            boolean fileOnly = DavConstants.PROPERTY_GETCONTENTLENGTH.equals(name) || DavConstants.PROPERTY_GETCONTENTTYPE.equals(name);
+            if (!fileOnly || !resource.isCollection())
+                keys.add(DAV_PROPERTY_PREFIX + name);
+        }
+        keys.addAll(resource.getProperties().keySet());
+        return keys;
+    }
+
+    /**
+     * @return false if the resource does not have the property
+     */
+    private boolean appendProperty(StringBuilder xml, StoredResource resource, String key)
+    {
+        if (!key.startsWith(DAV_PROPERTY_PREFIX))
+        {
+            String value = resource.getProperties().get(key);
+            if (value != null)
+                appendElement(xml, key, escape(value));
+            return value != null;
+        }
+        String name = key.substring(DAV_PROPERTY_PREFIX.length());
+        switch (name)
+        {
+            case DavConstants.PROPERTY_RESOURCETYPE:
+                appendElement(xml, key, resource.isCollection() ? "<D:collection/>" : "");
+                return true;
+            case DavConstants.PROPERTY_GETCONTENTLENGTH:
+                if (resource.isCollection())
+                    return false;
+                appendElement(xml, key, String.valueOf(resource.getContent().length));
+                return true;
+            case DavConstants.PROPERTY_GETCONTENTTYPE:
+                if (resource.isCollection())
+                    return false;
+                appendElement(xml, key, escape(resource.getContentType()));
+                return true;
+            case DavConstants.PROPERTY_GETETAG:
+                appendElement(xml, key, escape(resource.getEtag()));
+                return true;
+            case DavConstants.PROPERTY_GETLASTMODIFIED:
+                appendElement(xml, key, HTTP_DATE.format(resource.getLastModified()));
+                return true;
+            case DavConstants.PROPERTY_CREATIONDATE:
+                appendElement(xml, key, DateTimeFormatter.ISO_INSTANT.format(resource.getCreated().truncatedTo(ChronoUnit.SECONDS)));
+                return true;
+            case DavConstants.PROPERTY_DISPLAYNAME:
+                appendElement(xml, key, escape(resource.getName()));
+                return true;
+            case DavConstants.PROPERTY_LOCKDISCOVERY:
+                ActiveLock lock = store.getLock(resource.getPath());
+                if (lock != null)
+                    appendLockDiscovery(xml, lock);
+                else
+                    appendElement(xml, key, "");
+                return true;
+            case DavConstants.PROPERTY_SUPPORTEDLOCK:
+                appendElement(xml, key, "<D:lockentry><D:lockscope><D:exclusive/></D:lockscope><D:locktype><D:write/></D:locktype></D:lockentry>");
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void appendLockDiscovery(StringBuilder xml, ActiveLock lock)
+    {
+        xml.append("<D:lockdiscovery><D:activelock><D:locktype><D:write/></D:locktype><D:lockscope><D:exclusive/></D:lockscope>");
+        xml.append("<D:depth>").append(lock.isDeep() ? DavConstants.DEPTH_INFINITY_S : "0").append("</D:depth>");
+        xml.append("<D:owner>").append(escape(lock.getOwner())).append("</D:owner>");
+        xml.append("<D:timeout>Second-").append(lock.getTimeoutSeconds()).append("</D:timeout>");
+        xml.append("<D:locktoken><D:href>").append(lock.getToken()).append("</D:href></D:locktoken>");
+        StoredResource root = store.get(lock.getPath());
+        if (root != null)
+            xml.append("<D:lockroot><D:href>").append(getHref(root)).append("</D:href></D:lockroot>");
+        xml.append("</D:activelock></D:lockdiscovery>");
+    }
+
+    private static void appendPropStat(StringBuilder xml, StringBuilder properties, int status)
+    {
+        if (properties.length() == 0)
+            return;
+        xml.append("<D:propstat><D:prop>").append(properties).append("</D:prop>");
+        xml.append(String.format("<D:status>HTTP/1.1 %d %s</D:status></D:propstat>", status, HttpStatus.getStatusText(status)));
+    }
+
+    /**
+     * Append an element named by a "{namespace}name" key
+     */
+    private static void appendElement(StringBuilder xml, String key, String content)
+    {
+        if (key.startsWith(DAV_PROPERTY_PREFIX))
+        {
+            String name = key.substring(DAV_PROPERTY_PREFIX.length());
+            xml.append(content.isEmpty() ? String.format("<D:%s/>", name) : String.format("<D:%s>%s</D:%s>", name, content, name));
+            return;
+        }
+        int end = key.indexOf('}');
+        String namespace = escape(key.substring(1, end));
+        String name = key.substring(end + 1);
+        xml.append(String.format("<P:%s xmlns:P=\"%s\">%s</P:%s>", name, namespace, content, name));
+    }
+
+    private static void sendXml(HttpExchange exchange, int status, CharSequence xml) throws IOException
+    {
+        byte[] bytes = xml.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody())
+        {
+            out.write(bytes);
+        }
+    }
+
+    private static Element parse(byte[] body) throws Exception
+    {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        factory.setXIncludeAware(false);
+        factory.setExpandEntityReferences(false);
+        Document document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(body));
+        return document.getDocumentElement();
+    }
+
+    private static String getKey(Element element)
+    {
+        return String.format("{%s}%s", element.getNamespaceURI() != null ? element.getNamespaceURI() : "", element.getLocalName());
+    }
+
+    /**
+     * @return decoded path of a raw request path below {@link #CONTEXT}, without trailing slash, or null if it is outside
+     */
+    private static String toPath(String rawPath)
+    {
+        if (rawPath == null || !(rawPath.equals(CONTEXT) || rawPath.startsWith(CONTEXT + "/")))
+            return null;
+        String path = EncodeUtil.unescape(rawPath.substring(CONTEXT.length()));
+        while (path.endsWith("/"))
+            path = path.substring(0, path.length() - 1);
+        return path;
+    }
+
+    private static String getHref(StoredResource resource)
+    {
+        String href = CONTEXT + EncodeUtil.escapePath(resource.getPath());
+        return resource.isCollection() ? href + "/" : href;
+    }
+
+    /**
+     * @return name of the user of the Basic credentials, or null if there are none
+     */
+    private static String getUser(Headers headers)
+    {
+        String authorization = headers.getFirst("Authorization");
+        if (authorization == null || !authorization.regionMatches(true, 0, "Basic ", 0, 6))
+            return null;
+        String credentials = new String(Base64.getDecoder().decode(authorization.substring(6).trim()), StandardCharsets.UTF_8);
+        return credentials.substring(0, Math.max(credentials.indexOf(':'), 0));
+    }
+
+    /**
+     * @return lock tokens of the If and Lock-Token headers
+     */
+    private static Set<String> getSubmittedTokens(Headers headers)
+    {
+        List<String> values = new ArrayList<>();
+        for (String name : new String[] { DavConstants.HEADER_IF, DavConstants.HEADER_LOCK_TOKEN })
+            values.addAll(headers.getOrDefault(name, Collections.emptyList()));
+        Set<String> tokens = new HashSet<>();
+        for (String value : values)
+        {
+            Matcher matcher = LOCK_TOKEN.matcher(value);
+            while (matcher.find())
+                tokens.add(matcher.group(1));
+        }
+        return tokens;
+    }
+
+    private static long getTimeoutSeconds(String timeout)
+    {
+        if (timeout == null)
+            return DEFAULT_LOCK_TIMEOUT_SECONDS;
+        String first = timeout.split(",")[0].trim();
+        if (!first.toLowerCase(Locale.ROOT).startsWith("second-"))
+            return INFINITE_LOCK_TIMEOUT_SECONDS;
+        try
+        {
+            return Long.parseLong(first.substring("second-".length()));
+        }
+        catch (NumberFormatException e)
+        {
+            return DEFAULT_LOCK_TIMEOUT_SECONDS;
+        }
+    }
+
+    private static String escape(String text)
+    {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
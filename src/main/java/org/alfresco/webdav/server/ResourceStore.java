@@ -0,0 +1,418 @@
+package org.alfresco.webdav.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.httpclient.HttpStatus;
+
+/**
+ * Thread safe tree of resources of the {@link InMemoryWebDavServer}.
+ * <p>
+ * Reads are lock free. Changes are serialized by one lock, so that a COPY or a MOVE of a subtree is not mixed with
+ * another change. Paths are decoded, start with "/" and have no trailing slash, the root being "".
+ * Methods return the HTTP status of the operation.
+ */
+class ResourceStore
+{
+    static final String ROOT = "";
+
+    private final ConcurrentMap<String, StoredResource> resources = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, NavigableSet<String>> children = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ActiveLock> locks = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    ResourceStore()
+    {
+        resources.put(ROOT, StoredResource.newCollection(ROOT));
+        children.put(ROOT, new ConcurrentSkipListSet<>());
+    }
+
+    static String getParent(String path)
+    {
+        return path.substring(0, Math.max(path.lastIndexOf('/'), 0));
+    }
+
+    /**
+     * @return the resource or null
+     */
+    StoredResource get(String path)
+    {
+        return resources.get(path);
+    }
+
+    List<StoredResource> getChildren(String path)
+    {
+        NavigableSet<String> names = children.get(path);
+        if (names == null)
+            return Collections.emptyList();
+        List<StoredResource> found = new ArrayList<>();
+        for (String child : names)
+        {
+            StoredResource resource = resources.get(child);
+            if (resource != null)
+                found.add(resource);
+        }
+        return found;
+    }
+
+    /**
+     * @return all the descendants of a collection, each collection before its children
+     */
+    List<StoredResource> getDescendants(String path)
+    {
+        List<StoredResource> descendants = new ArrayList<>();
+        for (StoredResource child : getChildren(path))
+        {
+            descendants.add(child);
+            if (child.isCollection())
+                descendants.addAll(getDescendants(child.getPath()));
+        }
+        return descendants;
+    }
+
+    /**
+     * @return the unexpired lock applying to the resource, set on it or on an ancestor, or null
+     */
+    ActiveLock getLock(String path)
+    {
+        for (String candidate = path;; candidate = getParent(candidate))
+        {
+            ActiveLock lock = locks.get(candidate);
+            if (lock != null && lock.isExpired())
+                locks.remove(candidate, lock);
+            else if (lock != null && lock.covers(path))
+                return lock;
+            if (candidate.isEmpty())
+                return null;
+        }
+    }
+
+    int createCollection(String path)
+    {
+        writeLock.lock();
+        try
+        {
+            if (resources.containsKey(path))
+                return HttpStatus.SC_METHOD_NOT_ALLOWED;
+            if (!isCollection(getParent(path)))
+                return HttpStatus.SC_CONFLICT;
+            add(StoredResource.newCollection(path));
+            return HttpStatus.SC_CREATED;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @param tokens lock tokens submitted with the request
+     * @param ifMatch If-Match header of the request, or null
+     */
+    int put(String path, byte[] content, String contentType, Set<String> tokens, String ifMatch)
+    {
+        writeLock.lock();
+        try
+        {
+            StoredResource existing = resources.get(path);
+            if (ifMatch != null && (existing == null || !existing.matchesEtag(ifMatch)))
+                return HttpStatus.SC_PRECONDITION_FAILED;
+            if (existing != null && existing.isCollection())
+                return HttpStatus.SC_METHOD_NOT_ALLOWED;
+            if (!isCollection(getParent(path)))
+                return HttpStatus.SC_CONFLICT;
+            if (isLocked(path, tokens, false))
+                return HttpStatus.SC_LOCKED;
+            if (existing == null)
+            {
+                add(StoredResource.newFile(path, content, contentType));
+                return HttpStatus.SC_CREATED;
+            }
+            resources.put(path, existing.withContent(content, contentType));
+            return HttpStatus.SC_NO_CONTENT;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    int delete(String path, Set<String> tokens)
+    {
+        writeLock.lock();
+        try
+        {
+            if (path.isEmpty())
+                return HttpStatus.SC_FORBIDDEN;
+            if (!resources.containsKey(path))
+                return HttpStatus.SC_NOT_FOUND;
+            if (isLocked(path, tokens, true))
+                return HttpStatus.SC_LOCKED;
+            remove(path);
+            return HttpStatus.SC_NO_CONTENT;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @param deep false to copy a collection without its content (Depth: 0)
+     */
+    int copy(String source, String destination, boolean overwrite, boolean deep, Set<String> tokens)
+    {
+        writeLock.lock();
+        try
+        {
+            int status = prepareDestination(source, destination, overwrite, tokens);
+            if (status / 100 != 2)
+                return status;
+            StoredResource resource = resources.get(source);
+            List<StoredResource> copied = new ArrayList<>();
+            copied.add(resource);
+            if (deep && resource.isCollection())
+                copied.addAll(getDescendants(source));
+            for (StoredResource original : copied)
+                add(original.copiedTo(destination + original.getPath().substring(source.length())));
+            return status;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    int move(String source, String destination, boolean overwrite, Set<String> tokens)
+    {
+        writeLock.lock();
+        try
+        {
+            if (resources.containsKey(source) && isLocked(source, tokens, true))
+                return HttpStatus.SC_LOCKED;
+            int status = prepareDestination(source, destination, overwrite, tokens);
+            if (status / 100 != 2)
+                return status;
+            StoredResource resource = resources.get(source);
+            List<StoredResource> moved = new ArrayList<>();
+            moved.add(resource);
+            if (resource.isCollection())
+                moved.addAll(getDescendants(source));
+            remove(source);
+            for (StoredResource original : moved)
+                add(original.movedTo(destination + original.getPath().substring(source.length())));
+            return status;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Check the source and the destination of a COPY or a MOVE, and remove the replaced destination
+     *
+     * @return 201 if the destination is new, 204 if it is replaced, an error otherwise
+     */
+    private int prepareDestination(String source, String destination, boolean overwrite, Set<String> tokens)
+    {
+        if (!resources.containsKey(source))
+            return HttpStatus.SC_NOT_FOUND;
+        if (destination.equals(source) || destination.startsWith(source + "/") || destination.isEmpty())
+            return HttpStatus.SC_FORBIDDEN;
+        if (!isCollection(getParent(destination)))
+            return HttpStatus.SC_CONFLICT;
+        if (isLocked(destination, tokens, true))
+            return HttpStatus.SC_LOCKED;
+        if (!resources.containsKey(destination))
+            return HttpStatus.SC_CREATED;
+        if (!overwrite)
+            return HttpStatus.SC_PRECONDITION_FAILED;
+        remove(destination);
+        return HttpStatus.SC_NO_CONTENT;
+    }
+
+    /**
+     * Lock a resource, creating an empty file if it does not exist
+     *
+     * @return 200 or 201 with the created lock, 409 if the parent does not exist, 423 if a lock applies
+     */
+    LockResult lock(String path, String owner, boolean deep, long timeoutSeconds, Set<String> tokens)
+    {
+        writeLock.lock();
+        try
+        {
+            if (!resources.containsKey(path) && !isCollection(getParent(path)))
+                return new LockResult(HttpStatus.SC_CONFLICT, null);
+            if (getLock(path) != null || (deep && isLocked(path, Collections.emptySet(), true)))
+                return new LockResult(HttpStatus.SC_LOCKED, null);
+            int status = HttpStatus.SC_OK;
+            if (!resources.containsKey(path))
+            {
+                add(StoredResource.newFile(path, new byte[0], null));
+                status = HttpStatus.SC_CREATED;
+            }
+            ActiveLock lock = new ActiveLock(path, owner, deep, timeoutSeconds);
+            locks.put(path, lock);
+            return new LockResult(status, lock);
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return the refreshed lock, or null if none of the tokens is the lock of the resource
+     */
+    ActiveLock refreshLock(String path, Set<String> tokens, long timeoutSeconds)
+    {
+        writeLock.lock();
+        try
+        {
+            ActiveLock lock = getLock(path);
+            if (lock == null || !tokens.contains(lock.getToken()))
+                return null;
+            ActiveLock refreshed = lock.refreshed(timeoutSeconds);
+            locks.put(lock.getPath(), refreshed);
+            return refreshed;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    int unlock(String path, String token)
+    {
+        writeLock.lock();
+        try
+        {
+            if (!resources.containsKey(path))
+                return HttpStatus.SC_NOT_FOUND;
+            ActiveLock lock = getLock(path);
+            if (lock == null || !lock.getToken().equals(token))
+                return HttpStatus.SC_CONFLICT;
+            locks.remove(lock.getPath());
+            return HttpStatus.SC_NO_CONTENT;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @param set dead properties to set, keyed by "{namespace}name"
+     * @param removed dead properties to remove
+     */
+    int updateProperties(String path, Map<String, String> set, Set<String> removed, Set<String> tokens)
+    {
+        writeLock.lock();
+        try
+        {
+            StoredResource resource = resources.get(path);
+            if (resource == null)
+                return HttpStatus.SC_NOT_FOUND;
+            if (isLocked(path, tokens, false))
+                return HttpStatus.SC_LOCKED;
+            Map<String, String> properties = new LinkedHashMap<>(resource.getProperties());
+            properties.putAll(set);
+            properties.keySet().removeAll(removed);
+            resources.put(path, resource.withProperties(properties));
+            return HttpStatus.SC_MULTI_STATUS;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean isCollection(String path)
+    {
+        StoredResource resource = resources.get(path);
+        return resource != null && resource.isCollection();
+    }
+
+    /**
+     * @param withDescendants true to also check the locks of the descendants
+     * @return true if a lock applies and its token was not submitted
+     */
+    private boolean isLocked(String path, Set<String> tokens, boolean withDescendants)
+    {
+        for (ActiveLock lock : locks.values())
+        {
+            if (lock.isExpired())
+            {
+                locks.remove(lock.getPath(), lock);
+                continue;
+            }
+            boolean applies = lock.covers(path) || (withDescendants && lock.getPath().startsWith(path + "/"));
+            if (applies && !tokens.contains(lock.getToken()))
+                return true;
+        }
+        return false;
+    }
+
+    private void add(StoredResource resource)
+    {
+        String parent = getParent(resource.getPath());
+        resources.put(resource.getPath(), resource);
+        if (resource.isCollection())
+            children.putIfAbsent(resource.getPath(), new ConcurrentSkipListSet<>());
+        children.computeIfAbsent(parent, key -> new ConcurrentSkipListSet<>()).add(resource.getPath());
+        resources.computeIfPresent(parent, (key, collection) -> collection.touched());
+    }
+
+    private void remove(String path)
+    {
+        StoredResource resource = resources.get(path);
+        if (resource != null && resource.isCollection())
+        {
+            for (StoredResource child : getChildren(path))
+                remove(child.getPath());
+            children.remove(path);
+        }
+        resources.remove(path);
+        locks.remove(path);
+        String parent = getParent(path);
+        NavigableSet<String> siblings = children.get(parent);
+        if (siblings != null)
+            siblings.remove(path);
+        resources.computeIfPresent(parent, (key, collection) -> collection.touched());
+    }
+
+    /**
+     * Status of a LOCK request and the created lock
+     */
+    static final class LockResult
+    {
+        private final int status;
+        private final ActiveLock lock;
+
+        LockResult(int status, ActiveLock lock)
+        {
+            this.status = status;
+            this.lock = lock;
+        }
+
+        int getStatus()
+        {
+            return status;
+        }
+
+        ActiveLock getLock()
+        {
+            return lock;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.alfresco.webdav.server;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable state of a resource of the {@link ResourceStore}. Every change creates a new instance with a new version,
+ * which is the ETag of the resource.
+ */
+final class StoredResource
+{
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final String path;
+    private final boolean collection;
+    private final byte[] content;
+    private final String contentType;
+    private final Instant created;
+    private final Instant lastModified;
+    private final long version;
+    private final Map<String, String> properties;
+
+    private StoredResource(String path, boolean collection, byte[] content, String contentType, Instant created, Instant lastModified,
+            Map<String, String> properties)
+    {
+        this.path = path;
+        this.collection = collection;
+        this.content = content;
+        this.contentType = contentType;
+        this.created = created;
+        this.lastModified = lastModified;
+        this.version = VERSIONS.incrementAndGet();
+        this.properties = Collections.unmodifiableMap(properties);
+    }
+
+    static StoredResource newCollection(String path)
+    {
+        Instant now = Instant.now();
+        return new StoredResource(path, true, new byte[0], null, now, now, new LinkedHashMap<>());
+    }
+
+    static StoredResource newFile(String path, byte[] content, String contentType)
+    {
+        Instant now = Instant.now();
+        return new StoredResource(path, false, content, contentType, now, now, new LinkedHashMap<>());
+    }
+
+    /**
+     * @return a new version with the given content
+     */
+    StoredResource withContent(byte[] newContent, String newContentType)
+    {
+        return new StoredResource(path, false, newContent, newContentType != null ? newContentType : contentType, created, Instant.now(), properties);
+    }
+
+    /**
+     * @param newProperties dead properties, keyed by "{namespace}name", with their text value
+     * @return a new version with the given dead properties
+     */
+    StoredResource withProperties(Map<String, String> newProperties)
+    {
+        return new StoredResource(path, collection, content, contentType, created, Instant.now(), new LinkedHashMap<>(newProperties));
+    }
+
+    /**
+     * @return a new version, used when the children of a collection change
+     */
+    StoredResource touched()
+    {
+        return new StoredResource(path, collection, content, contentType, created, Instant.now(), properties);
+    }
+
+    /**
+     * @return the same resource at another path, keeping its dates
+     */
+    StoredResource movedTo(String newPath)
+    {
+        return new StoredResource(newPath, collection, content, contentType, created, lastModified, properties);
+    }
+
+    /**
+     * @return a new resource at another path with the same content and dead properties
+     */
+    StoredResource copiedTo(String newPath)
+    {
+        Instant now = Instant.now();
+        return new StoredResource(newPath, collection, content, contentType, now, now, properties);
+    }
+
+    /**
+     * @return decoded path below the WebDAV root, without trailing slash, "" for the root
+     */
+    String getPath()
+    {
+        return path;
+    }
+
+    String getName()
+    {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    boolean isCollection()
+    {
+        return collection;
+    }
+
+    /**
+     * @return the content, that must not be modified
+     */
+    byte[] getContent()
+    {
+        return content;
+    }
+
+    String getContentType()
+    {
+        return contentType != null ? contentType : "application/octet-stream";
+    }
+
+    Instant getCreated()
+    {
+        return created;
+    }
+
+    Instant getLastModified()
+    {
+        return lastModified;
+    }
+
+    String getEtag()
+    {
+        return String.format("\"%d\"", version);
+    }
+
+    /**
+     * @param condition value of an If-Match or If-None-Match header, or null
+     * @return true if the condition lists the ETag of the resource, or is "*"
+     */
+    boolean matchesEtag(String condition)
+    {
+        if (condition == null)
+            return false;
+        for (String etag : condition.split(","))
+        {
+            String trimmed = etag.trim();
+            if (trimmed.equals("*") || trimmed.replaceFirst("^W/", "").equals(getEtag()))
+                return true;
+        }
+        return false;
+    }
+
+    Map<String, String> getProperties()
+    {
+        return properties;
+    }
+}
@@ -0,0 +1,306 @@
+package org.alfresco.webdav.session;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.alfresco.webdav.dsl.PropertySelection;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.jackrabbit.webdav.DavConstants;
+
+/**
+ * Locks held by one {@link WebDavSession}, by resource: any number of them can be taken and released concurrently.
+ * <p>
+ * With a scheduler, held locks are refreshed in the background once two thirds of their timeout have elapsed, so that
+ * long scenarios keep their documents locked. A lock the server no longer knows (refresh answered with 412) is
+ * forgotten. The refreshes stop when no lock is held any more, and start again with the next lock.
+ */
+public class LockRegistry implements AutoCloseable
+{
+    private final WebDavSession session;
+    private final Duration timeout;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, HeldLock> locks = new ConcurrentHashMap<>();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder lostLocks = new LongAdder();
+    private ScheduledFuture<?> refreshTask;
+
+    /**
+     * @param session
+     * @param timeout timeout requested for every lock
+     * @param scheduler runs the refreshes, or null to never refresh the locks
+     */
+    public LockRegistry(WebDavSession session, Duration timeout, ScheduledExecutorService scheduler)
+    {
+        this.session = session;
+        this.timeout = timeout;
+        this.scheduler = scheduler;
+    }
+
+    public WebDavSession getSession()
+    {
+        return session;
+    }
+
+    /**
+     * Take an exclusive lock on a resource and remember its token
+     *
+     * @param path
+     * @return
+     * @throws Exception
+     */
+    public WebDavResult lock(String path) throws Exception
+    {
+        WebDavResult result = session.lock(path, timeout);
+        if (result.isSuccess() && result.getLockToken() != null)
+        {
+            locks.put(session.getUri(path), new HeldLock(result.getLockToken(), System.nanoTime() + timeout.toNanos()));
+            startRefresh();
+        }
+        return result;
+    }
+
+    /**
+     * Extend the timeout of a held lock now
+     *
+     * @param path
+     * @return
+     * @throws Exception
+     */
+    public WebDavResult refresh(String path) throws Exception
+    {
+        String uri = session.getUri(path);
+        HeldLock held = locks.get(uri);
+        if (held == null)
+            throw new IllegalStateException("No lock is held on " + uri);
+        WebDavResult result = session.refreshLock(uri, held.token, timeout);
+        refreshed(uri, held, result);
+        return result;
+    }
+
+    /**
+     * Release the lock held on a resource; without a held lock, the UNLOCK is sent with an empty token and fails the
+     * way the server chooses
+     *
+     * @param path
+     * @return
+     * @throws Exception
+     */
+    public WebDavResult unlock(String path) throws Exception
+    {
+        String uri = session.getUri(path);
+        HeldLock held = locks.get(uri);
+        WebDavResult result = session.unlock(uri, held != null ? held.token : "");
+        if (held != null && isReleased(result) && locks.remove(uri, held))
+            stopRefreshIfIdle();
+        return result;
+    }
+
+    /**
+     * Release all the held locks in parallel
+     *
+     * @return results of the UNLOCK requests that failed
+     */
+    public List<WebDavResult> unlockAll()
+    {
+        List<CompletableFuture<WebDavResult>> unlocks = new ArrayList<>();
+        for (Map.Entry<String, HeldLock> held : locks.entrySet())
+        {
+            unlocks.add(session.unlockAsync(held.getKey(), held.getValue().token).whenComplete((result, error) -> {
+                if (result != null && isReleased(result))
+                    locks.remove(held.getKey(), held.getValue());
+            }));
+        }
+        List<WebDavResult> failures = new ArrayList<>();
+        for (CompletableFuture<WebDavResult> unlock : unlocks)
+        {
+            WebDavResult result = unlock.exceptionally(error -> null).join();
+            if (result != null && !result.isSuccess())
+                failures.add(result);
+        }
+        stopRefreshIfIdle();
+        return failures;
+    }
+
+    /**
+     * Read the active locks of a resource with a depth 0 lockdiscovery PROPFIND
+     *
+     * @param path
+     * @return
+     * @throws Exception
+     */
+    public WebDavResult discover(String path) throws Exception
+    {
+        return session.propFind(path, PropertySelection.lock(), DavConstants.DEPTH_0);
+    }
+
+    /**
+     * @param path
+     * @return true if the resource has an active lock, held by this session or not
+     * @throws Exception
+     */
+    public boolean isLocked(String path) throws Exception
+    {
+        return isLocked(discover(path));
+    }
+
+    /**
+     * @param discovery result of {@link #discover(String)}
+     * @return true if the lockdiscovery of the resource has an active lock
+     */
+    public static boolean isLocked(WebDavResult discovery)
+    {
+        return discovery.getStatus() == HttpStatus.SC_MULTI_STATUS && !discovery.getResources().isEmpty() && discovery.getResources().get(0).isLocked();
+    }
+
+    /**
+     * @param path
+     * @return token of the lock held on the resource, or null
+     */
+    public String getToken(String path)
+    {
+        HeldLock held = locks.get(session.getUri(path));
+        return held != null ? held.token : null;
+    }
+
+    public boolean isHeld(String path)
+    {
+        return locks.containsKey(session.getUri(path));
+    }
+
+    /**
+     * @return tokens of the held locks by resource URI
+     */
+    public Map<String, String> getHeldLocks()
+    {
+        Map<String, String> tokens = new TreeMap<>();
+        locks.forEach((uri, held) -> tokens.put(uri, held.token));
+        return Collections.unmodifiableMap(tokens);
+    }
+
+    public int size()
+    {
+        return locks.size();
+    }
+
+    /**
+     * @return number of background refreshes sent
+     */
+    public long getRefreshCount()
+    {
+        return refreshes.sum();
+    }
+
+    /**
+     * @return number of held locks the server did not know any more when they were refreshed
+     */
+    public long getLostLockCount()
+    {
+        return lostLocks.sum();
+    }
+
+    /**
+     * Stop refreshing the locks, which stay held until they expire
+     */
+    public synchronized void stopRefresh()
+    {
+        if (refreshTask != null)
+        {
+            refreshTask.cancel(false);
+            refreshTask = null;
+        }
+    }
+
+    /**
+     * Stop refreshing and release all the held locks
+     */
+    @Override
+    public void close()
+    {
+        stopRefresh();
+        unlockAll();
+    }
+
+    private synchronized void stopRefreshIfIdle()
+    {
+        if (locks.isEmpty())
+            stopRefresh();
+    }
+
+    private synchronized void startRefresh()
+    {
+        if (scheduler == null || refreshTask != null)
+            return;
+        long period = Math.max(timeout.toMillis() / 6, TimeUnit.SECONDS.toMillis(1));
+        refreshTask = scheduler.scheduleWithFixedDelay(this::refreshDueLocks, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Refresh asynchronously the locks with less than a third of their timeout left
+     */
+    private void refreshDueLocks()
+    {
+        if (locks.isEmpty())
+        {
+            stopRefreshIfIdle();
+            return;
+        }
+        long refreshBefore = System.nanoTime() + timeout.toNanos() / 3;
+        for (Map.Entry<String, HeldLock> entry : locks.entrySet())
+        {
+            String uri = entry.getKey();
+            HeldLock held = entry.getValue();
+            if (held.expiresAtNanos - refreshBefore > 0 || !refreshing.add(uri))
+                continue;
+            refreshes.increment();
+            session.refreshLockAsync(uri, held.token, timeout).whenComplete((result, error) -> {
+                refreshing.remove(uri);
+                if (result != null)
+                    refreshed(uri, held, result);
+                // on a network error the lock is retried by the next run
+            });
+        }
+    }
+
+    private void refreshed(String uri, HeldLock held, WebDavResult result)
+    {
+        if (result.isSuccess())
+            locks.replace(uri, held, new HeldLock(held.token, System.nanoTime() + timeout.toNanos()));
+        else if (result.getStatus() == HttpStatus.SC_PRECONDITION_FAILED && locks.remove(uri, held))
+        {
+            lostLocks.increment();
+            stopRefreshIfIdle();
+        }
+    }
+
+    /**
+     * @return true if the lock is gone: released, or unknown to the server
+     */
+    private static boolean isReleased(WebDavResult result)
+    {
+        return result.isSuccess() || result.getStatus() == HttpStatus.SC_CONFLICT || result.getStatus() == HttpStatus.SC_PRECONDITION_FAILED;
+    }
+
+    private static class HeldLock
+    {
+        private final String token;
+        private final long expiresAtNanos;
+
+        HeldLock(String token, long expiresAtNanos)
+        {
+            this.token = token;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
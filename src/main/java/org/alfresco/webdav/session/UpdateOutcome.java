@@ -0,0 +1,65 @@
+package org.alfresco.webdav.session;
+
+import org.apache.commons.httpclient.HttpStatus;
+
+/**
+ * Outcome of a conditional update with {@link WebDavSession#update(String, byte[], String, String)}
+ */
+public enum UpdateOutcome
+{
+    /**
+     * The content was replaced
+     */
+    UPDATED,
+
+    /**
+     * The resource does not exist (404, or 412 to If-Match: * without a lock token); the PUT created nothing
+     */
+    NOT_FOUND,
+
+    /**
+     * The resource changed since the expected ETag was read
+     */
+    MODIFIED,
+
+    /**
+     * A PUT that only required the resource to exist and submitted a lock token was answered 412: either the resource
+     * does not exist or the token is not valid
+     */
+    PRECONDITION_FAILED,
+
+    /**
+     * The resource is locked with a token the request did not submit
+     */
+    LOCKED,
+
+    /**
+     * Any other error status
+     */
+    FAILED;
+
+    /**
+     * @param status status of the conditional PUT
+     * @param expectedEtag ETag sent in If-Match, or null if the PUT only required the resource to exist
+     * @param lockToken lock token sent in If, or null
+     * @return
+     */
+    static UpdateOutcome of(int status, String expectedEtag, String lockToken)
+    {
+        if (status >= 200 && status < 300)
+            return UPDATED;
+        switch (status)
+        {
+            case HttpStatus.SC_NOT_FOUND:
+                return NOT_FOUND;
+            case HttpStatus.SC_PRECONDITION_FAILED:
+                if (expectedEtag != null)
+                    return MODIFIED;
+                return lockToken == null ? NOT_FOUND : PRECONDITION_FAILED;
+            case HttpStatus.SC_LOCKED:
+                return LOCKED;
+            default:
+                return FAILED;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.alfresco.webdav.session;
+
+/**
+ * Immutable outcome of a conditional update: the typed {@link UpdateOutcome} and the underlying {@link WebDavResult}
+ */
+public class UpdateResult
+{
+    private final UpdateOutcome outcome;
+    private final WebDavResult result;
+
+    UpdateResult(UpdateOutcome outcome, WebDavResult result)
+    {
+        this.outcome = outcome;
+        this.result = result;
+    }
+
+    public UpdateOutcome getOutcome()
+    {
+        return outcome;
+    }
+
+    public boolean isUpdated()
+    {
+        return outcome == UpdateOutcome.UPDATED;
+    }
+
+    public WebDavResult getResult()
+    {
+        return result;
+    }
+
+    public int getStatus()
+    {
+        return result.getStatus();
+    }
+
+    /**
+     * @return ETag of the new content, if the server sent it, to chain the next conditional update
+     */
+    public String getETag()
+    {
+        return result.getHeader("ETag");
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s %s", outcome, result);
+    }
+}
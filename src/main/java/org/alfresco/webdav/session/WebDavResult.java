@@ -0,0 +1,131 @@
+package org.alfresco.webdav.session;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.webdav.listing.DavResource;
+
+/**
+ * Immutable outcome of one {@link WebDavSession} request: status, response headers and timing, plus what the
+ * operation read from the body (content of a GET, resources of a PROPFIND, token of a LOCK).
+ * <p>
+ * Results can be shared freely between threads.
+ */
+public class WebDavResult
+{
+    private static final byte[] NO_BODY = new byte[0];
+
+    private final String method;
+    private final String uri;
+    private final int status;
+    private final Map<String, List<String>> headers;
+    private final long elapsedNanos;
+    private final byte[] body;
+    private final List<DavResource> resources;
+    private final String lockToken;
+
+    WebDavResult(String method, String uri, int status, Map<String, List<String>> headers, long elapsedNanos, byte[] body, List<DavResource> resources,
+            String lockToken)
+    {
+        this.method = method;
+        this.uri = uri;
+        this.status = status;
+        this.headers = headers;
+        this.elapsedNanos = elapsedNanos;
+        this.body = body != null ? body : NO_BODY;
+        this.resources = resources != null ? Collections.unmodifiableList(resources) : Collections.emptyList();
+        this.lockToken = lockToken;
+    }
+
+    public String getMethod()
+    {
+        return method;
+    }
+
+    public String getUri()
+    {
+        return uri;
+    }
+
+    public int getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * @return true for a 2xx status
+     */
+    public boolean isSuccess()
+    {
+        return status >= 200 && status < 300;
+    }
+
+    /**
+     * @return response headers, unmodifiable and case insensitive
+     */
+    public Map<String, List<String>> getHeaders()
+    {
+        return headers;
+    }
+
+    /**
+     * @param name header name, case insensitive
+     * @return first value of the header or null if the response does not have it
+     */
+    public String getHeader(String name)
+    {
+        List<String> values = headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * @return time from sending the request to reading what the operation needs from the response
+     */
+    public long getElapsedNanos()
+    {
+        return elapsedNanos;
+    }
+
+    public Duration getElapsed()
+    {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    /**
+     * @return a copy of the body read by {@link WebDavSession#get(String)}, empty for the other operations
+     */
+    public byte[] getBody()
+    {
+        return body.clone();
+    }
+
+    public String getBodyAsString()
+    {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return resources of a {@link WebDavSession#propFind} multistatus, empty for the other operations
+     */
+    public List<DavResource> getResources()
+    {
+        return resources;
+    }
+
+    /**
+     * @return token of the lock taken by {@link WebDavSession#lock(String, Duration)}, or null
+     */
+    public String getLockToken()
+    {
+        return lockToken;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s %s %d (%d ms)", method, uri, status, Duration.ofNanos(elapsedNanos).toMillis());
+    }
+}
@@ -0,0 +1,344 @@
+package org.alfresco.webdav.session;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import org.alfresco.webdav.http.WebDavRequest;
+import org.alfresco.webdav.http.WebDavResponse;
+import org.alfresco.webdav.http.WebDavTransport;
+import org.alfresco.webdav.listing.DavResource;
+import org.alfresco.webdav.listing.MultiStatusReader;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.jackrabbit.webdav.DavConstants;
+import org.apache.jackrabbit.webdav.DavMethods;
+import org.apache.jackrabbit.webdav.property.DavPropertyNameSet;
+import org.apache.jackrabbit.webdav.util.EncodeUtil;
+
+/**
+ * WebDAV operations of one authenticated user, safe to call from many threads at once.
+ * <p>
+ * Unlike {@link org.alfresco.webdav.WebDavWrapper}, a session keeps no state between requests: every operation takes
+ * the paths it works on and returns an immutable {@link WebDavResult}. Paths are either absolute escaped URIs or
+ * repository paths relative to the WebDAV root, e.g. /Sites/site/documentLibrary/file.txt.
+ */
+public class WebDavSession
+{
+    private static final String XML = "text/xml; charset=UTF-8";
+    private static final String OPAQUE_LOCK_TOKEN = "opaquelocktoken:";
+
+    private final WebDavTransport transport;
+    private final String rootUrl;
+    private final String owner;
+
+    /**
+     * @param transport thread safe transport, authenticated with the user of the session
+     * @param rootUrl URL of the WebDAV root, e.g. http://localhost:8080/alfresco/webdav
+     * @param owner owner of the locks taken by the session, usually the user name
+     */
+    public WebDavSession(WebDavTransport transport, String rootUrl, String owner)
+    {
+        this.transport = transport;
+        this.rootUrl = rootUrl.endsWith("/") ? rootUrl.substring(0, rootUrl.length() - 1) : rootUrl;
+        this.owner = owner;
+    }
+
+    public WebDavTransport getTransport()
+    {
+        return transport;
+    }
+
+    public String getOwner()
+    {
+        return owner;
+    }
+
+    /**
+     * @param path absolute URI or repository path
+     * @return the escaped URI of the resource
+     */
+    public String getUri(String path)
+    {
+        if (path.startsWith("http://") || path.startsWith("https://"))
+            return path.replace(" ", "%20");
+        return rootUrl + EncodeUtil.escapePath(path.startsWith("/") ? path : "/" + path);
+    }
+
+    /**
+     * Execute a request, discarding the response body
+     *
+     * @param request
+     * @return
+     * @throws Exception
+     */
+    public WebDavResult execute(WebDavRequest request) throws Exception
+    {
+        long start = System.nanoTime();
+        try (WebDavResponse response = transport.execute(request))
+        {
+            return toResult(request, response, start, false);
+        }
+    }
+
+    /**
+     * Execute a request without blocking the calling thread, discarding the response body
+     *
+     * @param request
+     * @return
+     */
+    public CompletableFuture<WebDavResult> executeAsync(WebDavRequest request)
+    {
+        return executeAsync(request, false);
+    }
+
+    public WebDavResult createFolder(String path) throws Exception
+    {
+        return execute(new WebDavRequest(DavMethods.METHOD_MKCOL, getUri(path)));
+    }
+
+    /**
+     * @param path
+     * @param content
+     * @param contentType or null to let the server guess it
+     * @return
+     * @throws Exception
+     */
+    public WebDavResult put(String path, byte[] content, String contentType) throws Exception
+    {
+        return execute(new WebDavRequest(DavMethods.METHOD_PUT, getUri(path)).body(content, contentType));
+    }
+
+    /**
+     * Stream a local file to the server
+     *
+     * @param path
+     * @param content
+     * @return
+     * @throws Exception
+     */
+    public WebDavResult put(String path, File content) throws Exception
+    {
+        return execute(new WebDavRequest(DavMethods.METHOD_PUT, getUri(path)).body(content, null));
+    }
+
+    /**
+     * Replace the content of an existing file with a single conditional PUT, never creating it: If-Match carries the
+     * expected ETag, or "*" to only require the file to exist, and If carries the lock token of the session, if any.
+     *
+     * @param path
+     * @param content
+     * @param expectedEtag ETag the file must still have, or null to accept any version
+     * @param lockToken token of a lock held on the file, or null
+     * @return
+     * @throws Exception
+     */
+    public UpdateResult update(String path, byte[] content, String expectedEtag, String lockToken) throws Exception
+    {
+        WebDavRequest put = new WebDavRequest(DavMethods.METHOD_PUT, getUri(path)).header("If-Match", expectedEtag != null ? expectedEtag : "*")
+                .body(content, null);
+        if (lockToken != null)
+            put.header(DavConstants.HEADER_IF, "(<" + lockToken + ">)");
+        WebDavResult result = execute(put);
+        return new UpdateResult(UpdateOutcome.of(result.getStatus(), expectedEtag, lockToken), result);
+    }
+
+    /**
+     * Read the content of a file in memory, see {@link org.alfresco.webdav.transfer.WebDavDownloader} for large files
+     *
+     * @param path
+     * @return a result with the content as body
+     * @throws Exception
+     */
+    public WebDavResult get(String path) throws Exception
+    {
+        return read(new WebDavRequest(DavMethods.METHOD_GET, getUri(path)));
+    }
+
+    public CompletableFuture<WebDavResult> getAsync(String path)
+    {
+        return executeAsync(new WebDavRequest(DavMethods.METHOD_GET, getUri(path)), true);
+    }
+
+    public WebDavResult head(String path) throws Exception
+    {
+        return execute(new WebDavRequest(DavMethods.METHOD_HEAD, getUri(path)));
+    }
+
+    public WebDavResult delete(String path) throws Exception
+    {
+        return execute(new WebDavRequest(DavMethods.METHOD_DELETE, getUri(path)));
+    }
+
+    public WebDavResult copy(String sourcePath, String destinationPath, boolean overwrite) throws Exception
+    {
+        return execute(createCopyOrMove(DavMethods.METHOD_COPY, sourcePath, destinationPath, overwrite));
+    }
+
+    public WebDavResult move(String sourcePath, String destinationPath, boolean overwrite) throws Exception
+    {
+        return execute(createCopyOrMove(DavMethods.METHOD_MOVE, sourcePath, destinationPath, overwrite));
+    }
+
+    /**
+     * @param path
+     * @param properties requested properties
+     * @param depth {@link DavConstants#DEPTH_0}, {@link DavConstants#DEPTH_1} or {@link DavConstants#DEPTH_INFINITY}
+     * @return a result with the resources of the multistatus response
+     * @throws Exception
+     */
+    public WebDavResult propFind(String path, DavPropertyNameSet properties, int depth) throws Exception
+    {
+        return read(MultiStatusReader.createPropFindRequest(getUri(path), properties, depth));
+    }
+
+    public CompletableFuture<WebDavResult> propFindAsync(String path, DavPropertyNameSet properties, int depth)
+    {
+        return executeAsync(MultiStatusReader.createPropFindRequest(getUri(path), properties, depth), true);
+    }
+
+    /**
+     * Take an exclusive write lock on a resource and its descendants
+     *
+     * @param path
+     * @param timeout requested lock timeout
+     * @return a result with the token of the lock
+     * @throws Exception
+     */
+    public WebDavResult lock(String path, Duration timeout) throws Exception
+    {
+        String lockInfo = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><D:lockinfo xmlns:D=\"DAV:\">"
+                + "<D:lockscope><D:exclusive/></D:lockscope><D:locktype><D:write/></D:locktype>"
+                + "<D:owner>" + escapeXml(owner) + "</D:owner></D:lockinfo>";
+        return read(new WebDavRequest(DavMethods.METHOD_LOCK, getUri(path))
+                .header(DavConstants.HEADER_TIMEOUT, "Second-" + timeout.getSeconds())
+                .header(DavConstants.HEADER_DEPTH, DavConstants.DEPTH_INFINITY_S)
+                .body(lockInfo.getBytes(StandardCharsets.UTF_8), XML));
+    }
+
+    /**
+     * Extend the timeout of a lock held by the session
+     *
+     * @param path
+     * @param lockToken
+     * @param timeout new lock timeout
+     * @return
+     * @throws Exception
+     */
+    public WebDavResult refreshLock(String path, String lockToken, Duration timeout) throws Exception
+    {
+        return read(createRefreshLock(path, lockToken, timeout));
+    }
+
+    public CompletableFuture<WebDavResult> refreshLockAsync(String path, String lockToken, Duration timeout)
+    {
+        return executeAsync(createRefreshLock(path, lockToken, timeout), true);
+    }
+
+    public WebDavResult unlock(String path, String lockToken) throws Exception
+    {
+        return execute(createUnlock(path, lockToken));
+    }
+
+    public CompletableFuture<WebDavResult> unlockAsync(String path, String lockToken)
+    {
+        return executeAsync(createUnlock(path, lockToken));
+    }
+
+    private WebDavRequest createRefreshLock(String path, String lockToken, Duration timeout)
+    {
+        return new WebDavRequest(DavMethods.METHOD_LOCK, getUri(path)).header(DavConstants.HEADER_IF, "(<" + lockToken + ">)")
+                .header(DavConstants.HEADER_TIMEOUT, "Second-" + timeout.getSeconds());
+    }
+
+    private WebDavRequest createUnlock(String path, String lockToken)
+    {
+        return new WebDavRequest(DavMethods.METHOD_UNLOCK, getUri(path)).header(DavConstants.HEADER_LOCK_TOKEN, "<" + lockToken + ">");
+    }
+
+    private WebDavRequest createCopyOrMove(String method, String sourcePath, String destinationPath, boolean overwrite)
+    {
+        return new WebDavRequest(method, getUri(sourcePath)).header(DavConstants.HEADER_DESTINATION, getUri(destinationPath))
+                .header(DavConstants.HEADER_OVERWRITE, overwrite ? "T" : "F");
+    }
+
+    private WebDavResult read(WebDavRequest request) throws Exception
+    {
+        long start = System.nanoTime();
+        try (WebDavResponse response = transport.execute(request))
+        {
+            return toResult(request, response, start, true);
+        }
+    }
+
+    /**
+     * The body is read on the thread completing the response, so that the connection is given back at once
+     */
+    private CompletableFuture<WebDavResult> executeAsync(WebDavRequest request, boolean readBody)
+    {
+        long start = System.nanoTime();
+        return transport.executeAsync(request).thenApply(response -> {
+            try (WebDavResponse closed = response)
+            {
+                return toResult(request, closed, start, readBody);
+            }
+            catch (Exception e)
+            {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    private static WebDavResult toResult(WebDavRequest request, WebDavResponse response, long start, boolean readBody) throws Exception
+    {
+        byte[] body = null;
+        List<DavResource> resources = null;
+        String lockToken = null;
+        if (readBody && DavMethods.METHOD_PROPFIND.equals(request.getMethod()))
+        {
+            if (response.getStatus() == HttpStatus.SC_MULTI_STATUS)
+            {
+                try (MultiStatusReader reader = new MultiStatusReader(response.getBody()))
+                {
+                    resources = reader.stream().collect(Collectors.toList());
+                }
+            }
+        }
+        else if (readBody && DavMethods.METHOD_LOCK.equals(request.getMethod()))
+        {
+            lockToken = getLockToken(response);
+        }
+        else if (readBody)
+        {
+            body = response.getBodyAsBytes();
+        }
+        return new WebDavResult(request.getMethod(), request.getUri(), response.getStatus(), response.getHeaders(), System.nanoTime() - start, body,
+                resources, lockToken);
+    }
+
+    /**
+     * @return token of the Lock-Token header, or of the lockdiscovery of the body for servers that omit the header
+     */
+    private static String getLockToken(WebDavResponse response) throws Exception
+    {
+        if (response.getStatus() != HttpStatus.SC_OK && response.getStatus() != HttpStatus.SC_CREATED)
+            return null;
+        String header = response.getHeader(DavConstants.HEADER_LOCK_TOKEN);
+        if (header != null)
+            return header.trim().replaceAll("^<|>$", "");
+        String body = new String(response.getBodyAsBytes(), StandardCharsets.UTF_8);
+        int start = body.indexOf(OPAQUE_LOCK_TOKEN);
+        if (start < 0)
+            return null;
+        int end = body.indexOf('<', start);
+        return end < 0 ? null : body.substring(start, end).trim();
+    }
+
+    private static String escapeXml(String text)
+    {
+        return text == null ? "" : text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -0,0 +1,166 @@
+package org.alfresco.webdav.transfer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.alfresco.webdav.http.WebDavRequest;
+import org.alfresco.webdav.http.WebDavResponse;
+import org.alfresco.webdav.http.WebDavTransport;
+import org.apache.jackrabbit.webdav.DavMethods;
+import org.apache.jackrabbit.webdav.util.EncodeUtil;
+
+/**
+ * Uploads a local folder tree into a WebDAV collection.
+ * <p>
+ * Collections are created level by level, so a parent always exists before its children, and the MKCOLs of one level
+ * run in parallel. Files are then uploaded in parallel with single PUTs. At most {@code concurrency} requests are in
+ * flight at any time. The content of a folder that could not be created is reported as {@link UploadItem#SKIPPED}.
+ */
+public class DirectoryUploader
+{
+    /**
+     * Status returned by MKCOL when the collection already exists
+     */
+    public static final int COLLECTION_ALREADY_EXISTS = 405;
+
+    private static final AtomicInteger UPLOADER_COUNT = new AtomicInteger();
+
+    private final WebDavTransport transport;
+    private final int concurrency;
+    private final boolean expectContinue;
+
+    /**
+     * @param transport transport of the user uploading the files
+     * @param concurrency maximal number of requests in flight
+     * @param expectContinue true to send the files with "Expect: 100-continue"
+     */
+    public DirectoryUploader(WebDavTransport transport, int concurrency, boolean expectContinue)
+    {
+        this.transport = transport;
+        this.concurrency = concurrency;
+        this.expectContinue = expectContinue;
+    }
+
+    /**
+     * Upload the local folder, with all its content, as a child of the given collection
+     *
+     * @param localRoot local folder
+     * @param parentUri escaped URI of the collection receiving the folder
+     * @return
+     * @throws Exception
+     */
+    public UploadReport upload(Path localRoot, String parentUri) throws Exception
+    {
+        long start = System.nanoTime();
+        String rootUri = String.format("%s/%s", parentUri.endsWith("/") ? parentUri.substring(0, parentUri.length() - 1) : parentUri,
+                EncodeUtil.escape(localRoot.getFileName().toString()));
+
+        Map<Integer, List<Path>> folderLevels = new TreeMap<>();
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(localRoot))
+        {
+            paths.forEach(path -> {
+                if (Files.isDirectory(path))
+                    folderLevels.computeIfAbsent(path.getNameCount() - localRoot.getNameCount(), level -> new ArrayList<>()).add(path);
+                else
+                    files.add(path);
+            });
+        }
+
+        List<UploadItem> items = Collections.synchronizedList(new ArrayList<>());
+        Set<Path> failedFolders = ConcurrentHashMap.newKeySet();
+        int uploaderId = UPLOADER_COUNT.incrementAndGet();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, String.format("webdav-upload-%d-%d", uploaderId, threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+        try
+        {
+            for (List<Path> folders : folderLevels.values())
+                send(folders, true, localRoot, rootUri, failedFolders, items, executor);
+            send(files, false, localRoot, rootUri, failedFolders, items, executor);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return new UploadReport(rootUri, new ArrayList<>(items), System.nanoTime() - start);
+    }
+
+    /**
+     * Send the given paths in parallel and wait for all of them
+     */
+    private void send(List<Path> paths, boolean collections, Path localRoot, String rootUri, Set<Path> failedFolders, List<UploadItem> items,
+            ExecutorService executor) throws Exception
+    {
+        List<Future<UploadItem>> pending = new ArrayList<>();
+        for (Path path : paths)
+        {
+            String uri = toUri(path, localRoot, rootUri);
+            if (failedFolders.contains(path.getParent()))
+            {
+                items.add(new UploadItem(path, uri, collections, UploadItem.SKIPPED, 0, 0, null));
+                if (collections)
+                    failedFolders.add(path);
+            }
+            else
+                pending.add(executor.submit(() -> send(path, uri, collections)));
+        }
+        for (Future<UploadItem> result : pending)
+        {
+            UploadItem item = result.get();
+            items.add(item);
+            if (collections && !item.isSuccessful())
+                failedFolders.add(item.getLocalPath());
+        }
+    }
+
+    private UploadItem send(Path path, String uri, boolean collection)
+    {
+        long start = System.nanoTime();
+        WebDavRequest request;
+        long bytes = 0;
+        if (collection)
+            request = new WebDavRequest(DavMethods.METHOD_MKCOL, uri);
+        else
+        {
+            bytes = path.toFile().length();
+            request = new WebDavRequest(DavMethods.METHOD_PUT, uri).body(path.toFile(), null);
+            if (expectContinue)
+                request.header("Expect", "100-continue");
+        }
+        try (WebDavResponse response = transport.execute(request))
+        {
+            return new UploadItem(path, uri, collection, response.getStatus(), bytes, System.nanoTime() - start, null);
+        }
+        catch (Exception e)
+        {
+            return new UploadItem(path, uri, collection, 0, bytes, System.nanoTime() - start, e);
+        }
+    }
+
+    private static String toUri(Path path, Path localRoot, String rootUri)
+    {
+        StringBuilder uri = new StringBuilder(rootUri);
+        for (Path name : localRoot.relativize(path))
+        {
+            if (!name.toString().isEmpty())
+                uri.append('/').append(EncodeUtil.escape(name.toString()));
+        }
+        return uri.toString();
+    }
+}
@@ -0,0 +1,71 @@
+package org.alfresco.webdav.transfer;
+
+/**
+ * Outcome of a {@link WebDavDownloader} transfer
+ */
+public class DownloadResult
+{
+    private final int status;
+    private final long bytesTransferred;
+    private final int segments;
+    private final int attempts;
+    private final long resumedFrom;
+
+    public DownloadResult(int status, long bytesTransferred, int segments)
+    {
+        this(status, bytesTransferred, segments, 1, 0);
+    }
+
+    public DownloadResult(int status, long bytesTransferred, int segments, int attempts, long resumedFrom)
+    {
+        this.status = status;
+        this.bytesTransferred = bytesTransferred;
+        this.segments = segments;
+        this.attempts = attempts;
+        this.resumedFrom = resumedFrom;
+    }
+
+    /**
+     * @return status of the GET request, 200 if the resource was downloaded in range segments or resumed
+     */
+    public int getStatus()
+    {
+        return status;
+    }
+
+    public long getBytesTransferred()
+    {
+        return bytesTransferred;
+    }
+
+    /**
+     * @return number of parallel range requests used, 1 for a single GET
+     */
+    public int getSegments()
+    {
+        return segments;
+    }
+
+    /**
+     * @return number of requests needed to complete a resumable download, 1 otherwise
+     */
+    public int getAttempts()
+    {
+        return attempts;
+    }
+
+    /**
+     * @return number of bytes already on disk when a resumable download started, 0 if it started from scratch
+     */
+    public long getResumedFrom()
+    {
+        return resumedFrom;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("DownloadResult[status=%d, bytes=%d, segments=%d, attempts=%d, resumedFrom=%d]", status, bytesTransferred, segments, attempts,
+                resumedFrom);
+    }
+}
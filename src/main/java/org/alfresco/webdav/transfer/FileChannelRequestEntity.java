@@ -0,0 +1,66 @@
+package org.alfresco.webdav.transfer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.httpclient.methods.RequestEntity;
+
+/**
+ * Request body streamed from a local file through a {@link FileChannel}.
+ * The length is known up front, so the content is never buffered in memory to compute the Content-Length header.
+ */
+public class FileChannelRequestEntity implements RequestEntity
+{
+    private final File file;
+    private final String contentType;
+
+    public FileChannelRequestEntity(File file, String contentType)
+    {
+        this.file = file;
+        this.contentType = contentType;
+    }
+
+    @Override
+    public boolean isRepeatable()
+    {
+        return true;
+    }
+
+    @Override
+    public void writeRequest(OutputStream out) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            WritableByteChannel target = Channels.newChannel(out);
+            long size = channel.size();
+            long position = 0;
+            while (position < size)
+            {
+                long transferred = channel.transferTo(position, size - position, target);
+                if (transferred > 0)
+                    position += transferred;
+                else if (position >= channel.size())
+                    throw new IOException(String.format("%s ended after %d of %d bytes, it was truncated during the upload", file, position, size));
+                else
+                    throw new IOException(String.format("No progress sending %s after %d of %d bytes", file, position, size));
+            }
+        }
+    }
+
+    @Override
+    public long getContentLength()
+    {
+        return file.length();
+    }
+
+    @Override
+    public String getContentType()
+    {
+        return contentType;
+    }
+}
@@ -0,0 +1,172 @@
+package org.alfresco.webdav.transfer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Properties;
+
+/**
+ * Progress of a resumable download, persisted next to the target file so that another attempt (or another process) can
+ * continue it. The downloaded bytes are kept in "&lt;target&gt;.part" and the validators of the resource, with its
+ * checksum when the server sent one, in "&lt;target&gt;.part.properties".
+ */
+class PartialDownload
+{
+    private static final String URI = "uri";
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "lastModified";
+    private static final String LENGTH = "length";
+    private static final String CHECKSUM_ALGORITHM = "checksumAlgorithm";
+    private static final String CHECKSUM = "checksum";
+
+    private final Path partFile;
+    private final Path stateFile;
+    private String uri;
+    private String etag;
+    private String lastModified;
+    private long length = -1;
+    private String checksumAlgorithm;
+    private String checksum;
+
+    PartialDownload(Path target)
+    {
+        this.partFile = Paths.get(target.toString() + ".part");
+        this.stateFile = Paths.get(target.toString() + ".part.properties");
+    }
+
+    /**
+     * Load the progress of a previous attempt on the same resource, discarding any progress made on another one
+     */
+    void load(String resourceUri) throws IOException
+    {
+        uri = resourceUri;
+        if (Files.exists(stateFile) && Files.exists(partFile))
+        {
+            Properties state = new Properties();
+            try (InputStream in = Files.newInputStream(stateFile))
+            {
+                state.load(in);
+            }
+            if (resourceUri.equals(state.getProperty(URI)))
+            {
+                etag = state.getProperty(ETAG);
+                lastModified = state.getProperty(LAST_MODIFIED);
+                length = Long.parseLong(state.getProperty(LENGTH, "-1"));
+                checksumAlgorithm = state.getProperty(CHECKSUM_ALGORITHM);
+                checksum = state.getProperty(CHECKSUM);
+                return;
+            }
+        }
+        discard();
+    }
+
+    /**
+     * @param checksumAlgorithm {@link MessageDigest} algorithm of the checksum, or null if the server did not send one
+     * @param checksum base64 checksum of the whole resource
+     */
+    void save(String etag, String lastModified, long length, String checksumAlgorithm, String checksum) throws IOException
+    {
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.length = length;
+        this.checksumAlgorithm = checksum != null ? checksumAlgorithm : null;
+        this.checksum = checksum;
+        Properties state = new Properties();
+        state.setProperty(URI, uri);
+        if (etag != null)
+            state.setProperty(ETAG, etag);
+        if (lastModified != null)
+            state.setProperty(LAST_MODIFIED, lastModified);
+        state.setProperty(LENGTH, String.valueOf(length));
+        if (checksum != null)
+        {
+            state.setProperty(CHECKSUM_ALGORITHM, checksumAlgorithm);
+            state.setProperty(CHECKSUM, checksum);
+        }
+        try (OutputStream out = Files.newOutputStream(stateFile))
+        {
+            state.store(out, "WebDAV partial download");
+        }
+    }
+
+    void discard() throws IOException
+    {
+        Files.deleteIfExists(partFile);
+        Files.deleteIfExists(stateFile);
+        etag = null;
+        lastModified = null;
+        length = -1;
+        checksumAlgorithm = null;
+        checksum = null;
+    }
+
+    long getDownloadedBytes() throws IOException
+    {
+        return Files.exists(partFile) ? Files.size(partFile) : 0;
+    }
+
+    /**
+     * @return the strong validator used in If-Range: the ETag, or the last modification date if the server did not send one
+     */
+    String getValidator()
+    {
+        if (etag != null && !etag.startsWith("W/"))
+            return etag;
+        return lastModified;
+    }
+
+    String getEtag()
+    {
+        return etag;
+    }
+
+    String getLastModified()
+    {
+        return lastModified;
+    }
+
+    /**
+     * @return true if the server sent no checksum, or if the downloaded bytes match it
+     */
+    boolean matchesChecksum() throws IOException
+    {
+        if (checksum == null)
+            return true;
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance(checksumAlgorithm);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IOException("Cannot verify the " + checksumAlgorithm + " checksum of " + partFile, e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(partFile), digest))
+        {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return Base64.getEncoder().encodeToString(digest.digest()).equals(checksum);
+    }
+
+    long getLength()
+    {
+        return length;
+    }
+
+    Path getPartFile()
+    {
+        return partFile;
+    }
+
+    Path getStateFile()
+    {
+        return stateFile;
+    }
+}
@@ -0,0 +1,89 @@
+package org.alfresco.webdav.transfer;
+
+import java.nio.file.Path;
+
+/**
+ * Result of uploading one local file or creating one collection with {@link DirectoryUploader}
+ */
+public class UploadItem
+{
+    /**
+     * Status used for the items that were not sent because their parent collection could not be created
+     */
+    public static final int SKIPPED = -1;
+
+    private final Path localPath;
+    private final String uri;
+    private final boolean collection;
+    private final int status;
+    private final long bytes;
+    private final long durationNanos;
+    private final Exception error;
+
+    public UploadItem(Path localPath, String uri, boolean collection, int status, long bytes, long durationNanos, Exception error)
+    {
+        this.localPath = localPath;
+        this.uri = uri;
+        this.collection = collection;
+        this.status = status;
+        this.bytes = bytes;
+        this.durationNanos = durationNanos;
+        this.error = error;
+    }
+
+    public Path getLocalPath()
+    {
+        return localPath;
+    }
+
+    public String getUri()
+    {
+        return uri;
+    }
+
+    public boolean isCollection()
+    {
+        return collection;
+    }
+
+    /**
+     * @return status of the MKCOL or PUT request, {@link #SKIPPED} or 0 if the request failed with an exception
+     */
+    public int getStatus()
+    {
+        return status;
+    }
+
+    public long getBytes()
+    {
+        return bytes;
+    }
+
+    public long getDurationNanos()
+    {
+        return durationNanos;
+    }
+
+    public Exception getError()
+    {
+        return error;
+    }
+
+    /**
+     * @return true if the resource exists on the server after the upload. A collection that was already there counts as created.
+     */
+    public boolean isSuccessful()
+    {
+        if (error != null)
+            return false;
+        if (collection && status == DirectoryUploader.COLLECTION_ALREADY_EXISTS)
+            return true;
+        return status >= 200 && status < 300;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s %s -> %d%s", collection ? "MKCOL" : "PUT", uri, status, error == null ? "" : " (" + error.getMessage() + ")");
+    }
+}
@@ -0,0 +1,17 @@
+package org.alfresco.webdav.transfer;
+
+/**
+ * How {@link org.alfresco.webdav.WebDavWrapper#uploadFile(java.io.File)} sends a local file
+ */
+public enum UploadMode
+{
+    /**
+     * One PUT streaming the file with a known Content-Length
+     */
+    SINGLE_PUT,
+
+    /**
+     * Sequence used by office applications: empty PUT, LOCK, PUT with the content, UNLOCK
+     */
+    OFFICE
+}
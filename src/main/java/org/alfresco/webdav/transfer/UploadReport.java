@@ -0,0 +1,62 @@
+package org.alfresco.webdav.transfer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Per item report of a {@link DirectoryUploader} run
+ */
+public class UploadReport
+{
+    private final String rootUri;
+    private final List<UploadItem> items;
+    private final long durationNanos;
+
+    public UploadReport(String rootUri, List<UploadItem> items, long durationNanos)
+    {
+        this.rootUri = rootUri;
+        this.items = Collections.unmodifiableList(items);
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * @return URI of the collection created for the local root folder
+     */
+    public String getRootUri()
+    {
+        return rootUri;
+    }
+
+    public List<UploadItem> getItems()
+    {
+        return items;
+    }
+
+    public List<UploadItem> getFailures()
+    {
+        return items.stream().filter(item -> !item.isSuccessful()).collect(Collectors.toList());
+    }
+
+    public boolean isSuccessful()
+    {
+        return items.stream().allMatch(UploadItem::isSuccessful);
+    }
+
+    public long getBytesUploaded()
+    {
+        return items.stream().filter(UploadItem::isSuccessful).mapToLong(UploadItem::getBytes).sum();
+    }
+
+    public long getDurationNanos()
+    {
+        return durationNanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("UploadReport[%s: %d items, %d failures, %d bytes in %d ms]", rootUri, items.size(), getFailures().size(),
+                getBytesUploaded(), durationNanos / 1000000);
+    }
+}
@@ -0,0 +1,389 @@
+package org.alfresco.webdav.transfer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.alfresco.webdav.cache.ContentCache;
+import org.alfresco.webdav.http.WebDavRequest;
+import org.alfresco.webdav.http.WebDavResponse;
+import org.alfresco.webdav.http.WebDavTransport;
+import org.apache.jackrabbit.webdav.DavMethods;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Streams WebDAV resources into channels through one large buffer per stream.
+ * <p>
+ * When more than one segment is configured, resources bigger than the segment threshold are downloaded with parallel
+ * Range requests, each segment being written at its own position of the target file.
+ */
+public class WebDavDownloader
+{
+    private static final long RETRY_DELAY = 500;
+    private static final long MAX_RETRY_DELAY = 5000;
+
+    private final WebDavTransport transport;
+    private final int bufferSize;
+    private final long segmentThreshold;
+    private final int segments;
+    private ContentCache contentCache;
+
+    /**
+     * @param transport transport of the user downloading the resources
+     * @param bufferSize size in bytes of the buffer used for each stream
+     * @param segmentThreshold minimal size in bytes of a resource downloaded in segments
+     * @param segments maximal number of parallel Range requests for one resource, 1 to always use a single GET
+     */
+    public WebDavDownloader(WebDavTransport transport, int bufferSize, long segmentThreshold, int segments)
+    {
+        this.transport = transport;
+        this.bufferSize = bufferSize;
+        this.segmentThreshold = segmentThreshold;
+        this.segments = segments;
+    }
+
+    /**
+     * Download with If-None-Match the resources already in the cache, and copy them from the cache when the server
+     * answers 304. Cached downloads use a single GET.
+     *
+     * @param cache contents of the session, or null
+     * @return
+     */
+    public WebDavDownloader withContentCache(ContentCache cache)
+    {
+        this.contentCache = cache;
+        return this;
+    }
+
+    /**
+     * Download a resource into a local file, replacing its content
+     *
+     * @param uri escaped URI of the resource
+     * @param target local file
+     * @return
+     * @throws Exception
+     */
+    public DownloadResult download(String uri, Path target) throws Exception
+    {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            if (segments > 1 && contentCache == null)
+            {
+                long length;
+                String etag;
+                boolean acceptRanges;
+                try (WebDavResponse head = transport.execute(new WebDavRequest(DavMethods.METHOD_HEAD, uri)))
+                {
+                    length = head.getStatus() == HttpStatus.OK.value() ? head.getContentLength() : -1;
+                    etag = head.getHeader("ETag");
+                    acceptRanges = "bytes".equalsIgnoreCase(head.getHeader("Accept-Ranges"));
+                }
+                if (acceptRanges && length >= segmentThreshold)
+                {
+                    DownloadResult result = downloadSegments(uri, channel, length, etag);
+                    if (result != null)
+                        return result;
+                    channel.truncate(0);
+                }
+            }
+            return download(uri, channel);
+        }
+    }
+
+    /**
+     * Download a resource with a single GET into the given channel
+     *
+     * @param uri escaped URI of the resource
+     * @param target channel receiving the content, left open
+     * @return
+     * @throws Exception
+     */
+    public DownloadResult download(String uri, WritableByteChannel target) throws Exception
+    {
+        if (contentCache != null)
+        {
+            DownloadResult cached = downloadCached(uri, target);
+            if (cached != null)
+                return cached;
+        }
+        try (WebDavResponse response = transport.execute(new WebDavRequest(DavMethods.METHOD_GET, uri)))
+        {
+            long bytes = 0;
+            if (response.getStatus() / 100 == 2)
+                bytes = copy(response.getBody(), target, -1);
+            return new DownloadResult(response.getStatus(), bytes, 1);
+        }
+    }
+
+    /**
+     * Revalidate the cached content of a resource, or download and cache it
+     *
+     * @return null if the cached content was evicted after the server confirmed it
+     */
+    private DownloadResult downloadCached(String uri, WritableByteChannel target) throws Exception
+    {
+        String etag = contentCache.getETag(uri);
+        WebDavRequest get = new WebDavRequest(DavMethods.METHOD_GET, uri);
+        if (etag != null)
+            get.header("If-None-Match", etag);
+        try (WebDavResponse response = transport.execute(get))
+        {
+            if (response.getStatus() == HttpStatus.NOT_MODIFIED.value() && etag != null)
+            {
+                try (InputStream cached = contentCache.open(uri, etag))
+                {
+                    if (cached == null)
+                        return null;
+                    return new DownloadResult(HttpStatus.OK.value(), copy(cached, target, -1), 1);
+                }
+            }
+            String newEtag = response.getHeader("ETag");
+            if (response.getStatus() == HttpStatus.OK.value() && newEtag != null)
+            {
+                try (InputStream stored = contentCache.put(uri, newEtag, response.getBody(), response.getContentLength()))
+                {
+                    return new DownloadResult(response.getStatus(), copy(stored, target, -1), 1);
+                }
+            }
+            contentCache.invalidate(uri);
+            long bytes = 0;
+            if (response.getStatus() / 100 == 2)
+                bytes = copy(response.getBody(), target, -1);
+            return new DownloadResult(response.getStatus(), bytes, 1);
+        }
+    }
+
+    /**
+     * Download a resource into a local file, resuming the transfer with a Range request when it breaks.
+     * <p>
+     * The bytes already received are kept in "&lt;target&gt;.part", so a later call can also resume a download interrupted
+     * in a previous run. Each resumed request carries the ETag of the resource in If-Range: if the resource changed, the
+     * server sends it again from the beginning, and a partial response with another ETag or Last-Modified date is
+     * rejected. The target is replaced only when the downloaded length matches the resource and, when the server sent a
+     * checksum (Digest with SHA-256 or MD5, or Content-MD5), when the downloaded bytes match it.
+     *
+     * @param uri escaped URI of the resource
+     * @param target local file
+     * @param maxAttempts maximal number of GET requests
+     * @return
+     * @throws Exception
+     */
+    public DownloadResult downloadResumable(String uri, Path target, int maxAttempts) throws Exception
+    {
+        PartialDownload partial = new PartialDownload(target);
+        partial.load(uri);
+        long resumedFrom = partial.getDownloadedBytes();
+        long transferred = 0;
+        IOException lastFailure = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++)
+        {
+            long offset = partial.getDownloadedBytes();
+            String validator = partial.getValidator();
+            boolean resume = offset > 0 && validator != null;
+            WebDavRequest get = new WebDavRequest(DavMethods.METHOD_GET, uri);
+            if (resume)
+                get.header("Range", String.format("bytes=%d-", offset)).header("If-Range", validator);
+            try (WebDavResponse response = transport.execute(get))
+            {
+                int status = response.getStatus();
+                if (resume && status == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value() && offset == partial.getLength())
+                    return complete(partial, target, transferred, attempt, resumedFrom);
+                if (resume && status == HttpStatus.PARTIAL_CONTENT.value() && isSameResource(partial, response, offset))
+                {
+                    transferred += append(response, partial, offset);
+                    return complete(partial, target, transferred, attempt, resumedFrom);
+                }
+                if (status == HttpStatus.OK.value())
+                {
+                    partial.discard();
+                    String[] checksum = getChecksum(response);
+                    partial.save(response.getHeader("ETag"), response.getHeader("Last-Modified"), response.getContentLength(), checksum[0], checksum[1]);
+                    transferred += append(response, partial, 0);
+                    return complete(partial, target, transferred, attempt, resumedFrom);
+                }
+                if (!resume)
+                    return new DownloadResult(status, transferred, 1, attempt, resumedFrom);
+                // the range does not match the resource anymore, start again from the beginning
+                partial.discard();
+            }
+            catch (IOException e)
+            {
+                lastFailure = e;
+                if (attempt < maxAttempts)
+                    Thread.sleep(Math.min(RETRY_DELAY * attempt, MAX_RETRY_DELAY));
+            }
+        }
+        throw new IOException(String.format("Download of %s did not complete after %d attempts, %d bytes are kept in %s", uri, maxAttempts,
+                partial.getDownloadedBytes(), partial.getPartFile()), lastFailure);
+    }
+
+    private boolean isSameResource(PartialDownload partial, WebDavResponse response, long offset)
+    {
+        String contentRange = response.getHeader("Content-Range");
+        if (contentRange == null || !contentRange.startsWith(String.format("bytes %d-", offset)))
+            return false;
+        String etag = response.getHeader("ETag");
+        if (etag != null && partial.getEtag() != null && !etag.equals(partial.getEtag()))
+            return false;
+        String lastModified = response.getHeader("Last-Modified");
+        if (lastModified != null && partial.getLastModified() != null && !lastModified.equals(partial.getLastModified()))
+            return false;
+        String total = contentRange.substring(contentRange.indexOf('/') + 1).trim();
+        return "*".equals(total) || partial.getLength() < 0 || Long.parseLong(total) == partial.getLength();
+    }
+
+    private long append(WebDavResponse response, PartialDownload partial, long offset) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(partial.getPartFile(), StandardOpenOption.CREATE, StandardOpenOption.WRITE))
+        {
+            return copy(response.getBody(), channel, offset);
+        }
+    }
+
+    /**
+     * @return the {@link java.security.MessageDigest} algorithm and the base64 value of the checksum of a full response,
+     *         both null if the server did not send one
+     */
+    private static String[] getChecksum(WebDavResponse response)
+    {
+        String digest = response.getHeader("Digest");
+        if (digest != null)
+        {
+            for (String algorithm : new String[] { "SHA-256", "MD5" })
+            {
+                for (String value : digest.split(","))
+                {
+                    int separator = value.indexOf('=');
+                    if (separator > 0 && value.substring(0, separator).trim().equalsIgnoreCase(algorithm))
+                        return new String[] { algorithm, value.substring(separator + 1).trim() };
+                }
+            }
+        }
+        String contentMd5 = response.getHeader("Content-MD5");
+        return contentMd5 != null ? new String[] { "MD5", contentMd5.trim() } : new String[2];
+    }
+
+    /**
+     * Validate the downloaded length and checksum and move the partial file to the target.
+     * A short file is kept, so that the next attempt resumes it; a file with the wrong checksum is discarded.
+     */
+    private DownloadResult complete(PartialDownload partial, Path target, long transferred, int attempts, long resumedFrom) throws IOException
+    {
+        long downloaded = partial.getDownloadedBytes();
+        if (partial.getLength() >= 0 && downloaded != partial.getLength())
+        {
+            if (downloaded > partial.getLength())
+                partial.discard();
+            throw new IOException(String.format("Downloaded %d bytes into %s but the resource has %d bytes", downloaded, target, partial.getLength()));
+        }
+        if (!partial.matchesChecksum())
+        {
+            partial.discard();
+            throw new IOException(String.format("Downloaded %d bytes into %s but they do not match the checksum sent by the server", downloaded, target));
+        }
+        Files.move(partial.getPartFile(), target, StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(partial.getStateFile());
+        return new DownloadResult(HttpStatus.OK.value(), transferred, 1, attempts, resumedFrom);
+    }
+
+    /**
+     * @return the result or null if the server did not serve every range, in which case the file content is undefined
+     */
+    private DownloadResult downloadSegments(String uri, FileChannel channel, long length, String etag) throws Exception
+    {
+        long segmentSize = (length + segments - 1) / segments;
+        List<CompletableFuture<Long>> parts = new ArrayList<>();
+        for (long start = 0; start < length; start += segmentSize)
+        {
+            long position = start;
+            long end = Math.min(start + segmentSize, length) - 1;
+            WebDavRequest get = new WebDavRequest(DavMethods.METHOD_GET, uri).header("Range", String.format("bytes=%d-%d", start, end));
+            if (etag != null)
+                get.header("If-Range", etag);
+            parts.add(transport.executeAsync(get).thenApply(response -> writeSegment(response, channel, position, end - position + 1)));
+        }
+
+        // wait for every segment, so that no write is still running if the download has to be restarted
+        CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).join();
+        long bytes = 0;
+        for (CompletableFuture<Long> part : parts)
+        {
+            try
+            {
+                bytes += part.join();
+            }
+            catch (CompletionException e)
+            {
+                if (e.getCause() instanceof RangeNotServedException)
+                    return null;
+                if (e.getCause() instanceof Exception)
+                    throw (Exception) e.getCause();
+                throw e;
+            }
+        }
+        return new DownloadResult(HttpStatus.OK.value(), bytes, parts.size());
+    }
+
+    private long writeSegment(WebDavResponse response, FileChannel channel, long position, long expectedLength)
+    {
+        try (response)
+        {
+            if (response.getStatus() != HttpStatus.PARTIAL_CONTENT.value())
+                throw new RangeNotServedException();
+            long written = copy(response.getBody(), channel, position);
+            if (written != expectedLength)
+                throw new IOException(String.format("Segment at %d is incomplete: received %d bytes of %d", position, written, expectedLength));
+            return written;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Copy a stream into a channel through one heap buffer, filled before each write so that few large writes reach the
+     * OS. The body is an InputStream, so a direct buffer would only add a copy.
+     *
+     * @param position position in the file channel where the content is written, -1 to write sequentially into the target
+     * @return number of bytes copied
+     */
+    private long copy(InputStream in, WritableByteChannel target, long position) throws IOException
+    {
+        byte[] chunk = new byte[bufferSize];
+        long transferred = 0;
+        int read;
+        while ((read = in.readNBytes(chunk, 0, chunk.length)) > 0)
+        {
+            ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, read);
+            while (buffer.hasRemaining())
+            {
+                if (position < 0)
+                    transferred += target.write(buffer);
+                else
+                    transferred += ((FileChannel) target).write(buffer, position + transferred);
+            }
+        }
+        return transferred;
+    }
+
+    /**
+     * The server answered a Range request with the full content, e.g. because the resource changed
+     */
+    private static class RangeNotServedException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+    }
+}
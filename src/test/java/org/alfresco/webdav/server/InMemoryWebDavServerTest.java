@@ -0,0 +1,85 @@
+package org.alfresco.webdav.server;
+
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.alfresco.webdav.dsl.PropertySelection;
+import org.alfresco.webdav.http.JdkHttpTransport;
+import org.alfresco.webdav.http.WebDavRequest;
+import org.alfresco.webdav.session.WebDavResult;
+import org.alfresco.webdav.session.WebDavSession;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.jackrabbit.webdav.DavConstants;
+import org.apache.jackrabbit.webdav.DavMethods;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Smoke test of the main WebDAV methods of {@link InMemoryWebDavServer}
+ */
+public class InMemoryWebDavServerTest
+{
+    private static final String FOLDER = "/Sites/site/documentLibrary/smoke";
+    private static final String FILE = FOLDER + "/file.txt";
+    private static final byte[] CONTENT = "in-memory content".getBytes(StandardCharsets.UTF_8);
+
+    private InMemoryWebDavServer server;
+    private WebDavSession session;
+
+    @BeforeClass
+    public void startServer() throws Exception
+    {
+        server = new InMemoryWebDavServer(0).start().createSite("site");
+        session = new WebDavSession(new JdkHttpTransport(HttpClient.newHttpClient(), "admin", "admin"), server.getBaseUrl(), "admin");
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer()
+    {
+        server.close();
+    }
+
+    @Test
+    public void putGetPropFindLockAndDelete() throws Exception
+    {
+        Assert.assertEquals(session.createFolder(FOLDER).getStatus(), HttpStatus.SC_CREATED);
+        Assert.assertEquals(session.put(FILE, CONTENT, "text/plain").getStatus(), HttpStatus.SC_CREATED);
+
+        WebDavResult get = session.get(FILE);
+        Assert.assertEquals(get.getStatus(), HttpStatus.SC_OK);
+        Assert.assertEquals(get.getBody(), CONTENT);
+
+        WebDavResult listing = session.propFind(FOLDER, PropertySelection.listing(), DavConstants.DEPTH_1);
+        Assert.assertEquals(listing.getStatus(), HttpStatus.SC_MULTI_STATUS);
+        Assert.assertEquals(listing.getResources().size(), 2);
+        Assert.assertTrue(listing.getResources().get(0).isCollection());
+        Assert.assertEquals(listing.getResources().get(1).getContentLength(), CONTENT.length);
+
+        WebDavResult lock = session.lock(FILE, Duration.ofMinutes(1));
+        Assert.assertEquals(lock.getStatus(), HttpStatus.SC_OK);
+        Assert.assertNotNull(lock.getLockToken());
+        Assert.assertEquals(session.put(FILE, CONTENT, "text/plain").getStatus(), HttpStatus.SC_LOCKED);
+        Assert.assertEquals(session.delete(FILE).getStatus(), HttpStatus.SC_LOCKED);
+        Assert.assertEquals(session.unlock(FILE, lock.getLockToken()).getStatus(), HttpStatus.SC_NO_CONTENT);
+
+        Assert.assertEquals(session.delete(FOLDER).getStatus(), HttpStatus.SC_NO_CONTENT);
+        Assert.assertEquals(session.get(FILE).getStatus(), HttpStatus.SC_NOT_FOUND);
+    }
+
+    @Test
+    public void rangesAreServedAndInvalidOnesIgnored() throws Exception
+    {
+        String file = "/Sites/site/documentLibrary/range.txt";
+        session.put(file, CONTENT, "text/plain");
+
+        WebDavResult tail = session.execute(new WebDavRequest(DavMethods.METHOD_GET, session.getUri(file)).header("Range", "bytes=-7"));
+        Assert.assertEquals(tail.getStatus(), HttpStatus.SC_PARTIAL_CONTENT);
+        Assert.assertEquals(tail.getHeader("Content-Range"), String.format("bytes %d-%d/%d", CONTENT.length - 7, CONTENT.length - 1, CONTENT.length));
+
+        WebDavResult invalid = session.execute(new WebDavRequest(DavMethods.METHOD_GET, session.getUri(file)).header("Range", "bytes=-"));
+        Assert.assertEquals(invalid.getStatus(), HttpStatus.SC_OK);
+    }
+}